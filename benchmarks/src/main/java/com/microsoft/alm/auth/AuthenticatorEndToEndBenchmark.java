@@ -0,0 +1,210 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.auth.oauth.DeviceFlowResponse;
+import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.secret.VsoTokenScope;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures {@link OAuth2Authenticator} and {@link VstsPatAuthenticator} end to end, over HTTP, against the
+ * {@link VstsStubServer} stand-ins for AAD and VSTS, from several threads at once:
+ *
+ * <ul>
+ *     <li>{@code warm}: the store holds a valid secret, which is validated.</li>
+ *     <li>{@code expired}: the store holds a rejected secret; the OAuth2 access token is refreshed,
+ *     the Personal Access Token is minted again.</li>
+ *     <li>{@code cold}: the store is empty; OAuth2 detects the account's tenant again, with a new authenticator,
+ *     and goes through the device flow, the Personal Access Token is minted with a stored OAuth2 access token.</li>
+ * </ul>
+ *
+ * Sampling reports the p50 and p99 latencies; change the concurrency with {@code -t} and the server latency with
+ * {@code -p latencyMillis=...}.  How many requests an operation sent to each endpoint is printed after each trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class AuthenticatorEndToEndBenchmark {
+
+    private static final String CLIENT_ID = "872cd9fa-d31f-45e0-9eab-6e460a02d1f1";
+    private static final String REDIRECT_URL = "urn:ietf:wg:oauth:2.0:oob";
+    private static final String USER_AGENT_PROVIDER_PROPERTY = "userAgentProvider";
+
+    private static final Action<DeviceFlowResponse> DEVICE_FLOW_CALLBACK = new Action<DeviceFlowResponse>() {
+        @Override
+        public void call(final DeviceFlowResponse deviceFlowResponse) {
+            // the stub authorizes the device code before anyone could enter it
+        }
+    };
+
+    @State(Scope.Benchmark)
+    public static class Services {
+
+        @Param({"warm", "expired", "cold"})
+        public String scenario;
+
+        /**
+         * How long the stubs take to answer each request.
+         */
+        @Param({"0", "20"})
+        public int latencyMillis;
+
+        private final AtomicLong operations = new AtomicLong();
+        private VstsStubServer server;
+        private String previousUserAgentProvider;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            // go through the device flow rather than trying to open a browser
+            previousUserAgentProvider = System.getProperty(USER_AGENT_PROVIDER_PROPERTY);
+            System.setProperty(USER_AGENT_PROVIDER_PROPERTY, "none");
+
+            server = new VstsStubServer(latencyMillis);
+            server.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            server.stop();
+            if (previousUserAgentProvider == null) {
+                System.clearProperty(USER_AGENT_PROVIDER_PROPERTY);
+            } else {
+                System.setProperty(USER_AGENT_PROVIDER_PROPERTY, previousUserAgentProvider);
+            }
+
+            final long count = operations.get();
+            final StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%n%s, %d ms latency: %d operations, requests per operation:%n",
+                    scenario, latencyMillis, count));
+            for (final Map.Entry<String, Long> entry : server.getRequestCounts().entrySet()) {
+                sb.append(String.format("  %6.2f  %s%n", (double) entry.getValue() / count, entry.getKey()));
+            }
+            System.out.print(sb);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class OAuth2Client {
+
+        private String scenario;
+        private SecretStore<TokenPair> store;
+        private OAuth2Authenticator authenticator;
+        private String commonKey;
+        private String tenantKey;
+
+        @Setup(Level.Trial)
+        public void setUp(final Services services) {
+            scenario = services.scenario;
+            store = new InsecureInMemoryStore<TokenPair>();
+            authenticator = createAuthenticator();
+            commonKey = authenticator.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO);
+            // the account is in the stub's tenant, so its token pair is stored under the tenant's key
+            tenantKey = commonKey + "/" + VstsStubServer.TENANT_ID;
+            store.add(tenantKey, new TokenPair(VstsStubServer.VALID_ACCESS_TOKEN, VstsStubServer.REFRESH_TOKEN));
+        }
+
+        private OAuth2Authenticator createAuthenticator() {
+            return OAuth2Authenticator.getAuthenticator(CLIENT_ID, REDIRECT_URL, store, DEVICE_FLOW_CALLBACK);
+        }
+
+        // operations take milliseconds, so the cost of an invocation-level fixture doesn't matter
+        @Setup(Level.Invocation)
+        public void prepareStore() {
+            if ("expired".equals(scenario)) {
+                store.delete(tenantKey);
+                store.add(tenantKey,
+                        new TokenPair(VstsStubServer.EXPIRED_ACCESS_TOKEN, VstsStubServer.REFRESH_TOKEN));
+            } else if ("cold".equals(scenario)) {
+                store.delete(tenantKey);
+                store.delete(commonKey);
+                // a new authenticator hasn't cached the account's authority yet
+                authenticator = createAuthenticator();
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PatClient {
+
+        private String scenario;
+        private SecretStore<Token> store;
+        private VstsPatAuthenticator authenticator;
+        private String key;
+
+        @Setup(Level.Trial)
+        public void setUp(final Services services) {
+            scenario = services.scenario;
+            // minting needs an OAuth2 access token, which stays valid throughout
+            final SecretStore<TokenPair> oauth2Store = new InsecureInMemoryStore<TokenPair>();
+            final OAuth2Authenticator oauth2Authenticator
+                    = OAuth2Authenticator.getAuthenticator(CLIENT_ID, REDIRECT_URL, oauth2Store, DEVICE_FLOW_CALLBACK);
+            oauth2Store.add(oauth2Authenticator.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO),
+                    new TokenPair(VstsStubServer.VALID_ACCESS_TOKEN, VstsStubServer.REFRESH_TOKEN));
+
+            store = new InsecureInMemoryStore<Token>();
+            authenticator = new VstsPatAuthenticator(oauth2Authenticator, store);
+            key = authenticator.getKey(VstsStubServer.ACCOUNT_URI);
+            store.add(key, new Token(VstsStubServer.VALID_PAT, TokenType.Personal));
+        }
+
+        @Setup(Level.Invocation)
+        public void prepareStore() {
+            if ("expired".equals(scenario)) {
+                store.add(key, new Token(VstsStubServer.EXPIRED_PAT, TokenType.Personal));
+            } else if ("cold".equals(scenario)) {
+                store.delete(key);
+            }
+        }
+    }
+
+    @Benchmark
+    public TokenPair oauth2(final Services services, final OAuth2Client client) {
+        services.operations.incrementAndGet();
+        final TokenPair tokenPair
+                = client.authenticator.getOAuth2TokenPair(VstsStubServer.ACCOUNT_URI, PromptBehavior.AUTO);
+        if (tokenPair == null) {
+            throw new IllegalStateException("Failed to get an OAuth2 token pair.");
+        }
+        return tokenPair;
+    }
+
+    @Benchmark
+    public Token pat(final Services services, final PatClient client) {
+        services.operations.incrementAndGet();
+        final Token token = client.authenticator.getPersonalAccessToken(VstsStubServer.ACCOUNT_URI,
+                VsoTokenScope.CodeAll, "benchmark", PromptBehavior.AUTO);
+        if (token == null) {
+            throw new IllegalStateException("Failed to get a Personal Access Token.");
+        }
+        return token;
+    }
+}
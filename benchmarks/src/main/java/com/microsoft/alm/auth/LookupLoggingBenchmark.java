@@ -0,0 +1,143 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.microsoft.alm.auth.basic.BasicAuthAuthenticator;
+import com.microsoft.alm.auth.basic.CredentialPrompt;
+import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.auth.pat.VstsPatAuthenticator;
+import com.microsoft.alm.helpers.LoggingHelper;
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.VsoTokenScope;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of secret lookups that don't leave the process, for each log level and
+ * {@link LoggingHelper#LOOKUP_LOGGING_PROPERTY_NAME} setting:
+ *
+ * <ul>
+ *     <li>{@code basicHit}: {@link BasicAuthAuthenticator} finds the stored credential.</li>
+ *     <li>{@code patNever}: {@link VstsPatAuthenticator} looks for a Personal Access Token it doesn't have,
+ *     and isn't allowed to prompt for one.</li>
+ * </ul>
+ *
+ * Messages are formatted by logback but written to a stream that discards them, so the difference between levels is
+ * what the library spends on logging, not the I/O of the logging backend.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupLoggingBenchmark {
+
+    private static final String CLIENT_ID = "872cd9fa-d31f-45e0-9eab-6e460a02d1f1";
+    private static final String REDIRECT_URL = "urn:ietf:wg:oauth:2.0:oob";
+
+    @Param({"off", "info", "debug"})
+    public String level;
+
+    /**
+     * {@code all}, {@code none}, or one message out of N.
+     */
+    @Param({"all", "16", "none"})
+    public String lookupLogging;
+
+    private static final OutputStream NULL_STREAM = new OutputStream() {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    };
+
+    private final URI uri = URI.create("https://account42.visualstudio.com/DefaultCollection/_git/repo");
+
+    private BasicAuthAuthenticator basicAuthenticator;
+    private VstsPatAuthenticator patAuthenticator;
+
+    @Setup
+    public void setUp() {
+        setLogLevel(Level.toLevel(level, Level.OFF));
+        LoggingHelper.setLookupSampling(LoggingHelper.parseLookupSampling(lookupLogging));
+
+        final InsecureInMemoryStore<Credential> credentialStore = new InsecureInMemoryStore<Credential>();
+        basicAuthenticator = new BasicAuthAuthenticator(credentialStore,
+                new CredentialPrompt() {
+                    @Override
+                    public Credential prompt(final URI target) {
+                        throw new IllegalStateException("The credential should have been found in the store.");
+                    }
+                });
+        credentialStore.add(basicAuthenticator.getKey(uri), new Credential("user", "password"));
+
+        final OAuth2Authenticator oauth2Authenticator = OAuth2Authenticator.getAuthenticator(CLIENT_ID, REDIRECT_URL,
+                new InsecureInMemoryStore<TokenPair>());
+        patAuthenticator = new VstsPatAuthenticator(oauth2Authenticator, new InsecureInMemoryStore<Token>());
+    }
+
+    @TearDown
+    public void tearDown() {
+        setLogLevel(Level.OFF);
+        LoggingHelper.setLookupSampling(1);
+    }
+
+    private static void setLogLevel(final Level level) {
+        final LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final ch.qos.logback.classic.Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d [%thread] %-5level %logger - %msg%n");
+        encoder.start();
+        final OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<ILoggingEvent>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(NULL_STREAM);
+        appender.start();
+
+        root.detachAndStopAllAppenders();
+        root.addAppender(appender);
+        root.setLevel(level);
+    }
+
+    @Benchmark
+    public Credential basicHit() {
+        return basicAuthenticator.getCredential(uri, PromptBehavior.AUTO);
+    }
+
+    @Benchmark
+    public Token patNever() {
+        return patAuthenticator.getPersonalAccessToken(uri, VsoTokenScope.CodeRead, "benchmark",
+                PromptBehavior.NEVER);
+    }
+}
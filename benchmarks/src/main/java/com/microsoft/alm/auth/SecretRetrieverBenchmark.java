@@ -0,0 +1,98 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.BenchmarkStores;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding a stored Personal Access Token through {@link BaseAuthenticator.SecretRetriever#retrieve},
+ * the path every authenticator takes when the secret is already there, for each kind of {@link SecretStore}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretRetrieverBenchmark {
+
+    private static final int STORED_SECRETS = 100;
+    private static final String NAMESPACE = "git";
+
+    @Param({"memory", "file", "native"})
+    public String store;
+
+    private final URI uri = URI.create("https://account42.visualstudio.com/DefaultCollection/_git/repo");
+
+    private final BaseAuthenticator.SecretRetriever<Token> retriever = new BaseAuthenticator.SecretRetriever<Token>() {
+        @Override
+        protected Token doRetrieve() {
+            throw new IllegalStateException("The secret should have been found in the store.");
+        }
+    };
+
+    private SecretStore<Token> secretStore;
+    private String key;
+    private File backingFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("memory".equals(store)) {
+            secretStore = new InsecureInMemoryStore<Token>();
+        } else if ("file".equals(store)) {
+            backingFile = File.createTempFile("insecureStore", ".xml");
+            secretStore = BenchmarkStores.fileBackedTokenStore(backingFile);
+        } else {
+            secretStore = BenchmarkStores.nativeLikeTokenStore();
+        }
+
+        for (int i = 0; i < STORED_SECRETS; i++) {
+            final URI accountUri = URI.create("https://account" + i + ".visualstudio.com");
+            final Token token = new Token("pat" + i + "-52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra",
+                    TokenType.Personal);
+            secretStore.add(Secret.uriToName(accountUri, NAMESPACE), token);
+        }
+        key = Secret.uriToName(uri, NAMESPACE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (backingFile != null && !backingFile.delete()) {
+            backingFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public Token retrieve() {
+        return retriever.retrieve(key, secretStore, PromptBehavior.AUTO);
+    }
+
+    @Benchmark
+    public Token getKeyAndRetrieve() {
+        final String name = Secret.DefaultUriNameConversion.convert(uri, NAMESPACE);
+        return retriever.retrieve(name, secretStore, PromptBehavior.AUTO);
+    }
+}
@@ -0,0 +1,239 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.microsoft.alm.auth.oauth.Global;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.HttpResponse;
+import com.microsoft.alm.helpers.StringContent;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.head;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * Stands in for Azure Active Directory ({@code login.microsoftonline.com}) and Visual Studio Team Services
+ * ({@code *.visualstudio.com}) with WireMock stubs that answer after a fixed delay.
+ *
+ * While started, every {@link HttpClient} handed out by {@link Global#getHttpClientFactory()} sends its requests
+ * to the stubs instead, {@code https://host/path} becoming {@code http://localhost:port/host/path}, and counts them
+ * per endpoint.
+ *
+ * The stubs accept {@link #VALID_ACCESS_TOKEN} and {@link #VALID_PAT} and reject {@link #EXPIRED_ACCESS_TOKEN}
+ * and {@link #EXPIRED_PAT}, refresh tokens are always redeemed and the device flow is authorized on the first poll.
+ */
+public final class VstsStubServer {
+
+    public static final URI ACCOUNT_URI = URI.create("https://account.visualstudio.com");
+    public static final String TENANT_ID = "72f988bf-86f1-41af-91ab-2d7cd011db47";
+
+    public static final String VALID_ACCESS_TOKEN = "eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.valid";
+    public static final String EXPIRED_ACCESS_TOKEN = "eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.expired";
+    public static final String REFRESH_TOKEN = "AQABAAAAAADRNYRQ3dhRSrm-4K-adpCJ.refresh";
+    public static final String VALID_PAT = "52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra";
+    public static final String EXPIRED_PAT = "ah2dqfmzq3ecmk6yh2ljunlxuxzxwrbgs2f4eywzqvhoqsd4xnra";
+
+    private static final String INSTANCE_ID = "2dd3ecd7-5dd1-4fa3-8b0a-4f1c35a8b8f0";
+    private static final int CONTAINER_THREADS = 64;
+
+    private final int latencyMillis;
+    private final WireMockServer server;
+    private final ConcurrentMap<String, AtomicLong> requestCounts = new ConcurrentHashMap<String, AtomicLong>();
+
+    private HttpClientFactory previousHttpClientFactory;
+
+    /**
+     * @param latencyMillis how long each stub waits before answering.
+     */
+    public VstsStubServer(final int latencyMillis) {
+        this.latencyMillis = latencyMillis;
+        // the journal would keep every request of a benchmark run; we count them ourselves
+        this.server = new WireMockServer(wireMockConfig()
+                .dynamicPort()
+                .containerThreads(CONTAINER_THREADS)
+                .disableRequestJournal());
+    }
+
+    public void start() {
+        server.start();
+        addStubs();
+
+        final String baseUrl = "http://localhost:" + server.port() + "/";
+        previousHttpClientFactory = Global.getHttpClientFactory();
+        Global.setHttpClientFactory(new HttpClientFactory() {
+            @Override
+            public HttpClient createHttpClient() {
+                return new RedirectingHttpClient(new HttpClientImpl(Global.getUserAgent()), baseUrl, requestCounts);
+            }
+        });
+    }
+
+    public void stop() {
+        if (previousHttpClientFactory != null) {
+            Global.setHttpClientFactory(previousHttpClientFactory);
+            previousHttpClientFactory = null;
+        }
+        server.stop();
+    }
+
+    /**
+     * @return how many requests were sent to each endpoint since {@link #start()},
+     *         keyed by method and URL without the query string.
+     */
+    public Map<String, Long> getRequestCounts() {
+        final Map<String, Long> result = new TreeMap<String, Long>();
+        for (final Map.Entry<String, AtomicLong> entry : requestCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    private void addStubs() {
+        final String authorization = "Authorization";
+
+        // OAuth2Authenticator validates access tokens against the global connection data
+        server.stubFor(get(urlPathEqualTo("/app.vssps.visualstudio.com/_apis/connectionData"))
+                .atPriority(5)
+                .willReturn(respond(200).withBody("{}")));
+        server.stubFor(get(urlPathEqualTo("/app.vssps.visualstudio.com/_apis/connectionData"))
+                .atPriority(1)
+                .withHeader(authorization, equalTo("Bearer " + EXPIRED_ACCESS_TOKEN))
+                .willReturn(respond(401)));
+
+        // AzureAuthority.detectTenantId
+        server.stubFor(head(urlPathMatching("/[^/]+\\.visualstudio\\.com(/.*)?"))
+                .willReturn(respond(200).withHeader("X-VSS-ResourceTenant", TENANT_ID)));
+
+        // refresh token, authorization code and device code redemptions
+        server.stubFor(post(urlPathMatching("/login\\.microsoftonline\\.com/[^/]+/oauth2/token"))
+                .willReturn(respond(200).withBody("{\"token_type\":\"Bearer\",\"expires_in\":\"3599\","
+                        + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\","
+                        + "\"access_token\":\"" + VALID_ACCESS_TOKEN + "\","
+                        + "\"refresh_token\":\"" + REFRESH_TOKEN + "\"}")));
+        // no interval, so the device flow polls straight away
+        server.stubFor(post(urlPathMatching("/login\\.microsoftonline\\.com/[^/]+/oauth2/devicecode"))
+                .willReturn(respond(200).withBody("{\"user_code\":\"DQ2TMFBAX\","
+                        + "\"device_code\":\"DAQABAAEAAADRNYRQ3dhRSrm-4K-adpCJ\","
+                        + "\"verification_url\":\"https://aka.ms/devicelogin\","
+                        + "\"expires_in\":\"900\",\"interval\":\"0\","
+                        + "\"message\":\"Enter the code DQ2TMFBAX to authenticate.\"}")));
+
+        // VstsPatAuthenticator validates PATs against the account's connection data
+        server.stubFor(get(urlPathEqualTo("/account.visualstudio.com/_apis/connectionData"))
+                .atPriority(5)
+                .willReturn(respond(200).withBody("{}")));
+        server.stubFor(get(urlPathEqualTo("/account.visualstudio.com/_apis/connectionData"))
+                .atPriority(1)
+                .withHeader(authorization,
+                        equalTo(new Token(EXPIRED_PAT, TokenType.Personal).getAuthorizationHeaderValue()))
+                .willReturn(respond(401)));
+
+        // VsoAzureAuthority.generatePersonalAccessToken: target identity, identity service, then the PAT itself
+        server.stubFor(get(urlPathEqualTo("/account.visualstudio.com/_apis/connectiondata"))
+                .willReturn(respond(200).withBody("{\"instanceId\":\"" + INSTANCE_ID + "\"}")));
+        server.stubFor(get(urlPathMatching(
+                "/account\\.visualstudio\\.com/_apis/ServiceDefinitions/LocationService2/[^/]+"))
+                .willReturn(respond(200).withBody("{\"location\":\"https://app.vssps.visualstudio.com/\"}")));
+        server.stubFor(post(urlPathEqualTo("/app.vssps.visualstudio.com/_apis/token/sessiontokens"))
+                .willReturn(respond(200).withBody("{\"token\":\"" + VALID_PAT + "\"}")));
+    }
+
+    private ResponseDefinitionBuilder respond(final int status) {
+        return aResponse()
+                .withStatus(status)
+                .withHeader("Content-Type", "application/json; charset=utf-8")
+                .withFixedDelay(latencyMillis);
+    }
+
+    /**
+     * Sends the requests of an {@link HttpClientImpl} to the stubs, counting them.
+     */
+    private static final class RedirectingHttpClient implements HttpClient {
+
+        private final HttpClient delegate;
+        private final String baseUrl;
+        private final ConcurrentMap<String, AtomicLong> requestCounts;
+
+        RedirectingHttpClient(final HttpClient delegate, final String baseUrl,
+                              final ConcurrentMap<String, AtomicLong> requestCounts) {
+            this.delegate = delegate;
+            this.baseUrl = baseUrl;
+            this.requestCounts = requestCounts;
+        }
+
+        private URI redirect(final String method, final URI uri) {
+            final String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            final String endpoint = method + " " + uri.getHost() + path;
+            AtomicLong count = requestCounts.get(endpoint);
+            if (count == null) {
+                final AtomicLong newCount = new AtomicLong();
+                count = requestCounts.putIfAbsent(endpoint, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.incrementAndGet();
+
+            final StringBuilder sb = new StringBuilder(baseUrl).append(uri.getHost()).append(path);
+            if (uri.getRawQuery() != null) {
+                sb.append('?').append(uri.getRawQuery());
+            }
+            return URI.create(sb.toString());
+        }
+
+        @Override
+        public Map<String, String> getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public String getHeaderField(final URI uri, final String header) throws IOException {
+            return delegate.getHeaderField(redirect("HEAD", uri), header);
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri) throws IOException {
+            return delegate.getGetResponseText(redirect("GET", uri));
+        }
+
+        @Override
+        public String getGetResponseText(final URI uri, final int timeout) throws IOException {
+            return delegate.getGetResponseText(redirect("GET", uri), timeout);
+        }
+
+        @Override
+        public InputStream getGetResponseStream(final URI uri) throws IOException {
+            return delegate.getGetResponseStream(redirect("GET", uri));
+        }
+
+        @Override
+        public String getPostResponseText(final URI uri, final StringContent content) throws IOException {
+            return delegate.getPostResponseText(redirect("POST", uri), content);
+        }
+
+        @Override
+        public HttpResponse getPostResponse(final URI uri, final StringContent content) throws IOException {
+            return delegate.getPostResponse(redirect("POST", uri), content);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link JsonFieldExtractor} with the regular expressions it replaced,
+ * on a connectionData-style response of increasing size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonFieldExtractorBenchmark {
+
+    private static final Pattern INSTANCE_ID_PATTERN = Pattern.compile(
+            "\"instanceId\"\\s*:\\s*\"([^\"]+)\"",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private static final JsonFieldExtractor INSTANCE_ID_EXTRACTOR = new JsonFieldExtractor("instanceId");
+
+    /**
+     * How many properties precede the one we are looking for.
+     */
+    @Param({"0", "10", "100"})
+    public int precedingProperties;
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < precedingProperties; i++) {
+            sb.append("\"property").append(i).append("\" : { \"id\" : \"").append(i)
+                    .append("\", \"displayName\" : \"Property \\\"").append(i).append("\\\"\", \"values\" : [1, 2, 3] },");
+        }
+        sb.append("\"instanceId\" : \"2dd3ecd7-5dd1-4fa3-8b0a-4f1c35a8b8f0\", \"deploymentType\" : \"hosted\" }");
+        json = sb.toString();
+    }
+
+    @Benchmark
+    public String regex() {
+        final Matcher matcher = INSTANCE_ID_PATTERN.matcher(json);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    @Benchmark
+    public String extractor() {
+        return INSTANCE_ID_EXTRACTOR.extract(json)[0];
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link SimpleJson#parse(String)} on the responses it sees: device flow responses, errors
+ * while polling, and token responses carrying kilobytes of tokens.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SimpleJsonBenchmark {
+
+    private static final String DEVICE_FLOW_RESPONSE = "{\"user_code\":\"DQ2TMFBAX\","
+            + "\"device_code\":\"DAQABAAEAAADRNYRQ3dhRSrm-4K-adpCJ5tVhkD_7wDv1n4aBqMtm2TbXs8dVk3Qqw\","
+            + "\"verification_url\":\"https://aka.ms/devicelogin\",\"expires_in\":\"900\",\"interval\":\"5\","
+            + "\"message\":\"To sign in, use a web browser to open the page https://aka.ms/devicelogin "
+            + "and enter the code DQ2TMFBAX to authenticate.\"}";
+
+    private static final String ERROR_RESPONSE = "{\"error\":\"authorization_pending\","
+            + "\"error_description\":\"AADSTS70016: Pending end-user authorization.\\r\\n"
+            + "Trace ID: 4ae4ad28-3dc6-4cd6-a0b3-4a1e4f0d1b00\\r\\nCorrelation ID: 2dd3ecd7-5dd1-4fa3\","
+            + "\"error_codes\":[70016],\"timestamp\":\"2016-10-12 15:23:22Z\","
+            + "\"trace_id\":\"4ae4ad28-3dc6-4cd6-a0b3-4a1e4f0d1b00\"}";
+
+    private String tokenResponse;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder accessToken = new StringBuilder("eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.");
+        final StringBuilder refreshToken = new StringBuilder("AQABAAAAAADRNYRQ3dhRSrm-4K-adpCJ");
+        for (int i = 0; i < 24; i++) {
+            accessToken.append("eyJhdWQiOiI0OTliODRhYy0xMzIxLTQyN2Yt");
+            refreshToken.append("zR5tVhkD_7wDv1n4aBqMtm2TbXs8dVk3QqwD");
+        }
+        tokenResponse = "{\"token_type\":\"Bearer\",\"scope\":\"user_impersonation\",\"expires_in\":\"3599\","
+                + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\","
+                + "\"access_token\":\"" + accessToken + "\","
+                + "\"refresh_token\":\"" + refreshToken + "\"}";
+    }
+
+    @Benchmark
+    public Map<String, Object> deviceFlowResponse() {
+        return SimpleJson.parse(DEVICE_FLOW_RESPONSE);
+    }
+
+    @Benchmark
+    public Map<String, Object> errorResponse() {
+        return SimpleJson.parse(ERROR_RESPONSE);
+    }
+
+    @Benchmark
+    public Map<String, Object> tokenResponse() {
+        return SimpleJson.parse(tokenResponse);
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the ways {@link Token}s and {@link TokenPair}s are written to and read back from the stores:
+ * XML elements (file store), XML strings (native TokenPair stores before {@link SecretCodec}), {@link SecretCodec}
+ * strings (native TokenPair stores) and bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecretSerializationBenchmark {
+
+    private DocumentBuilder documentBuilder;
+
+    private Token token;
+    private Element tokenElement;
+    private byte[] tokenBytes;
+
+    private TokenPair tokenPair;
+    private String tokenPairXml;
+    private String tokenPairEncoded;
+
+    @Setup
+    public void setUp() throws ParserConfigurationException {
+        documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+
+        token = new Token("52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra", TokenType.Personal);
+        token.setTargetIdentity(UUID.fromString("2dd3ecd7-5dd1-4fa3-8b0a-4f1c35a8b8f0"));
+        tokenElement = token.toXml(documentBuilder.newDocument());
+        final AtomicReference<byte[]> bytesReference = new AtomicReference<byte[]>();
+        Token.serialize(token, bytesReference);
+        tokenBytes = bytesReference.get();
+
+        // AAD access tokens are JWTs of 1-2 KB; refresh tokens are of a similar size
+        final StringBuilder accessToken = new StringBuilder("eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.");
+        final StringBuilder refreshToken = new StringBuilder("AQABAAAAAADRNYRQ3dhRSrm-4K-adpCJ");
+        for (int i = 0; i < 24; i++) {
+            accessToken.append("eyJhdWQiOiI0OTliODRhYy0xMzIxLTQyN2Yt");
+            refreshToken.append("zR5tVhkD_7wDv1n4aBqMtm2TbXs8dVk3QqwD");
+        }
+        tokenPair = new TokenPair(accessToken.toString(), refreshToken.toString());
+        tokenPairXml = TokenPair.toXmlString(tokenPair);
+        tokenPairEncoded = SecretCodec.encode(tokenPair);
+    }
+
+    @Benchmark
+    public Element tokenToXml() {
+        final Document document = documentBuilder.newDocument();
+        return token.toXml(document);
+    }
+
+    @Benchmark
+    public Token tokenFromXml() {
+        return Token.fromXml(tokenElement);
+    }
+
+    @Benchmark
+    public byte[] tokenToBytes() {
+        final AtomicReference<byte[]> bytesReference = new AtomicReference<byte[]>();
+        Token.serialize(token, bytesReference);
+        return bytesReference.get();
+    }
+
+    @Benchmark
+    public Token tokenFromBytes() {
+        final AtomicReference<Token> tokenReference = new AtomicReference<Token>();
+        Token.deserialize(tokenBytes, TokenType.Personal, tokenReference);
+        return tokenReference.get();
+    }
+
+    @Benchmark
+    public String tokenPairToXmlString() {
+        return TokenPair.toXmlString(tokenPair);
+    }
+
+    @Benchmark
+    public TokenPair tokenPairFromXmlString() {
+        return TokenPair.fromXmlString(tokenPairXml);
+    }
+
+    @Benchmark
+    public String tokenPairEncode() {
+        return SecretCodec.encode(tokenPair);
+    }
+
+    @Benchmark
+    public TokenPair tokenPairDecode() {
+        return SecretCodec.decodeTokenPair(tokenPairEncoded);
+    }
+}
@@ -0,0 +1,63 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.PropertyBag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares turning a token endpoint response into a {@link TokenPair} through
+ * {@link PropertyBag} with the direct {@link TokenResponseParser}.
+ *
+ * Run with {@code -prof gc} to compare allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenResponseParserBenchmark {
+
+    private String json;
+
+    @Setup
+    public void setUp() {
+        // AAD access tokens are JWTs of 1-2 KB; refresh tokens are of a similar size
+        final StringBuilder accessToken = new StringBuilder("eyJ0eXAiOiJKV1QiLCJhbGciOiJSUzI1NiJ9.");
+        final StringBuilder refreshToken = new StringBuilder("AQABAAAAAADRNYRQ3dhRSrm-4K-adpCJ");
+        for (int i = 0; i < 24; i++) {
+            accessToken.append("eyJhdWQiOiI0OTliODRhYy0xMzIxLTQyN2Yt");
+            refreshToken.append("zR5tVhkD_7wDv1n4aBqMtm2TbXs8dVk3QqwD");
+        }
+        accessToken.append(".c2lnbmF0dXJl");
+
+        json = "{\"token_type\":\"Bearer\",\"scope\":\"user_impersonation\",\"expires_in\":\"3599\","
+                + "\"ext_expires_in\":\"0\",\"expires_on\":\"1476287437\",\"not_before\":\"1476283537\","
+                + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\","
+                + "\"access_token\":\"" + accessToken + "\","
+                + "\"refresh_token\":\"" + refreshToken + "\"}";
+    }
+
+    @Benchmark
+    public TokenPair propertyBag() {
+        return new TokenPair(PropertyBag.fromJson(json));
+    }
+
+    @Benchmark
+    public TokenPair tokenResponseParser() {
+        return new TokenPair(json);
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.UriHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of a URI to the key its secret is stored under, as done by
+ * {@code BaseAuthenticator.getKey} on every secret lookup: the formatting it used to do,
+ * {@link Secret#uriToName(URI, String)} and the memoized {@link Secret#DefaultUriNameConversion}.
+ *
+ * The {@code *ManyAccounts} cases cycle through more accounts than the memoized conversion remembers, so every
+ * lookup misses and evicts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UriNameConversionBenchmark {
+
+    private static final String NAMESPACE = "git";
+
+    private final URI uri = URI.create("https://account.visualstudio.com/DefaultCollection/_git/repo");
+    private final URI azureUri = URI.create("https://dev.azure.com/account/project/_git/repo");
+    private final URI[] manyUris = new URI[Secret.MemoizingUriNameConversion.DEFAULT_MAX_ENTRIES * 4];
+    private int next;
+
+    public UriNameConversionBenchmark() {
+        for (int i = 0; i < manyUris.length; i++) {
+            manyUris[i] = URI.create("https://account" + i + ".visualstudio.com/DefaultCollection/_git/repo");
+        }
+    }
+
+    private URI nextOfMany() {
+        final URI result = manyUris[next];
+        next = (next + 1) % manyUris.length;
+        return result;
+    }
+
+    @Benchmark
+    public String formatted() {
+        // what uriToName used to do
+        final String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(uri), '/', '\\'));
+        return String.format("%1$s:%2$s://%3$s", NAMESPACE, uri.getScheme(), trimmedHostUrl);
+    }
+
+    @Benchmark
+    public String uriToName() {
+        return Secret.uriToName(uri, NAMESPACE);
+    }
+
+    @Benchmark
+    public String uriToNameAzure() {
+        return Secret.uriToName(azureUri, NAMESPACE);
+    }
+
+    @Benchmark
+    public String memoized() {
+        return Secret.DefaultUriNameConversion.convert(uri, NAMESPACE);
+    }
+
+    @Benchmark
+    public String memoizedAzure() {
+        return Secret.DefaultUriNameConversion.convert(azureUri, NAMESPACE);
+    }
+
+    @Benchmark
+    public String uriToNameManyAccounts() {
+        return Secret.uriToName(nextOfMany(), NAMESPACE);
+    }
+
+    @Benchmark
+    public String memoizedManyAccounts() {
+        return Secret.DefaultUriNameConversion.convert(nextOfMany(), NAMESPACE);
+    }
+}
@@ -0,0 +1,83 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link SecretStore}s for benchmarks that can't use the real thing.
+ */
+public final class BenchmarkStores {
+
+    private BenchmarkStores() {
+    }
+
+    /**
+     * Same as {@link InsecureFileBackedTokenStore}, but backed by the specified file rather than the user's.
+     */
+    public static SecretStore<Token> fileBackedTokenStore(final File backingFile) {
+        final InsecureFileBackend fileBackend = new InsecureFileBackend(backingFile);
+        return new SecretStore<Token>() {
+            @Override
+            public Token get(final String key) {
+                return fileBackend.readToken(key);
+            }
+
+            @Override
+            public boolean delete(final String key) {
+                return fileBackend.delete(key);
+            }
+
+            @Override
+            public boolean add(final String key, final Token secret) {
+                fileBackend.writeToken(key, secret);
+                return true;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Stands in for the native token stores: tokens are kept as the UTF-8 bytes of their value, behind one lock, and
+     * a new {@link Token} is created on every read, as the Credential Manager and GNOME Keyring stores do.
+     * The native call itself is left out.
+     */
+    public static SecretStore<Token> nativeLikeTokenStore() {
+        final Map<String, byte[]> blobs = new HashMap<String, byte[]>();
+        return new SecretStore<Token>() {
+            @Override
+            public synchronized Token get(final String key) {
+                final byte[] blob = blobs.get(key);
+                return blob == null ? null : new Token(StringHelper.UTF8GetString(blob), TokenType.Personal);
+            }
+
+            @Override
+            public synchronized boolean delete(final String key) {
+                blobs.remove(key);
+                return true;
+            }
+
+            @Override
+            public synchronized boolean add(final String key, final Token secret) {
+                blobs.put(key, StringHelper.UTF8GetBytes(secret.Value));
+                return true;
+            }
+
+            @Override
+            public boolean isSecure() {
+                return true;
+            }
+        };
+    }
+}
@@ -0,0 +1,81 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link InsecureFileBackend} writing and reading its whole file, which it does on every change
+ * and at startup respectively, as the number of stored secrets grows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InsecureFileBackendBenchmark {
+
+    /**
+     * How many secrets are stored, half of them tokens and half credentials.
+     */
+    @Param({"10", "1000", "10000"})
+    public int entries;
+
+    private File backingFile;
+    private InsecureFileBackend fileBackend;
+
+    @Setup
+    public void setUp() throws IOException {
+        backingFile = File.createTempFile("insecureStore", ".xml");
+        fileBackend = new InsecureFileBackend(backingFile);
+        for (int i = 0; i < entries; i++) {
+            final String key = "git:https://account" + i + ".visualstudio.com";
+            if (i % 2 == 0) {
+                fileBackend.Tokens.put(key,
+                        new Token("pat" + i + "-52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra", TokenType.Personal));
+            } else {
+                fileBackend.Credentials.put(key, new Credential("user" + i, "password" + i));
+            }
+        }
+        fileBackend.save();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!backingFile.delete()) {
+            backingFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public InsecureFileBackend save() {
+        fileBackend.save();
+        return fileBackend;
+    }
+
+    @Benchmark
+    public InsecureFileBackend reload() {
+        fileBackend.reload();
+        return fileBackend;
+    }
+}
@@ -4,6 +4,7 @@
 package com.microsoft.alm.helpers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.Map;
@@ -40,6 +41,18 @@ public interface HttpClient {
     String getGetResponseText(URI uri) throws IOException;
     String getGetResponseText(URI uri, int Timeout) throws IOException;
 
+    /**
+     * Open the response body of a GET HTTP call to the targetUri as a stream, so large responses can be
+     * processed incrementally instead of being buffered into a {@link String} first.
+     *
+     * The caller owns the returned stream and must close it, even if it stops reading before the end.
+     *
+     * @param uri
+     * @return the response body
+     * @throws IOException if response status code is not 2xx, the error message is the error from server.
+     */
+    InputStream getGetResponseStream(URI uri) throws IOException;
+
     /**
      * Read the response from a POST HTTP call to the target uri
      * @param uri
@@ -13,8 +13,10 @@ import java.net.MalformedURLException;
 import java.net.ProtocolException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.charset.Charset;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 
 public class HttpClientImpl implements HttpClient {
 
@@ -22,45 +24,86 @@ public class HttpClientImpl implements HttpClient {
 
     public final Map<String, String> Headers = new LinkedHashMap<String, String>();
 
+    /**
+     * The most bytes of a response body that are read, unless changed with {@link #setMaxResponseLength(int)}.
+     */
+    public static final int DEFAULT_MAX_RESPONSE_LENGTH = 16 * 1024 * 1024;
+
+    // error bodies only end up in exception messages and logs
+    private static final int MAX_ERROR_LENGTH = 8 * 1024;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private int maxResponseLength = DEFAULT_MAX_RESPONSE_LENGTH;
+
     public HttpClientImpl(final String userAgent) {
         Headers.put("User-Agent", userAgent);
     }
 
+    /**
+     * Limits the size of the response bodies read as text; longer ones fail with an {@link IOException}.
+     *
+     * @param maxResponseLength the most bytes of a response body to read
+     */
+    public void setMaxResponseLength(final int maxResponseLength) {
+        Debug.Assert(maxResponseLength >= 0, "maxResponseLength cannot be negative");
+        this.maxResponseLength = maxResponseLength;
+    }
+
     private void ensureOK(final HttpURLConnection connection) throws IOException {
         final int statusCode = connection.getResponseCode();
         if (statusCode != HttpURLConnection.HTTP_OK) {
-            InputStream errorStream = null;
-            try {
-                errorStream = connection.getErrorStream();
-                String content = "";
-                if (errorStream != null) {
-                    content = IOHelper.readToString(errorStream);
-                }
-                final String template = "HTTP request failed with code %1$d: %2$s";
-                final String message = String.format(template, statusCode, content);
-                throw new IOException(message);
-            } finally {
-                IOHelper.closeQuietly(errorStream);
+            String content = readErrorToString(connection);
+            if (content == null) {
+                content = "";
             }
+            final String template = "HTTP request failed with code %1$d: %2$s";
+            final String message = String.format(template, statusCode, content);
+            throw new IOException(message);
         }
     }
 
-    private static String readToString(final HttpURLConnection connection) throws IOException {
-        return readToString(connection.getInputStream());
+    private String readToString(final HttpURLConnection connection) throws IOException {
+        return readToString(connection, connection.getInputStream(), maxResponseLength, false);
     }
 
     private static String readErrorToString(final HttpURLConnection connection) throws IOException {
-        return readToString(connection.getErrorStream());
+        final InputStream errorStream = connection.getErrorStream();
+        if (errorStream == null) {
+            return null;
+        }
+        return readToString(connection, errorStream, MAX_ERROR_LENGTH, true);
     }
 
-    private static String readToString(final InputStream responseStream) throws IOException {
-        final String responseContent;
+    private static String readToString(final HttpURLConnection connection, final InputStream responseStream,
+                                       final int maxLength, final boolean truncate) throws IOException {
         try {
-            responseContent = IOHelper.readToString(responseStream);
+            return IOHelper.readToString(responseStream, getCharset(connection.getContentType()),
+                    connection.getContentLength(), maxLength, truncate);
         } finally {
             IOHelper.closeQuietly(responseStream);
         }
-        return responseContent;
+    }
+
+    /**
+     * @param contentType the {@code Content-Type} of a response, such as {@code application/json; charset=utf-8}
+     * @return its charset; UTF-8, the encoding of JSON, if it has none or it isn't supported
+     */
+    static Charset getCharset(final String contentType) {
+        if (contentType != null) {
+            for (final String parameter : contentType.split(";")) {
+                final String trimmed = parameter.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0, "charset=".length())) {
+                    final String name = trimmed.substring("charset=".length()).replace("\"", "").trim();
+                    try {
+                        return Charset.forName(name);
+                    } catch (final IllegalArgumentException e) {
+                        logger.debug("Unsupported charset {}, assuming UTF-8.", name);
+                    }
+                }
+            }
+        }
+        return UTF8;
     }
 
     HttpURLConnection createConnection(final URI uri, final String method, final Action<HttpURLConnection> interceptor) {
@@ -90,6 +133,11 @@ public class HttpClientImpl implements HttpClient {
             connection.setRequestProperty(key, value);
         }
 
+        final UUID correlationId = TracingHelper.getCorrelationId();
+        if (correlationId != null && !Headers.containsKey(TracingHelper.CORRELATION_ID_HEADER)) {
+            connection.setRequestProperty(TracingHelper.CORRELATION_ID_HEADER, correlationId.toString());
+        }
+
         if (interceptor != null) {
             interceptor.call(connection);
         }
@@ -124,9 +172,17 @@ public class HttpClientImpl implements HttpClient {
     }
 
     private String getHeaderField(URI uri, String header, Action<HttpURLConnection> interceptor) throws IOException {
-        final HttpURLConnection connection = this.head(uri, interceptor);
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpURLConnection connection = this.head(uri, interceptor);
 
-        return connection.getHeaderField(header);
+            final String result = connection.getHeaderField(header);
+            succeeded = true;
+            return result;
+        } finally {
+            recordRequest("HEAD", uri, start, succeeded);
+        }
     }
 
     private HttpURLConnection get(final URI uri) throws IOException {
@@ -142,23 +198,56 @@ public class HttpClientImpl implements HttpClient {
 
     @Override
     public String getGetResponseText(URI uri) throws IOException {
-        final HttpURLConnection response = this.get(uri);
-        this.ensureOK(response);
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpURLConnection response = this.get(uri);
+            this.ensureOK(response);
 
-        return readToString(response);
+            final String result = readToString(response);
+            succeeded = true;
+            return result;
+        } finally {
+            recordRequest("GET", uri, start, succeeded);
+        }
     }
 
     @Override
     public String getGetResponseText(URI uri, final int timeout) throws IOException {
-        final HttpURLConnection response = this.get(uri, new Action<HttpURLConnection>() {
-            @Override
-            public void call(HttpURLConnection httpURLConnection) {
-                httpURLConnection.setConnectTimeout(timeout);
-            }
-        });
-        this.ensureOK(response);
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpURLConnection response = this.get(uri, new Action<HttpURLConnection>() {
+                @Override
+                public void call(HttpURLConnection httpURLConnection) {
+                    httpURLConnection.setConnectTimeout(timeout);
+                }
+            });
+            this.ensureOK(response);
+
+            final String result = readToString(response);
+            succeeded = true;
+            return result;
+        } finally {
+            recordRequest("GET", uri, start, succeeded);
+        }
+    }
+
+    @Override
+    public InputStream getGetResponseStream(final URI uri) throws IOException {
+        // only until the response starts: the caller reads the body
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpURLConnection response = this.get(uri);
+            this.ensureOK(response);
 
-        return readToString(response);
+            final InputStream result = response.getInputStream();
+            succeeded = true;
+            return result;
+        } finally {
+            recordRequest("GET", uri, start, succeeded);
+        }
     }
 
     private HttpURLConnection post(final URI uri, final StringContent content) throws IOException {
@@ -182,25 +271,50 @@ public class HttpClientImpl implements HttpClient {
 
     @Override
     public String getPostResponseText(URI uri, StringContent content) throws IOException {
-        final HttpURLConnection response = this.post(uri, content);
-        this.ensureOK(response);
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpURLConnection response = this.post(uri, content);
+            this.ensureOK(response);
 
-        return readToString(response);
+            final String result = readToString(response);
+            succeeded = true;
+            return result;
+        } finally {
+            recordRequest("POST", uri, start, succeeded);
+        }
     }
 
     @Override
     public HttpResponse getPostResponse(URI uri, StringContent content) throws IOException {
-        final HttpResponse response = new HttpResponse();
-        final HttpURLConnection conn = this.post(uri, content);
+        final long start = MetricsHelper.start();
+        boolean succeeded = false;
+        try {
+            final HttpResponse response = new HttpResponse();
+            final HttpURLConnection conn = this.post(uri, content);
+
+            response.status = conn.getResponseCode();
+            if (isSuccessful(response.status)) {
+                response.responseText = readToString(conn);
+                succeeded = true;
+            } else {
+                response.errorText = readErrorToString(conn);
+            }
 
-        response.status = conn.getResponseCode();
-        if (isSuccessful(response.status)) {
-            response.responseText = readToString(conn);
-        } else {
-            response.errorText = readErrorToString(conn);
+            return response;
+        } finally {
+            recordRequest("POST", uri, start, succeeded);
         }
+    }
 
-        return response;
+    private static void recordRequest(final String method, final URI uri, final long start, final boolean succeeded) {
+        if (start != MetricsHelper.NOT_STARTED) {
+            final String endpoint = MetricsHelper.endpointTag(method, uri);
+            MetricsHelper.stop(MetricsHelper.HTTP_REQUEST, endpoint, start);
+            if (!succeeded) {
+                MetricsHelper.increment(MetricsHelper.HTTP_ERROR, endpoint);
+            }
+        }
     }
 
     private boolean isSuccessful(final int statusCode) {
@@ -11,6 +11,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 public class IOHelper {
 
@@ -55,6 +57,52 @@ public class IOHelper {
         }
     }
 
+    /**
+     * Reads a whole stream as text, such as the body of an HTTP response, decoding its bytes once.
+     *
+     * Unlike {@link #readToString(InputStream)}, line breaks are kept as they are and the charset is the one
+     * given rather than the platform's.
+     *
+     * @param stream         the stream to read, which is left open
+     * @param charset        how the text is encoded
+     * @param expectedLength how many bytes the stream is announced to hold, such as the {@code Content-Length} of
+     *                       a response, or {@code -1} if it isn't known; the buffer starts at this size
+     * @param maxLength      the most bytes that will be read
+     * @param truncate       {@code true} to return the first {@code maxLength} bytes of a longer stream;
+     *                       {@code false} to fail instead
+     * @return the text
+     * @throws IOException if the stream can't be read, or holds more than {@code maxLength} bytes and
+     *                     {@code truncate} is {@code false}
+     */
+    public static String readToString(final InputStream stream, final Charset charset, final int expectedLength,
+                                      final int maxLength, final boolean truncate) throws IOException {
+        Debug.Assert(stream != null, "stream cannot be null");
+        Debug.Assert(charset != null, "charset cannot be null");
+        Debug.Assert(maxLength >= 0, "maxLength cannot be negative");
+
+        byte[] buffer = new byte[Math.min(expectedLength >= 0 ? expectedLength : BUFFER_SIZE, maxLength)];
+        int length = 0;
+        while (true) {
+            if (length == buffer.length) {
+                if (length == maxLength) {
+                    if (truncate || stream.read() == -1) {
+                        break;
+                    }
+                    throw new IOException("The stream holds more than " + maxLength + " bytes.");
+                }
+                // the announced length was wrong, or there wasn't one
+                final long newLength = Math.max(2L * buffer.length, BUFFER_SIZE);
+                buffer = Arrays.copyOf(buffer, (int) Math.min(newLength, maxLength));
+            }
+            final int bytesRead = stream.read(buffer, length, buffer.length - length);
+            if (bytesRead == -1) {
+                break;
+            }
+            length += bytesRead;
+        }
+        return new String(buffer, 0, length, charset);
+    }
+
     public static void copyStream(final InputStream is, final OutputStream os) throws IOException {
         final byte[] buffer = new byte[BUFFER_SIZE];
         int bytesRead;
@@ -0,0 +1,234 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps counters and latency {@link Histogram}s in memory, per name and tag, for inspection or for publishing
+ * with {@link JmxMetrics}.
+ */
+public class InMemoryMetrics implements Metrics {
+
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> counters
+            = new ConcurrentHashMap<String, ConcurrentMap<String, AtomicLong>>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Histogram>> histograms
+            = new ConcurrentHashMap<String, ConcurrentMap<String, Histogram>>();
+
+    @Override
+    public void increment(final String name, final String tag) {
+        final ConcurrentMap<String, AtomicLong> countersByTag = getOrAdd(counters, name);
+        AtomicLong counter = countersByTag.get(tag);
+        if (counter == null) {
+            final AtomicLong newCounter = new AtomicLong();
+            counter = countersByTag.putIfAbsent(tag, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    @Override
+    public void recordTime(final String name, final String tag, final long nanos) {
+        final ConcurrentMap<String, Histogram> histogramsByTag = getOrAdd(histograms, name);
+        Histogram histogram = histogramsByTag.get(tag);
+        if (histogram == null) {
+            final Histogram newHistogram = new Histogram();
+            histogram = histogramsByTag.putIfAbsent(tag, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(nanos);
+    }
+
+    private static <V> ConcurrentMap<String, V> getOrAdd(final ConcurrentMap<String, ConcurrentMap<String, V>> map,
+                                                         final String name) {
+        ConcurrentMap<String, V> result = map.get(name);
+        if (result == null) {
+            final ConcurrentMap<String, V> newMap = new ConcurrentHashMap<String, V>();
+            result = map.putIfAbsent(name, newMap);
+            if (result == null) {
+                result = newMap;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return how many times the event happened to the tag, {@code 0} if it never did
+     */
+    public long getCount(final String name, final String tag) {
+        final Map<String, AtomicLong> countersByTag = counters.get(name);
+        final AtomicLong counter = countersByTag == null ? null : countersByTag.get(tag);
+        return counter == null ? 0L : counter.get();
+    }
+
+    /**
+     * @return the recorded times of the operation on the tag, {@code null} if none were recorded
+     */
+    public Histogram getHistogram(final String name, final String tag) {
+        final Map<String, Histogram> histogramsByTag = histograms.get(name);
+        return histogramsByTag == null ? null : histogramsByTag.get(tag);
+    }
+
+    /**
+     * How often {@code BaseAuthenticator.SecretRetriever} found a valid secret in the store, among the lookups
+     * that read the store.
+     *
+     * @param tag the namespace of the keys
+     * @return the ratio of hits to lookups, {@link Double#NaN} if there weren't any lookups
+     */
+    public double getHitRatio(final String tag) {
+        final long hits = getCount(MetricsHelper.RETRIEVER_HIT, tag);
+        final long lookups = hits
+                + getCount(MetricsHelper.RETRIEVER_MISS, tag)
+                + getCount(MetricsHelper.RETRIEVER_INVALID, tag);
+        return lookups == 0 ? Double.NaN : (double) hits / lookups;
+    }
+
+    /**
+     * @return the names of the counted events, sorted
+     */
+    public Set<String> getCounterNames() {
+        return Collections.unmodifiableSet(new TreeSet<String>(counters.keySet()));
+    }
+
+    /**
+     * @return the counts of the event, per tag, sorted by tag
+     */
+    public Map<String, Long> getCounts(final String name) {
+        final Map<String, Long> result = new TreeMap<String, Long>();
+        final Map<String, AtomicLong> countersByTag = counters.get(name);
+        if (countersByTag != null) {
+            for (final Map.Entry<String, AtomicLong> entry : countersByTag.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the names of the timed operations, sorted
+     */
+    public Set<String> getHistogramNames() {
+        return Collections.unmodifiableSet(new TreeSet<String>(histograms.keySet()));
+    }
+
+    /**
+     * @return the histograms of the operation, per tag, sorted by tag
+     */
+    public Map<String, Histogram> getHistograms(final String name) {
+        final Map<String, Histogram> result = new TreeMap<String, Histogram>();
+        final Map<String, Histogram> histogramsByTag = histograms.get(name);
+        if (histogramsByTag != null) {
+            result.putAll(histogramsByTag);
+        }
+        return result;
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void clear() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    /**
+     * Distribution of the times of an operation, with a relative error of at most 1/8th: each power of two
+     * is split into 8 buckets.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        // values below SUB_BUCKETS get a bucket each, then SUB_BUCKETS per power of two up to 2^62
+        private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /*default*/ static int bucketOf(final long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return nanos < 0 ? 0 : (int) nanos;
+            }
+            final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+            final int shift = exponent - SUB_BUCKET_BITS;
+            final int subBucket = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+        }
+
+        /*default*/ static long highestValueOf(final int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+            final long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            final long lowest = (SUB_BUCKETS + subBucket) << shift;
+            return lowest + (1L << shift) - 1;
+        }
+
+        void record(final long nanos) {
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public double getMeanNanos() {
+            final long n = count.get();
+            return n == 0 ? Double.NaN : (double) totalNanos.get() / n;
+        }
+
+        /**
+         * @param quantile between 0 and 1, such as {@code 0.99}
+         * @return a time that at least this fraction of the recorded times didn't exceed, {@code 0} if
+         *         nothing was recorded
+         */
+        public long getPercentileNanos(final double quantile) {
+            Debug.Assert(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1");
+
+            final long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(quantile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+    }
+}
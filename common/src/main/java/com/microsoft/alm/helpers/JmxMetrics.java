@@ -0,0 +1,157 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Publishes {@link InMemoryMetrics} as a read-only MBean, so that JConsole, VisualVM, the JMX readers of
+ * metrics libraries and monitoring agents can collect them.
+ *
+ * Every counter becomes a {@code long} attribute named {@code name[tag]}.  Every histogram becomes
+ * {@code name[tag].count}, {@code .meanMillis}, {@code .p50Millis}, {@code .p99Millis} and {@code .maxMillis},
+ * and every namespace looked up by {@code SecretRetriever} gets a {@code retriever.hitRatio[tag]}.
+ */
+public class JmxMetrics implements DynamicMBean {
+
+    public static final String DEFAULT_OBJECT_NAME = "com.microsoft.alm:type=Metrics";
+
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private final InMemoryMetrics metrics;
+
+    public JmxMetrics(final InMemoryMetrics metrics) {
+        Debug.Assert(metrics != null, "metrics cannot be null");
+        this.metrics = metrics;
+    }
+
+    /**
+     * Records into a new {@link InMemoryMetrics}, installed with {@link MetricsHelper#setMetrics(Metrics)},
+     * and publishes it with the platform MBean server under {@link #DEFAULT_OBJECT_NAME}.
+     *
+     * @return the published metrics
+     * @throws JMException if the MBean could not be registered, for example because it already was
+     */
+    public static InMemoryMetrics install() throws JMException {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        new JmxMetrics(metrics).register(ManagementFactory.getPlatformMBeanServer(), getDefaultObjectName());
+        MetricsHelper.setMetrics(metrics);
+        return metrics;
+    }
+
+    /**
+     * Stops recording and removes the MBean published by {@link #install()}.
+     */
+    public static void uninstall() throws JMException {
+        MetricsHelper.setMetrics(null);
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName objectName = getDefaultObjectName();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    private static ObjectName getDefaultObjectName() throws MalformedObjectNameException {
+        return new ObjectName(DEFAULT_OBJECT_NAME);
+    }
+
+    public void register(final MBeanServer server, final ObjectName objectName) throws JMException {
+        server.registerMBean(this, objectName);
+    }
+
+    /*default*/ Map<String, Object> snapshot() {
+        final Map<String, Object> result = new LinkedHashMap<String, Object>();
+        for (final String name : metrics.getCounterNames()) {
+            for (final Map.Entry<String, Long> entry : metrics.getCounts(name).entrySet()) {
+                result.put(attributeName(name, entry.getKey()), entry.getValue());
+            }
+        }
+        final Set<String> namespaces = new TreeSet<String>();
+        namespaces.addAll(metrics.getCounts(MetricsHelper.RETRIEVER_HIT).keySet());
+        namespaces.addAll(metrics.getCounts(MetricsHelper.RETRIEVER_MISS).keySet());
+        namespaces.addAll(metrics.getCounts(MetricsHelper.RETRIEVER_INVALID).keySet());
+        for (final String tag : namespaces) {
+            result.put(attributeName("retriever.hitRatio", tag), metrics.getHitRatio(tag));
+        }
+        for (final String name : metrics.getHistogramNames()) {
+            for (final Map.Entry<String, InMemoryMetrics.Histogram> entry : metrics.getHistograms(name).entrySet()) {
+                final String prefix = attributeName(name, entry.getKey());
+                final InMemoryMetrics.Histogram histogram = entry.getValue();
+                result.put(prefix + ".count", histogram.getCount());
+                result.put(prefix + ".meanMillis", histogram.getMeanNanos() / NANOS_PER_MILLI);
+                result.put(prefix + ".p50Millis", histogram.getPercentileNanos(0.5) / NANOS_PER_MILLI);
+                result.put(prefix + ".p99Millis", histogram.getPercentileNanos(0.99) / NANOS_PER_MILLI);
+                result.put(prefix + ".maxMillis", histogram.getMaxNanos() / NANOS_PER_MILLI);
+            }
+        }
+        return result;
+    }
+
+    private static String attributeName(final String name, final String tag) {
+        return name + "[" + tag + "]";
+    }
+
+    @Override
+    public Object getAttribute(final String attribute) throws AttributeNotFoundException {
+        final Object result = snapshot().get(attribute);
+        if (result == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return result;
+    }
+
+    @Override
+    public AttributeList getAttributes(final String[] attributes) {
+        final Map<String, Object> snapshot = snapshot();
+        final AttributeList result = new AttributeList();
+        for (final String attribute : attributes) {
+            final Object value = snapshot.get(attribute);
+            if (value != null) {
+                result.add(new Attribute(attribute, value));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void setAttribute(final Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(final AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(final String actionName, final Object[] params, final String[] signature) {
+        throw new UnsupportedOperationException(actionName);
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        final Map<String, Object> snapshot = snapshot();
+        final MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[snapshot.size()];
+        int i = 0;
+        for (final Map.Entry<String, Object> entry : snapshot.entrySet()) {
+            attributes[i++] = new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                    entry.getKey(), true, false, false);
+        }
+        return new MBeanInfo(getClass().getName(), "Authentication library metrics", attributes, null, null, null);
+    }
+}
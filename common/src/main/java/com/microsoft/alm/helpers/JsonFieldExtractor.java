@@ -0,0 +1,426 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pulls a fixed set of fields out of a JSON document in a single pass, without building any maps.
+ *
+ * Fields are identified by dotted paths, such as {@code "instanceId"} or {@code "locationMappings.location"}.
+ * Keys are matched ignoring case.  Arrays are transparent: {@code "locationMappings.location"} matches the
+ * {@code location} of the objects inside a {@code locationMappings} array.  The first occurrence of each field
+ * wins, and scanning stops as soon as every requested field has been found.
+ *
+ * Only scalar values are extracted.  Strings are unescaped, numbers and literals are returned as they appear in
+ * the input, and {@code null} is returned for fields that are missing or hold an object.
+ *
+ * Instances are immutable and can be shared across threads.
+ */
+public class JsonFieldExtractor {
+
+    enum State {
+        VALUE,
+        ARRAY_START,
+        OBJECT_START,
+        KEY_START,
+        KEY,
+        KEY_ESCAPE,
+        POST_KEY,
+        STRING_VALUE,
+        STRING_VALUE_ESCAPE,
+        STRING_VALUE_UNICODE,
+        SCALAR_VALUE,
+        POST_VALUE,
+        END,
+        ;
+    }
+
+    static final class Node {
+        final String name;
+        Node[] children = new Node[0];
+        int index = -1;
+
+        Node(final String name) {
+            this.name = name;
+        }
+
+        Node findChild(final CharSequence key) {
+            for (final Node child : children) {
+                if (matches(child.name, key)) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        Node getOrAddChild(final String childName) {
+            for (final Node child : children) {
+                if (child.name.equalsIgnoreCase(childName)) {
+                    return child;
+                }
+            }
+            final Node child = new Node(childName);
+            children = Arrays.copyOf(children, children.length + 1);
+            children[children.length - 1] = child;
+            return child;
+        }
+
+        private static boolean matches(final String name, final CharSequence key) {
+            final int length = name.length();
+            if (length != key.length()) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                final char a = name.charAt(i);
+                final char b = key.charAt(i);
+                if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Node root = new Node(StringHelper.Empty);
+    private final int fieldCount;
+
+    /**
+     * Creates an extractor for the specified fields.
+     *
+     * @param paths dotted paths of the fields to extract
+     */
+    public JsonFieldExtractor(final String... paths) {
+        Debug.Assert(paths != null && paths.length > 0, "At least one path must be specified");
+
+        for (int i = 0; i < paths.length; i++) {
+            Debug.Assert(!StringHelper.isNullOrWhiteSpace(paths[i]), "The paths must not be null or empty");
+
+            Node node = root;
+            for (final String segment : split(paths[i])) {
+                if (node.index != -1) {
+                    throw new IllegalArgumentException("Path '" + paths[i] + "' extends another path.");
+                }
+                node = node.getOrAddChild(segment);
+            }
+            if (node.index != -1) {
+                throw new IllegalArgumentException("Path '" + paths[i] + "' was specified more than once.");
+            }
+            if (node.children.length > 0) {
+                throw new IllegalArgumentException("Path '" + paths[i] + "' is a prefix of another path.");
+            }
+            node.index = i;
+        }
+        this.fieldCount = paths.length;
+    }
+
+    private static List<String> split(final String path) {
+        final List<String> result = new ArrayList<String>();
+        int start = 0;
+        int dot;
+        while ((dot = path.indexOf('.', start)) != -1) {
+            result.add(path.substring(start, dot));
+            start = dot + 1;
+        }
+        result.add(path.substring(start));
+        return result;
+    }
+
+    static int skipStringContent(final String input, final int start) {
+        final int length = input.length();
+        int i = start;
+        while (i < length) {
+            final char c = input.charAt(i);
+            if (c == '"' || c == '\\') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    static void error(final char c, final State s) {
+        final String message = "Unexpected character '" + c + "' at state " + s + ".";
+        throw new IllegalArgumentException(message);
+    }
+
+    /**
+     * Scans the input once and returns the values of the requested fields.
+     *
+     * @param input a JSON document
+     * @return the values, in the order the paths were specified to the constructor; {@code null} for a field that
+     *         could not be found
+     * @throws IllegalArgumentException if the input is not well-formed JSON
+     */
+    public String[] extract(final String input) {
+        final String[] result = new String[fieldCount];
+        if (input == null) {
+            return result;
+        }
+
+        final StringBuilder token = new StringBuilder();
+        final StringBuilder unicodeHex = new StringBuilder();
+
+        // one entry per open object or array: whether it is an array, and the node its members are matched against
+        boolean[] isArrayStack = new boolean[8];
+        Node[] nodeStack = new Node[8];
+        int depth = 0;
+
+        int found = 0;
+        State state = State.VALUE;
+        // the node the next value is bound to, null if nobody asked for it
+        Node valueNode = root;
+        boolean capturing = false;
+
+        final int length = input.length();
+        for (int i = 0; i < length; i++) {
+            final char c = input.charAt(i);
+            switch (state) {
+                case VALUE:
+                    if (SimpleJson.isInsignificantWhitespace(c)) {
+                        continue;
+                    }
+                    capturing = valueNode != null && valueNode.index != -1 && result[valueNode.index] == null;
+                    if (SimpleJson.isLeftCurlyBracket(c) || SimpleJson.isLeftSquareBracket(c)) {
+                        if (depth == nodeStack.length) {
+                            isArrayStack = Arrays.copyOf(isArrayStack, depth * 2);
+                            nodeStack = Arrays.copyOf(nodeStack, depth * 2);
+                        }
+                        final boolean isArray = SimpleJson.isLeftSquareBracket(c);
+                        isArrayStack[depth] = isArray;
+                        nodeStack[depth] = valueNode;
+                        depth++;
+                        // array elements are matched as if they were the array itself
+                        state = isArray ? State.ARRAY_START : State.OBJECT_START;
+                    }
+                    else if (SimpleJson.isDoubleQuote(c)) {
+                        state = State.STRING_VALUE;
+                    }
+                    else if (SimpleJson.isMinus(c) || SimpleJson.isDigit(c) || SimpleJson.isLiteralStart(c)) {
+                        if (capturing) {
+                            token.append(c);
+                        }
+                        state = State.SCALAR_VALUE;
+                    }
+                    else {
+                        error(c, state);
+                    }
+                    break;
+                case ARRAY_START:
+                    if (SimpleJson.isRightSquareBracket(c)) {
+                        // empty array
+                        depth--;
+                        state = depth == 0 ? State.END : State.POST_VALUE;
+                    }
+                    else if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        // re-process the character as the first element
+                        state = State.VALUE;
+                        i--;
+                    }
+                    break;
+                case OBJECT_START:
+                    if (SimpleJson.isDoubleQuote(c)) {
+                        state = State.KEY;
+                    }
+                    else if (SimpleJson.isRightCurlyBracket(c)) {
+                        // empty object
+                        depth--;
+                        state = depth == 0 ? State.END : State.POST_VALUE;
+                    }
+                    else if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        error(c, state);
+                    }
+                    break;
+                case KEY_START:
+                    // after a comma, only another member may follow
+                    if (SimpleJson.isDoubleQuote(c)) {
+                        state = State.KEY;
+                    }
+                    else if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        error(c, state);
+                    }
+                    break;
+                case KEY:
+                    if (SimpleJson.isDoubleQuote(c)) {
+                        final Node objectNode = nodeStack[depth - 1];
+                        valueNode = objectNode == null ? null : objectNode.findChild(token);
+                        token.setLength(0);
+                        state = State.POST_KEY;
+                    }
+                    else if (SimpleJson.isEscape(c)) {
+                        state = State.KEY_ESCAPE;
+                    }
+                    else if (nodeStack[depth - 1] != null) {
+                        token.append(c);
+                    }
+                    else {
+                        i = skipStringContent(input, i + 1) - 1;
+                    }
+                    break;
+                case KEY_ESCAPE:
+                    // keys we look for never contain escapes; keep the escaped character so they can't match either
+                    if (nodeStack[depth - 1] != null) {
+                        token.append('\\').append(c);
+                    }
+                    state = State.KEY;
+                    break;
+                case POST_KEY:
+                    if (SimpleJson.isColon(c)) {
+                        state = State.VALUE;
+                    }
+                    else if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        error(c, state);
+                    }
+                    break;
+                case STRING_VALUE:
+                    if (SimpleJson.isEscape(c)) {
+                        state = State.STRING_VALUE_ESCAPE;
+                    }
+                    else if (SimpleJson.isDoubleQuote(c)) {
+                        if (capturing) {
+                            result[valueNode.index] = token.toString();
+                            token.setLength(0);
+                            if (++found == fieldCount) {
+                                return result;
+                            }
+                        }
+                        state = State.POST_VALUE;
+                    }
+                    else if (capturing) {
+                        token.append(c);
+                    }
+                    else {
+                        // nobody wants this string: jump straight to its next quote or escape
+                        i = skipStringContent(input, i + 1) - 1;
+                    }
+                    break;
+                case STRING_VALUE_ESCAPE:
+                    state = State.STRING_VALUE;
+                    switch (c) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            if (capturing) {
+                                token.append(c);
+                            }
+                            break;
+                        case 'b':
+                            if (capturing) {
+                                token.append('\b');
+                            }
+                            break;
+                        case 'f':
+                            if (capturing) {
+                                token.append('\f');
+                            }
+                            break;
+                        case 'n':
+                            if (capturing) {
+                                token.append('\n');
+                            }
+                            break;
+                        case 'r':
+                            if (capturing) {
+                                token.append('\r');
+                            }
+                            break;
+                        case 't':
+                            if (capturing) {
+                                token.append('\t');
+                            }
+                            break;
+                        case 'u':
+                            state = State.STRING_VALUE_UNICODE;
+                            break;
+                        default:
+                            error(c, state);
+                    }
+                    break;
+                case STRING_VALUE_UNICODE:
+                    if (SimpleJson.isHexDigit(c)) {
+                        unicodeHex.append(c);
+                        if (unicodeHex.length() == 4) {
+                            if (capturing) {
+                                final int codePoint = Integer.parseInt(unicodeHex.toString(), 16);
+                                token.append(Character.toChars(codePoint));
+                            }
+                            unicodeHex.setLength(0);
+                            state = State.STRING_VALUE;
+                        }
+                    }
+                    else {
+                        error(c, state);
+                    }
+                    break;
+                case SCALAR_VALUE:
+                    if (SimpleJson.isComma(c) || SimpleJson.isInsignificantWhitespace(c)
+                            || SimpleJson.isRightCurlyBracket(c) || SimpleJson.isRightSquareBracket(c)) {
+                        if (capturing) {
+                            result[valueNode.index] = token.toString();
+                            token.setLength(0);
+                            if (++found == fieldCount) {
+                                return result;
+                            }
+                        }
+                        // re-process the delimiter as the end of the value
+                        state = State.POST_VALUE;
+                        i--;
+                    }
+                    else if (SimpleJson.isDigit(c) || SimpleJson.isExp(c) || SimpleJson.isPeriod(c)
+                            || Character.isLetter(c)) {
+                        if (capturing) {
+                            token.append(c);
+                        }
+                    }
+                    else {
+                        error(c, state);
+                    }
+                    break;
+                case POST_VALUE:
+                    if (depth == 0) {
+                        state = State.END;
+                        i--;
+                    }
+                    else if (SimpleJson.isComma(c)) {
+                        if (isArrayStack[depth - 1]) {
+                            valueNode = nodeStack[depth - 1];
+                            state = State.VALUE;
+                        } else {
+                            state = State.KEY_START;
+                        }
+                    }
+                    else if (SimpleJson.isRightCurlyBracket(c) && !isArrayStack[depth - 1]) {
+                        depth--;
+                        if (depth == 0) {
+                            state = State.END;
+                        }
+                    }
+                    else if (SimpleJson.isRightSquareBracket(c) && isArrayStack[depth - 1]) {
+                        depth--;
+                        if (depth == 0) {
+                            state = State.END;
+                        }
+                    }
+                    else if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        error(c, state);
+                    }
+                    break;
+                case END:
+                    if (!SimpleJson.isInsignificantWhitespace(c)) {
+                        error(c, state);
+                    }
+                    break;
+            }
+        }
+
+        if (state == State.SCALAR_VALUE && capturing) {
+            // a bare top-level scalar
+            result[valueNode.index] = token.toString();
+        }
+
+        return result;
+    }
+}
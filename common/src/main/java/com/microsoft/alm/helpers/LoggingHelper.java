@@ -5,8 +5,152 @@ package com.microsoft.alm.helpers;
 
 import org.slf4j.Logger;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class LoggingHelper {
 
+    /**
+     * Setting, or System property, that controls the messages logged on every secret lookup, such as converting a
+     * URI to a key or reading a SecretStore: {@code "all"} (the default) logs them all, {@code "none"} suppresses
+     * them and a number {@code N} logs one out of {@code N}.  Messages about prompting, creating, refreshing or
+     * failing to find secrets are always logged.
+     *
+     * Sampling counts messages, not lookups: a lookup logs several of them, so with {@code N} a lookup may log
+     * some of its messages and not the others.
+     */
+    public static final String LOOKUP_LOGGING_PROPERTY_NAME = "lookupLogging";
+
+    private static final int LOG_ALL = 1;
+    private static final int LOG_NONE = 0;
+    private static final int NOT_READ = -1;
+
+    // read on first use, so that logging an error doesn't load the settings file
+    private static volatile int lookupSampling = NOT_READ;
+
+    // counts the per-lookup messages that could have been logged, across all lookups and threads
+    private static final AtomicLong lookupMessageCount = new AtomicLong();
+
+    /**
+     * Formats an expensive argument only if the message is logged, since slf4j only calls {@link #toString()}
+     * on the arguments of the messages it logs:
+     *
+     * <pre>
+     * logger.debug("Scopes: {}", new LoggingHelper.Lazy() {
+     *     protected Object evaluate() {
+     *         return describe(scopes);
+     *     }
+     * });
+     * </pre>
+     */
+    public static abstract class Lazy {
+        protected abstract Object evaluate();
+
+        @Override
+        public String toString() {
+            return String.valueOf(evaluate());
+        }
+    }
+
+    /**
+     * @param value a {@link #LOOKUP_LOGGING_PROPERTY_NAME} setting
+     * @return the sampling it stands for, for {@link #setLookupSampling(int)}
+     */
+    public static int parseLookupSampling(final String value) {
+        if (value == null || "all".equalsIgnoreCase(value)) {
+            return LOG_ALL;
+        }
+        if ("none".equalsIgnoreCase(value)) {
+            return LOG_NONE;
+        }
+        try {
+            return Math.max(LOG_NONE, Integer.parseInt(value.trim()));
+        } catch (final NumberFormatException e) {
+            return LOG_ALL;
+        }
+    }
+
+    /**
+     * Overrides the {@link #LOOKUP_LOGGING_PROPERTY_NAME} setting.
+     *
+     * @param sampling 1 to log every per-lookup message, 0 to log none, N to log one message out of N
+     */
+    public static void setLookupSampling(final int sampling) {
+        Debug.Assert(sampling >= 0, "sampling cannot be negative");
+        lookupSampling = sampling;
+    }
+
+    public static int getLookupSampling() {
+        int sampling = lookupSampling;
+        if (sampling == NOT_READ) {
+            sampling = parseLookupSampling(
+                    SettingsHelper.getInstance().getProperty(LOOKUP_LOGGING_PROPERTY_NAME, "all"));
+            lookupSampling = sampling;
+        }
+        return sampling;
+    }
+
+    private static boolean sampleMessage() {
+        final int sampling = getLookupSampling();
+        if (sampling == LOG_ALL) {
+            return true;
+        }
+        if (sampling == LOG_NONE) {
+            return false;
+        }
+        return lookupMessageCount.getAndIncrement() % sampling == 0;
+    }
+
+    /**
+     * Guards a per-lookup info message whose arguments are expensive, or that has more than two of them and so
+     * would allocate an array, whether logged or not.
+     *
+     * @param logger the logger to use
+     * @return {@code true} if the message should be logged
+     */
+    public static boolean isLookupInfoEnabled(final Logger logger) {
+        return logger.isInfoEnabled() && sampleMessage();
+    }
+
+    /**
+     * Guards a per-lookup debug message; see {@link #isLookupInfoEnabled(Logger)}.
+     *
+     * @param logger the logger to use
+     * @return {@code true} if the message should be logged
+     */
+    public static boolean isLookupDebugEnabled(final Logger logger) {
+        return logger.isDebugEnabled() && sampleMessage();
+    }
+
+    public static void lookupInfo(final Logger logger, final String format, final Object arg) {
+        if (isLookupInfoEnabled(logger)) {
+            logger.info(format, arg);
+        }
+    }
+
+    public static void lookupInfo(final Logger logger, final String format, final Object arg1, final Object arg2) {
+        if (isLookupInfoEnabled(logger)) {
+            logger.info(format, arg1, arg2);
+        }
+    }
+
+    public static void lookupDebug(final Logger logger, final String format) {
+        if (isLookupDebugEnabled(logger)) {
+            logger.debug(format);
+        }
+    }
+
+    public static void lookupDebug(final Logger logger, final String format, final Object arg) {
+        if (isLookupDebugEnabled(logger)) {
+            logger.debug(format, arg);
+        }
+    }
+
+    public static void lookupDebug(final Logger logger, final String format, final Object arg1, final Object arg2) {
+        if (isLookupDebugEnabled(logger)) {
+            logger.debug(format, arg1, arg2);
+        }
+    }
+
     /**
      * IntelliJ bubbles up all error level logging to user, and if there is a "cause", it makes it a clickable link
      * and user can view the stacktrace.
@@ -0,0 +1,22 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs every finished {@link Span} at debug level, prefixed by its correlation ID, its ID and that of its parent.
+ */
+public class LoggingTracer implements Tracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoggingTracer.class);
+
+    @Override
+    public void spanFinished(final Span span) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("span: {}", span);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Receives the measurements taken by the library: how long secret lookups, {@code SecretStore} operations and
+ * HTTP calls take, and how often stored secrets could be reused.
+ *
+ * Install an implementation with {@link MetricsHelper#setMetrics(Metrics)}; until then, nothing is measured.
+ * The names of the measurements are the constants of {@link MetricsHelper}.
+ *
+ * Implementations are called on every lookup, from any thread, so they must be thread-safe and should be cheap.
+ * {@link InMemoryMetrics} keeps counters and latency histograms that can be published with {@link JmxMetrics}.
+ */
+public interface Metrics {
+
+    /**
+     * Counts one occurrence of an event.
+     *
+     * @param name what happened, such as {@link MetricsHelper#RETRIEVER_HIT}
+     * @param tag  what it happened to, such as the namespace of a secret, a store or an endpoint; never null
+     */
+    void increment(final String name, final String tag);
+
+    /**
+     * Records how long an operation took.
+     *
+     * @param name  the operation, such as {@link MetricsHelper#STORE_GET}
+     * @param tag   what it operated on, such as the namespace of a secret, a store or an endpoint; never null
+     * @param nanos the elapsed time, in nanoseconds
+     */
+    void recordTime(final String name, final String tag, final long nanos);
+}
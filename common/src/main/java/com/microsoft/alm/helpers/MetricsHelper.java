@@ -0,0 +1,143 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.net.URI;
+
+/**
+ * Holds the {@link Metrics} the library reports to, and names what it measures.
+ *
+ * Instrumented code brackets an operation with {@link #start()} and {@link #stop(String, String, long)}; both are
+ * almost free while no {@link Metrics} is installed and no trace is running, since the clock isn't even read.
+ * While a trace is running on the current thread, every timed operation is also recorded as a child
+ * {@link Span} of the running one.
+ */
+public final class MetricsHelper {
+
+    // phases of BaseAuthenticator.SecretRetriever#retrieve, tagged with the namespace of the key,
+    // which is the authentication type of the authenticator for the default key conversion
+    public static final String RETRIEVER_STORE_READ = "retriever.storeRead";
+    public static final String RETRIEVER_VALIDATE = "retriever.validate";
+    public static final String RETRIEVER_REFRESH = "retriever.refresh";
+    public static final String RETRIEVER_RETRIEVE = "retriever.retrieve";
+    public static final String RETRIEVER_STORE_WRITE = "retriever.storeWrite";
+
+    // outcomes of reading the store: a valid secret, no secret, or a secret that was rejected
+    public static final String RETRIEVER_HIT = "retriever.hit";
+    public static final String RETRIEVER_MISS = "retriever.miss";
+    public static final String RETRIEVER_INVALID = "retriever.invalid";
+
+    // SecretStore operations, tagged with the simple name of the store's class
+    public static final String STORE_GET = "store.get";
+    public static final String STORE_ADD = "store.add";
+    public static final String STORE_DELETE = "store.delete";
+
+    // StorageProvider start-up costs: checking whether a backend, such as GNOME Keyring, is usable, tagged with
+    // its name, and building the list of candidate stores, tagged with the simple name of the secret class
+    public static final String STORE_PROBE = "store.probe";
+    public static final String STORE_CANDIDATES = "store.candidates";
+
+    // HttpClient calls, tagged with the method and the URI without its query, such as
+    // "GET https://app.vssps.visualstudio.com/_apis/connectionData"; failures are counted as errors
+    public static final String HTTP_REQUEST = "http.request";
+    public static final String HTTP_ERROR = "http.error";
+
+    /**
+     * Returned by {@link #start()} when nothing is measured.
+     */
+    public static final long NOT_STARTED = Long.MIN_VALUE;
+
+    /**
+     * Discards all measurements.
+     */
+    public static final Metrics NO_OP = new Metrics() {
+        @Override
+        public void increment(final String name, final String tag) {
+        }
+
+        @Override
+        public void recordTime(final String name, final String tag, final long nanos) {
+        }
+    };
+
+    private static volatile Metrics metrics = NO_OP;
+
+    private MetricsHelper() {
+    }
+
+    public static Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Reports all further measurements to the specified {@link Metrics}.
+     *
+     * @param metrics where to report, or {@code null} to stop measuring
+     */
+    public static void setMetrics(final Metrics metrics) {
+        MetricsHelper.metrics = metrics == null ? NO_OP : metrics;
+    }
+
+    /**
+     * @return {@code true} if measurements are reported, and so tags are worth computing
+     */
+    public static boolean isEnabled() {
+        return metrics != NO_OP;
+    }
+
+    /**
+     * @return {@code true} if timed operations are reported, to the {@link Metrics} or to a running trace
+     */
+    public static boolean isRecording() {
+        return metrics != NO_OP || TracingHelper.isActive();
+    }
+
+    /**
+     * Starts timing an operation.
+     *
+     * @return the start time to pass to {@link #stop(String, String, long)}, {@link #NOT_STARTED} if nothing
+     *         is measured
+     */
+    public static long start() {
+        return isRecording() ? System.nanoTime() : NOT_STARTED;
+    }
+
+    /**
+     * Records how long an operation took, and adds it to the running trace, unless it wasn't timed.
+     *
+     * @param name  the operation
+     * @param tag   what it operated on
+     * @param start what {@link #start()} returned when the operation started
+     */
+    public static void stop(final String name, final String tag, final long start) {
+        if (start != NOT_STARTED) {
+            final long elapsed = System.nanoTime() - start;
+            metrics.recordTime(name, tag, elapsed);
+            TracingHelper.recordChild(name, tag, start, elapsed);
+        }
+    }
+
+    public static void increment(final String name, final String tag) {
+        metrics.increment(name, tag);
+    }
+
+    /**
+     * Identifies an endpoint: the method, then the URI without its user info, query or fragment.
+     *
+     * @param method the HTTP method
+     * @param uri    the request URI
+     * @return a tag for {@link #HTTP_REQUEST} and {@link #HTTP_ERROR}
+     */
+    public static String endpointTag(final String method, final URI uri) {
+        final StringBuilder sb = new StringBuilder(method.length() + 64);
+        sb.append(method).append(' ').append(uri.getScheme()).append("://").append(uri.getHost());
+        if (uri.getPort() != -1) {
+            sb.append(':').append(uri.getPort());
+        }
+        if (uri.getRawPath() != null) {
+            sb.append(uri.getRawPath());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One timed operation of a trace.
+ *
+ * All spans of a trace share the correlation ID of its root span, which is also sent to the services that were
+ * called, so their logs can be matched with the client's.
+ */
+public final class Span {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final String name;
+    private final String tag;
+    private final UUID correlationId;
+    private final long id;
+    private final Span parent;
+    private final long startMillis;
+    private final long startNanos;
+    private long durationNanos = -1;
+
+    /*default*/ Span(final String name, final String tag, final UUID correlationId, final Span parent,
+                     final long startMillis, final long startNanos) {
+        this.name = name;
+        this.tag = tag;
+        this.correlationId = correlationId;
+        this.id = NEXT_ID.incrementAndGet();
+        this.parent = parent;
+        this.startMillis = startMillis;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * @return the operation, such as {@link TracingHelper#AUTHENTICATOR_RETRIEVE} or {@link MetricsHelper#STORE_GET}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return what the operation worked on, such as the namespace of a secret, a store or an endpoint
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    public UUID getCorrelationId() {
+        return correlationId;
+    }
+
+    /**
+     * @return a number that identifies this span among all the spans of this process
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return the span this one was started in, {@code null} for the root span of a trace
+     */
+    public Span getParent() {
+        return parent;
+    }
+
+    /**
+     * @return when the span started, in milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /*default*/ long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return how long the operation took, in nanoseconds, or -1 while it is running
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /*default*/ void setDurationNanos(final long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append(correlationId).append(' ').append(id);
+        if (parent != null) {
+            sb.append('<').append(parent.id);
+        }
+        sb.append(' ').append(name).append('[').append(tag).append("] ");
+        if (durationNanos < 0) {
+            sb.append("running");
+        } else {
+            sb.append(durationNanos / 1000).append("us");
+        }
+        return sb.toString();
+    }
+}
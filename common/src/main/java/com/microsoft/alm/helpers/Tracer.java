@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+/**
+ * Receives the {@link Span}s recorded while tracing: one per {@code Authenticator} operation, with a child for
+ * every phase of the secret lookup, {@code SecretStore} operation and HTTP call it made.
+ *
+ * Install an implementation with {@link TracingHelper#setTracer(Tracer)}; until then, nothing is traced.
+ * {@link LoggingTracer} writes finished spans to the log.
+ *
+ * Spans are reported as they finish, so children are reported before their parent, on the thread that ran them.
+ * Implementations must be thread-safe and should be cheap.
+ */
+public interface Tracer {
+
+    /**
+     * Called once for every span, after it finished.
+     *
+     * @param span the finished span
+     */
+    void spanFinished(final Span span);
+}
@@ -0,0 +1,168 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import java.util.UUID;
+
+/**
+ * Holds the {@link Tracer} the library reports to, and the {@link Span} running on each thread.
+ *
+ * A trace starts when an {@code Authenticator} operation starts a root span with {@link #startSpan(String, String)}
+ * on a thread that isn't tracing yet.  Until it is finished with {@link #finish(Span)}, the operations timed with
+ * {@link MetricsHelper#start()} and {@link MetricsHelper#stop(String, String, long)} on that thread are recorded as
+ * its children, and {@link #getCorrelationId()} returns the ID that is sent along with every HTTP request.
+ *
+ * While no {@link Tracer} is installed, {@link #startSpan(String, String)} returns {@code null} right away.
+ */
+public final class TracingHelper {
+
+    // the span of every Authenticator operation, tagged with the namespace of the key
+    public static final String AUTHENTICATOR_RETRIEVE = "authenticator.retrieve";
+    public static final String AUTHENTICATOR_SIGN_OUT = "authenticator.signOut";
+
+    /**
+     * The request header that carries the correlation ID; Azure Active Directory and Visual Studio Team Services
+     * both record it with the requests they log.
+     */
+    public static final String CORRELATION_ID_HEADER = "client-request-id";
+
+    private static volatile Tracer tracer;
+
+    private static final ThreadLocal<Span> currentSpan = new ThreadLocal<Span>();
+
+    private TracingHelper() {
+    }
+
+    public static Tracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Reports all further spans to the specified {@link Tracer}.
+     *
+     * @param tracer where to report, or {@code null} to stop tracing
+     */
+    public static void setTracer(final Tracer tracer) {
+        TracingHelper.tracer = tracer;
+    }
+
+    /**
+     * @return {@code true} if a trace is running on the current thread
+     */
+    public static boolean isActive() {
+        return tracer != null && currentSpan.get() != null;
+    }
+
+    /**
+     * @return the span running on the current thread, or {@code null}
+     */
+    public static Span getCurrentSpan() {
+        return tracer == null ? null : currentSpan.get();
+    }
+
+    /**
+     * @return the correlation ID of the trace running on the current thread, or {@code null}
+     */
+    public static UUID getCorrelationId() {
+        final Span span = getCurrentSpan();
+        return span == null ? null : span.getCorrelationId();
+    }
+
+    /**
+     * Starts a span on the current thread: the child of the running span, or the root of a new trace with a random
+     * correlation ID.
+     *
+     * @param name the operation
+     * @param tag  what it works on
+     * @return the span to pass to {@link #finish(Span)}, or {@code null} if nothing is traced
+     */
+    public static Span startSpan(final String name, final String tag) {
+        return startSpan(name, tag, null);
+    }
+
+    /**
+     * Starts a span on the current thread, so that a caller can join its own correlation ID to the trace.
+     *
+     * @param name          the operation
+     * @param tag           what it works on
+     * @param correlationId the ID of a new trace, or {@code null} for a random one; ignored when a trace is
+     *                      already running on the current thread
+     * @return the span to pass to {@link #finish(Span)}, or {@code null} if nothing is traced
+     */
+    public static Span startSpan(final String name, final String tag, final UUID correlationId) {
+        if (tracer == null) {
+            return null;
+        }
+        final Span parent = currentSpan.get();
+        final UUID traceId;
+        if (parent != null) {
+            traceId = parent.getCorrelationId();
+        } else {
+            traceId = correlationId == null ? UUID.randomUUID() : correlationId;
+        }
+        final Span result = new Span(name, tag, traceId, parent, System.currentTimeMillis(), System.nanoTime());
+        currentSpan.set(result);
+        return result;
+    }
+
+    /**
+     * Finishes a span started by {@link #startSpan(String, String)} on the current thread, which goes back to
+     * running its parent, and reports it.
+     *
+     * @param span the span to finish, or {@code null} if nothing was traced
+     */
+    public static void finish(final Span span) {
+        if (span == null) {
+            return;
+        }
+        span.setDurationNanos(System.nanoTime() - span.getStartNanos());
+        final Span parent = span.getParent();
+        if (parent == null) {
+            currentSpan.remove();
+        } else {
+            currentSpan.set(parent);
+        }
+        report(span);
+    }
+
+    /**
+     * Makes a span the one running on the current thread, so that work handed over to another thread stays in the
+     * trace of the thread that handed it over: capture {@link #getCurrentSpan()} there, then call this method
+     * before and after the work.
+     *
+     * @param span the span to run, or {@code null} for none
+     * @return the span that was running on the current thread, to pass to this method once the work is done
+     */
+    public static Span attach(final Span span) {
+        final Span previous = currentSpan.get();
+        if (span == null) {
+            currentSpan.remove();
+        } else {
+            currentSpan.set(span);
+        }
+        return previous;
+    }
+
+    /**
+     * Records an operation timed by {@link MetricsHelper} as a finished child of the running span, if any.
+     */
+    /*default*/ static void recordChild(final String name, final String tag, final long startNanos,
+                                        final long durationNanos) {
+        final Span parent = getCurrentSpan();
+        if (parent == null) {
+            return;
+        }
+        final long startMillis = System.currentTimeMillis() - durationNanos / 1000000L;
+        final Span child = new Span(name, tag, parent.getCorrelationId(), parent, startMillis, startNanos);
+        child.setDurationNanos(durationNanos);
+        report(child);
+    }
+
+    private static void report(final Span span) {
+        final Tracer t = tracer;
+        if (t != null) {
+            t.spanFinished(span);
+        }
+    }
+}
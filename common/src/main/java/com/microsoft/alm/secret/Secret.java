@@ -10,28 +10,33 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public abstract class Secret {
 
     private static final Logger logger = LoggerFactory.getLogger(Secret.class);
 
     public static String uriToName(final URI targetUri, final String namespace) {
-        final String TokenNameBaseFormat = "%1$s:%2$s://%3$s";
-        final String TokenNamePortFormat = TokenNameBaseFormat + ":%4$s";
-
         Debug.Assert(targetUri != null, "The targetUri parameter is null");
 
         logger.debug("Secret::uriToName");
 
-        String targetName = null;
         // trim any trailing slashes and/or whitespace for compat with git-credential-winstore
-        String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(targetUri), '/', '\\'));
-
-        if (targetUri.getPort() == -1 /* isDefaultPort */) {
-            targetName = String.format(TokenNameBaseFormat, namespace, targetUri.getScheme(), trimmedHostUrl);
-        } else {
-            targetName = String.format(TokenNamePortFormat, namespace, targetUri.getScheme(), trimmedHostUrl, targetUri.getPort());
+        final String trimmedHostUrl = StringHelper.trimEnd(StringHelper.trimEnd(UriHelper.getFullAccount(targetUri), '/', '\\'));
+        final String scheme = targetUri.getScheme();
+        final int port = targetUri.getPort();
+
+        // namespace:scheme://host[:port]
+        final StringBuilder sb = new StringBuilder(
+                (namespace == null ? 4 : namespace.length())
+                + (scheme == null ? 4 : scheme.length())
+                + trimmedHostUrl.length() + 10);
+        sb.append(namespace).append(':').append(scheme).append("://").append(trimmedHostUrl);
+        if (port != -1 /* isDefaultPort */) {
+            sb.append(':').append(port);
         }
+        final String targetName = sb.toString();
 
         logger.debug("   target name = {}", targetName);
 
@@ -42,13 +47,16 @@ public abstract class Secret {
         String convert(final URI targetUri, final String namespace);
     }
 
-    public static IUriNameConversion DefaultUriNameConversion = new IUriNameConversion() {
+    /**
+     * {@link #uriToName(URI, String)}, memoized since it runs on every secret lookup.
+     */
+    public static IUriNameConversion DefaultUriNameConversion = new MemoizingUriNameConversion(new IUriNameConversion() {
 
         @Override
         public String convert(final URI targetUri, final String namespace) {
             return Secret.uriToName(targetUri, namespace);
         }
-    };
+    });
 
     public static class PrefixedUriNameConversion implements IUriNameConversion {
 
@@ -63,4 +71,96 @@ public abstract class Secret {
             return Secret.uriToName(targetUri, prefix + namespace);
         }
     }
+
+    /**
+     * Remembers the names another {@link IUriNameConversion} produced, so that looking up the same secret over and
+     * over doesn't convert the same URI over and over.
+     *
+     * The wrapped conversion must always return the same name for the same URI and namespace.  URIs are told apart
+     * by their text, so URIs that are equal but written differently (e.g. in case) are converted separately.  At most
+     * {@code maxEntries} names are remembered; beyond that, the least recently used one is forgotten.
+     * Instances are safe to share across threads.
+     */
+    public static class MemoizingUriNameConversion implements IUriNameConversion {
+
+        public static final int DEFAULT_MAX_ENTRIES = 256;
+
+        private final IUriNameConversion conversion;
+        private final int maxEntries;
+        private final Map<CacheKey, String> names;
+
+        public MemoizingUriNameConversion(final IUriNameConversion conversion) {
+            this(conversion, DEFAULT_MAX_ENTRIES);
+        }
+
+        public MemoizingUriNameConversion(final IUriNameConversion conversion, final int maxEntries) {
+            Debug.Assert(conversion != null, "The conversion parameter is null");
+            Debug.Assert(maxEntries > 0, "The maxEntries parameter must be positive");
+
+            this.conversion = conversion;
+            this.maxEntries = maxEntries;
+            this.names = new LinkedHashMap<CacheKey, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<CacheKey, String> eldest) {
+                    return size() > MemoizingUriNameConversion.this.maxEntries;
+                }
+            };
+        }
+
+        @Override
+        public String convert(final URI targetUri, final String namespace) {
+            Debug.Assert(targetUri != null, "The targetUri parameter is null");
+
+            final CacheKey key = new CacheKey(targetUri.toString(), namespace);
+            synchronized (names) {
+                final String cached = names.get(key);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+
+            final String name = conversion.convert(targetUri, namespace);
+            synchronized (names) {
+                names.put(key, name);
+            }
+            return name;
+        }
+
+        /*default*/ int size() {
+            synchronized (names) {
+                return names.size();
+            }
+        }
+
+        private static final class CacheKey {
+            private final String targetUri;
+            private final String namespace;
+            private final int hashCode;
+
+            CacheKey(final String targetUri, final String namespace) {
+                this.targetUri = targetUri;
+                this.namespace = namespace;
+                this.hashCode = 31 * targetUri.hashCode() + (namespace == null ? 0 : namespace.hashCode());
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (!(o instanceof CacheKey)) {
+                    return false;
+                }
+                final CacheKey other = (CacheKey) o;
+                return hashCode == other.hashCode
+                        && targetUri.equals(other.targetUri)
+                        && (namespace == null ? other.namespace == null : namespace.equals(other.namespace));
+            }
+
+            @Override
+            public int hashCode() {
+                return hashCode;
+            }
+        }
+    }
 }
@@ -0,0 +1,339 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.StringHelper;
+
+import javax.xml.bind.DatatypeConverter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Encodes {@link Token}, {@link TokenPair} and {@link Credential} as text for the secure stores that only hold
+ * strings, without the XML parser and DOM that {@link TokenPair#toXmlString(TokenPair)} needs.
+ *
+ * An encoded secret is {@link #PREFIX} followed by the base64 of a version byte, a kind byte and the fields of the
+ * secret; strings are written as their length, as a 32-bit integer, followed by their UTF-8 bytes.
+ * Neither XML nor the raw values older versions stored start with {@link #PREFIX}, so stores check
+ * {@link #isEncoded(String)} to keep reading them.
+ * Stores that hold bytes rather than text use the {@code toBytes} methods, which skip the prefix and base64.
+ */
+public final class SecretCodec {
+
+    public static final String PREFIX = "alm:";
+
+    /*default*/ static final byte VERSION_1 = 1;
+
+    private static final byte KIND_TOKEN = 1;
+    private static final byte KIND_TOKEN_PAIR = 2;
+    private static final byte KIND_CREDENTIAL = 3;
+
+    private static final int HEADER_LENGTH = 2;
+    private static final int SIZEOF_INT = 4;
+    private static final int SIZEOF_LONG = 8;
+    private static final int SIZEOF_GUID = 16;
+    private static final int NULL_LENGTH = -1;
+
+    private SecretCodec() {
+    }
+
+    /**
+     * @param text a stored secret
+     * @return {@code true} if it was written by this codec, {@code false} if it is in an older format
+     */
+    public static boolean isEncoded(final String text) {
+        return text != null && text.startsWith(PREFIX);
+    }
+
+    public static String encode(final Token token) {
+        return toText(toBytes(token));
+    }
+
+    /**
+     * Encodes a token without the text wrapping, for stores that hold bytes.
+     *
+     * @param token the token
+     * @return what {@link #decodeToken(byte[])} reads
+     */
+    public static byte[] toBytes(final Token token) {
+        Debug.Assert(token != null, "token cannot be null");
+
+        final byte[] value = utf8(token.Value);
+        // the scope is only written when it is known, so older versions can still read the token
+        final boolean hasScope = token.scopeBits != 0;
+        final ByteBuffer buffer = allocate(KIND_TOKEN,
+                SIZEOF_INT + SIZEOF_GUID + sizeOf(value) + (hasScope ? SIZEOF_LONG : 0));
+        buffer.putInt(token.Type.getValue());
+        final UUID targetIdentity = token.getTargetIdentity();
+        buffer.putLong(targetIdentity.getMostSignificantBits());
+        buffer.putLong(targetIdentity.getLeastSignificantBits());
+        putBytes(buffer, value);
+        if (hasScope) {
+            buffer.putLong(token.scopeBits);
+        }
+        return buffer.array();
+    }
+
+    public static String encode(final TokenPair tokenPair) {
+        return toText(toBytes(tokenPair));
+    }
+
+    /**
+     * Encodes a token pair without the text wrapping, for stores that hold bytes.
+     *
+     * @param tokenPair the token pair
+     * @return what {@link #decodeTokenPair(byte[])} reads
+     */
+    public static byte[] toBytes(final TokenPair tokenPair) {
+        Debug.Assert(tokenPair != null, "tokenPair cannot be null");
+
+        final byte[] accessToken = utf8(tokenPair.AccessToken.Value);
+        final byte[] refreshToken = utf8(tokenPair.RefreshToken.Value);
+        final Map<String, String> parameters = tokenPair.Parameters;
+        final byte[][] parameterBytes = new byte[parameters.size() * 2][];
+        int length = sizeOf(accessToken) + sizeOf(refreshToken) + SIZEOF_INT;
+        int i = 0;
+        for (final Map.Entry<String, String> entry : parameters.entrySet()) {
+            parameterBytes[i] = utf8(entry.getKey());
+            length += sizeOf(parameterBytes[i++]);
+            parameterBytes[i] = utf8(entry.getValue());
+            length += sizeOf(parameterBytes[i++]);
+        }
+
+        final ByteBuffer buffer = allocate(KIND_TOKEN_PAIR, length);
+        putBytes(buffer, accessToken);
+        putBytes(buffer, refreshToken);
+        buffer.putInt(parameters.size());
+        for (final byte[] bytes : parameterBytes) {
+            putBytes(buffer, bytes);
+        }
+        return buffer.array();
+    }
+
+    public static String encode(final Credential credential) {
+        return toText(toBytes(credential));
+    }
+
+    /**
+     * Encodes a credential without the text wrapping, for stores that hold bytes.
+     *
+     * @param credential the credential
+     * @return what {@link #decodeCredential(byte[])} reads
+     */
+    public static byte[] toBytes(final Credential credential) {
+        Debug.Assert(credential != null, "credential cannot be null");
+
+        final byte[] username = utf8(credential.Username);
+        final byte[] password = utf8(credential.Password);
+        final ByteBuffer buffer = allocate(KIND_CREDENTIAL, sizeOf(username) + sizeOf(password));
+        putBytes(buffer, username);
+        putBytes(buffer, password);
+        return buffer.array();
+    }
+
+    /**
+     * Encodes any of the secrets this codec supports, without the text wrapping.
+     *
+     * @param secret a {@link Token}, {@link TokenPair} or {@link Credential}
+     * @return what {@link #decode(byte[])} reads
+     * @throws IllegalArgumentException for any other kind of secret
+     */
+    public static byte[] toBytes(final Secret secret) {
+        if (secret instanceof Token) {
+            return toBytes((Token) secret);
+        }
+        if (secret instanceof TokenPair) {
+            return toBytes((TokenPair) secret);
+        }
+        if (secret instanceof Credential) {
+            return toBytes((Credential) secret);
+        }
+        throw new IllegalArgumentException("Unsupported secret: "
+                + (secret == null ? null : secret.getClass().getName()));
+    }
+
+    /**
+     * @param bytes what one of the {@code toBytes} methods returned
+     * @return the {@link Token}, {@link TokenPair} or {@link Credential} that was encoded
+     * @throws IllegalArgumentException if the bytes aren't an encoded secret
+     */
+    public static Secret decode(final byte[] bytes) {
+        Debug.Assert(bytes != null, "bytes cannot be null");
+        if (bytes.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("The encoded secret is too short.");
+        }
+        switch (bytes[1]) {
+            case KIND_TOKEN:
+                return decodeToken(bytes);
+            case KIND_TOKEN_PAIR:
+                return decodeTokenPair(bytes);
+            case KIND_CREDENTIAL:
+                return decodeCredential(bytes);
+            default:
+                throw new IllegalArgumentException("Unknown kind of secret: " + bytes[1]);
+        }
+    }
+
+    /**
+     * @param text what {@link #encode(Token)} returned
+     * @return the token
+     * @throws IllegalArgumentException if the text isn't an encoded token
+     */
+    public static Token decodeToken(final String text) {
+        return decodeToken(fromText(text));
+    }
+
+    /**
+     * @param bytes what {@link #toBytes(Token)} returned
+     * @return the token
+     * @throws IllegalArgumentException if the bytes aren't an encoded token
+     */
+    public static Token decodeToken(final byte[] bytes) {
+        final ByteBuffer buffer = open(bytes, KIND_TOKEN);
+        try {
+            final TokenType type = TokenType.fromValue(buffer.getInt());
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown token type.");
+            }
+            final UUID targetIdentity = new UUID(buffer.getLong(), buffer.getLong());
+            final Token result = new Token(getString(buffer), type);
+            result.setTargetIdentity(targetIdentity);
+            if (buffer.remaining() >= SIZEOF_LONG) {
+                result.scopeBits = buffer.getLong();
+            }
+            return result;
+        } catch (final BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * @param text what {@link #encode(TokenPair)} returned
+     * @return the token pair, with its parameters
+     * @throws IllegalArgumentException if the text isn't an encoded token pair
+     */
+    public static TokenPair decodeTokenPair(final String text) {
+        return decodeTokenPair(fromText(text));
+    }
+
+    /**
+     * @param bytes what {@link #toBytes(TokenPair)} returned
+     * @return the token pair, with its parameters
+     * @throws IllegalArgumentException if the bytes aren't an encoded token pair
+     */
+    public static TokenPair decodeTokenPair(final byte[] bytes) {
+        final ByteBuffer buffer = open(bytes, KIND_TOKEN_PAIR);
+        try {
+            final TokenPair.TokenPairBuilder builder = new TokenPair.TokenPairBuilder()
+                    .withAccessToken(getString(buffer))
+                    .withRefreshToken(getString(buffer));
+            final int parameterCount = buffer.getInt();
+            for (int i = 0; i < parameterCount; i++) {
+                builder.withParameter(getString(buffer), getString(buffer));
+            }
+            return builder.build();
+        } catch (final BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    /**
+     * @param text what {@link #encode(Credential)} returned
+     * @return the credential
+     * @throws IllegalArgumentException if the text isn't an encoded credential
+     */
+    public static Credential decodeCredential(final String text) {
+        return decodeCredential(fromText(text));
+    }
+
+    /**
+     * @param bytes what {@link #toBytes(Credential)} returned
+     * @return the credential
+     * @throws IllegalArgumentException if the bytes aren't an encoded credential
+     */
+    public static Credential decodeCredential(final byte[] bytes) {
+        final ByteBuffer buffer = open(bytes, KIND_CREDENTIAL);
+        try {
+            final String username = getString(buffer);
+            final String password = getString(buffer);
+            return new Credential(username, password);
+        } catch (final BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    private static byte[] utf8(final String value) {
+        return value == null ? null : StringHelper.UTF8GetBytes(value);
+    }
+
+    private static int sizeOf(final byte[] bytes) {
+        return SIZEOF_INT + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static ByteBuffer allocate(final byte kind, final int length) {
+        final ByteBuffer result = ByteBuffer.allocate(HEADER_LENGTH + length);
+        result.put(VERSION_1);
+        result.put(kind);
+        return result;
+    }
+
+    private static void putBytes(final ByteBuffer buffer, final byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static String toText(final byte[] bytes) {
+        return PREFIX + DatatypeConverter.printBase64Binary(bytes);
+    }
+
+    private static byte[] fromText(final String text) {
+        if (!isEncoded(text)) {
+            throw new IllegalArgumentException("The secret was not encoded by " + SecretCodec.class.getSimpleName());
+        }
+        return DatatypeConverter.parseBase64Binary(text.substring(PREFIX.length()));
+    }
+
+    private static ByteBuffer open(final byte[] bytes, final byte expectedKind) {
+        Debug.Assert(bytes != null, "bytes cannot be null");
+        if (bytes.length < HEADER_LENGTH) {
+            throw new IllegalArgumentException("The encoded secret is too short.");
+        }
+        final ByteBuffer result = ByteBuffer.wrap(bytes);
+        final byte version = result.get();
+        if (version != VERSION_1) {
+            throw new IllegalArgumentException("Unsupported encoding version: " + version);
+        }
+        final byte kind = result.get();
+        if (kind != expectedKind) {
+            throw new IllegalArgumentException("Expected a secret of kind " + expectedKind + " but found " + kind);
+        }
+        return result;
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("The encoded secret is truncated.");
+        }
+        final String result = StringHelper.UTF8GetString(buffer.array(), buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    private static IllegalArgumentException truncated(final BufferUnderflowException cause) {
+        final IllegalArgumentException result = new IllegalArgumentException("The encoded secret is truncated.");
+        result.initCause(cause);
+        return result;
+    }
+}
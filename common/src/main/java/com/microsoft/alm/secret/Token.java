@@ -18,6 +18,7 @@ import org.w3c.dom.Text;
 
 import javax.xml.bind.DatatypeConverter;
 import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Map;
 import java.util.UUID;
@@ -30,6 +31,13 @@ public class Token extends Secret {
 
     private static final Logger logger = LoggerFactory.getLogger(Token.class);
 
+    public static final String AUTHORIZATION_HEADER = "Authorization";
+
+    /**
+     * The name of the metadata holding the scope the token was granted, as {@link VsoTokenScope#toBits()}.
+     */
+    public static final String SCOPE = "scope";
+
     private static final int sizeofTokenType = 4;
     private static final int sizeofGuid = 16;
 
@@ -94,14 +102,20 @@ public class Token extends Secret {
      */
     public final String Value;
 
+    private volatile String authorizationHeaderValue;
+
     UUID targetIdentity = Guid.Empty;
 
+    // VsoTokenScope.toBits(); 0 when the scope isn't known, such as for tokens stored by older versions
+    long scopeBits;
+
     public static Token fromXml(final Node tokenNode) {
         Token value;
 
         String tokenValue = null;
         TokenType tokenType = null;
         UUID targetIdentity = Guid.Empty;
+        long scopeBits = 0;
 
         final NodeList propertyNodes = tokenNode.getChildNodes();
         for (int v = 0; v < propertyNodes.getLength(); v++) {
@@ -113,10 +127,13 @@ public class Token extends Secret {
                 tokenValue = XmlHelper.getText(propertyNode);
             } else if ("targetIdentity".equals(propertyName)) {
                 targetIdentity = UUID.fromString(XmlHelper.getText(propertyNode));
+            } else if (SCOPE.equals(propertyName)) {
+                scopeBits = Long.parseLong(XmlHelper.getText(propertyNode));
             }
         }
         value = new Token(tokenValue, tokenType);
         value.setTargetIdentity(targetIdentity);
+        value.scopeBits = scopeBits;
         return value;
     }
 
@@ -139,6 +156,12 @@ public class Token extends Secret {
             targetIdentityNode.appendChild(targetIdentityValue);
             valueNode.appendChild(targetIdentityNode);
         }
+        if (this.scopeBits != 0) {
+            final Element scopeNode = document.createElement(SCOPE);
+            final Text scopeValue = document.createTextNode(Long.toString(this.scopeBits));
+            scopeNode.appendChild(scopeValue);
+            valueNode.appendChild(scopeNode);
+        }
         return valueNode;
     }
 
@@ -153,6 +176,56 @@ public class Token extends Secret {
         this.targetIdentity = targetIdentity;
     }
 
+    /**
+     * @return the scope the token was granted, {@code null} if it isn't known
+     */
+    public VsoTokenScope getScope() {
+        return VsoTokenScope.fromBits(scopeBits);
+    }
+
+    /**
+     * Records the scope the token was granted, so that it is stored with it.
+     *
+     * @param scope the scope, {@code null} if it isn't known
+     */
+    public void setScope(final VsoTokenScope scope) {
+        this.scopeBits = scope == null ? 0 : scope.toBits();
+    }
+
+    /**
+     * Gets what stores that can only hold the value of a token need to keep beside it.
+     *
+     * @param token the token
+     * @return the {@link #SCOPE}, if it is known; an empty map otherwise
+     */
+    public static Map<String, String> getMetadata(final Token token) {
+        Debug.Assert(token != null, "token cannot be null");
+
+        if (token.scopeBits == 0) {
+            return Collections.emptyMap();
+        }
+        return Collections.singletonMap(SCOPE, Long.toString(token.scopeBits));
+    }
+
+    /**
+     * Restores what {@link #getMetadata(Token)} returned, ignoring anything it doesn't understand.
+     *
+     * @param token    the token read back
+     * @param metadata the metadata that was stored with it
+     */
+    public static void setMetadata(final Token token, final Map<String, String> metadata) {
+        Debug.Assert(token != null, "token cannot be null");
+
+        final String scope = metadata == null ? null : metadata.get(SCOPE);
+        if (scope != null) {
+            try {
+                token.scopeBits = Long.parseLong(scope);
+            } catch (final NumberFormatException e) {
+                logger.debug("Ignoring unreadable scope: {}", scope);
+            }
+        }
+    }
+
     /**
      * Compares an object to this {@link Token} for equality.
      *
@@ -193,17 +266,39 @@ public class Token extends Secret {
     }
 
     public void contributeHeader(final Map<String, String> headers) {
+        headers.put(AUTHORIZATION_HEADER, getAuthorizationHeaderValue());
+    }
+
+    /**
+     * Gets the value of the {@code Authorization} header that presents this token, such as
+     * {@code "Bearer <access token>"}.
+     *
+     * The value is computed the first time it is requested and then reused, so that sending many requests
+     * with the same token doesn't encode it over and over.
+     *
+     * @return the header value.
+     * @throws IllegalStateException if tokens of this type cannot be used for headers.
+     */
+    public String getAuthorizationHeaderValue() {
+        // benign race: at worst two threads compute the same immutable string
+        String result = authorizationHeaderValue;
+        if (result == null) {
+            result = createAuthorizationHeaderValue();
+            authorizationHeaderValue = result;
+        }
+        return result;
+    }
+
+    private String createAuthorizationHeaderValue() {
         // different types of tokens are packed differently
         switch (Type) {
             case Access:
                 final String prefix = "Bearer";
-                headers.put("Authorization", prefix + " " + Value);
-                break;
+                return prefix + " " + Value;
             case Personal:
                 final byte[] authData = StringHelper.UTF8GetBytes("PersonalAccessToken:" + Value);
                 final String base64EncodedAuthData = DatatypeConverter.printBase64Binary(authData);
-                headers.put("Authorization", "Basic " + base64EncodedAuthData);
-                break;
+                return "Basic " + base64EncodedAuthData;
             case Federated:
                 throw new NotImplementedException(449222);
             default:
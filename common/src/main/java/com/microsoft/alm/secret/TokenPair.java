@@ -23,8 +23,30 @@ import java.util.Map;
 
 public class TokenPair extends Secret {
     private static final Map<String, String> EMPTY_MAP = Collections.unmodifiableMap(new LinkedHashMap<String, String>(0));
-    private static final String ACCESS_TOKEN = "access_token";
-    private static final String REFRESH_TOKEN = "refresh_token";
+    private static final String ACCESS_TOKEN = TokenResponseParser.ACCESS_TOKEN;
+    private static final String REFRESH_TOKEN = TokenResponseParser.REFRESH_TOKEN;
+
+    /**
+     * Name of the parameter holding when the access token expires, in seconds since the epoch.
+     */
+    public static final String EXPIRES_ON = "expires_on";
+    /**
+     * Name of the parameter holding when the access token was issued (it isn't valid before then),
+     * in seconds since the epoch.
+     */
+    public static final String NOT_BEFORE = "not_before";
+    /**
+     * Name of the parameter holding the resource the access token was issued for.
+     */
+    public static final String RESOURCE = "resource";
+    /**
+     * Name of the parameter holding the tenant that issued the tokens.
+     */
+    public static final String TENANT_ID = "tenant_id";
+
+    // the parameters persisted with the tokens by every store, and their XML element names
+    private static final String[] METADATA_PARAMETERS = {EXPIRES_ON, NOT_BEFORE, RESOURCE, TENANT_ID};
+    private static final String[] METADATA_ELEMENTS = {"expiresOn", "notBefore", "resource", "tenantId"};
 
     /**
      * Creates a new {@link TokenPair} from raw access and refresh token data.
@@ -41,8 +63,24 @@ public class TokenPair extends Secret {
         this.Parameters = EMPTY_MAP;
     }
 
+    /**
+     * Creates a new {@link TokenPair} from the JSON response of an OAuth 2.0 token endpoint.
+     *
+     * @param accessTokenResponse the response text, containing at least {@code access_token} and
+     *                            {@code refresh_token}; any other members end up in {@link #Parameters}
+     */
     public TokenPair(final String accessTokenResponse) {
-        this(PropertyBag.fromJson(accessTokenResponse));
+        this(TokenResponseParser.parse(accessTokenResponse, new TokenPairBuilder()));
+    }
+
+    private TokenPair(final TokenPairBuilder builder) {
+        this.AccessToken = new Token(builder.accessToken, TokenType.Access);
+        this.RefreshToken = new Token(builder.refreshToken, TokenType.Refresh);
+        this.Parameters = builder.parameters == null
+                ? EMPTY_MAP
+                : Collections.unmodifiableMap(builder.parameters);
+        // the builder must not be able to change this instance any more
+        builder.parameters = null;
     }
 
     public TokenPair(final PropertyBag bag) {
@@ -78,25 +116,81 @@ public class TokenPair extends Secret {
     public final Token RefreshToken;
     public final Map<String, String> Parameters;
 
-    public static TokenPair fromXml(final Node tokenPairNode) {
-        TokenPair value;
+    /**
+     * @return when the access token expires, in milliseconds since the epoch, or {@code -1} if that isn't known
+     */
+    public long getExpiresOn() {
+        return getEpochMillis(EXPIRES_ON);
+    }
 
-        String accessToken = null;
-        String refreshToken = null;
+    /**
+     * @return when the access token was issued, in milliseconds since the epoch, or {@code -1} if that isn't known
+     */
+    public long getIssuedOn() {
+        return getEpochMillis(NOT_BEFORE);
+    }
+
+    /**
+     * @return the resource the access token was issued for, or {@code null} if that isn't known
+     */
+    public String getResource() {
+        return Parameters.get(RESOURCE);
+    }
+
+    /**
+     * @return the tenant that issued the tokens, or {@code null} if that isn't known
+     */
+    public String getTenantId() {
+        return Parameters.get(TENANT_ID);
+    }
+
+    /**
+     * Checks the stored expiry of the access token, without asking the authority.
+     *
+     * @param nowMillis the current time, in milliseconds since the epoch
+     * @return {@code true} if the access token is known to have expired by {@code nowMillis};
+     *         {@code false} if it hasn't, or if its expiry isn't known
+     */
+    public boolean isAccessTokenExpired(final long nowMillis) {
+        final long expiresOn = getExpiresOn();
+        return expiresOn != -1 && expiresOn <= nowMillis;
+    }
+
+    private long getEpochMillis(final String name) {
+        final String value = Parameters.get(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            // numbers from a token response may have been formatted as doubles, such as 1.476287437E9
+            return (long) (Double.parseDouble(value) * 1000);
+        } catch (final NumberFormatException ignored) {
+            return -1;
+        }
+    }
+
+    public static TokenPair fromXml(final Node tokenPairNode) {
+        final TokenPairBuilder builder = new TokenPairBuilder();
 
         final NodeList propertyNodes = tokenPairNode.getChildNodes();
         for (int v = 0; v < propertyNodes.getLength(); v++) {
             final Node propertyNode = propertyNodes.item(v);
             final String propertyName = propertyNode.getNodeName();
             if ("accessToken".equals(propertyName)) {
-                accessToken = XmlHelper.getText(propertyNode);
+                builder.withAccessToken(XmlHelper.getText(propertyNode));
             } else if ("refreshToken".equals(propertyName)) {
-                refreshToken = XmlHelper.getText(propertyNode);
+                builder.withRefreshToken(XmlHelper.getText(propertyNode));
+            } else {
+                for (int i = 0; i < METADATA_ELEMENTS.length; i++) {
+                    if (METADATA_ELEMENTS[i].equals(propertyName)) {
+                        builder.withParameter(METADATA_PARAMETERS[i], XmlHelper.getText(propertyNode));
+                        break;
+                    }
+                }
             }
         }
 
-        value = new TokenPair(accessToken, refreshToken);
-        return value;
+        return builder.build();
     }
 
     public Element toXml(final Document document) {
@@ -112,6 +206,15 @@ public class TokenPair extends Secret {
         refreshTokenNode.appendChild(refreshTokenValue);
         valueNode.appendChild(refreshTokenNode);
 
+        for (int i = 0; i < METADATA_PARAMETERS.length; i++) {
+            final String value = Parameters.get(METADATA_PARAMETERS[i]);
+            if (value != null) {
+                final Element metadataNode = document.createElement(METADATA_ELEMENTS[i]);
+                metadataNode.appendChild(document.createTextNode(value));
+                valueNode.appendChild(metadataNode);
+            }
+        }
+
         return valueNode;
     }
 
@@ -155,6 +258,63 @@ public class TokenPair extends Secret {
         }
     }
 
+    /**
+     * Picks the parameters of a {@link TokenPair} that every store persists alongside its tokens,
+     * so that a lookup can decide whether the access token is still usable without asking the authority.
+     *
+     * @param tokenPair the token pair about to be stored
+     * @return its expiry, issue time, resource and tenant, whichever are known, in that order
+     */
+    public static Map<String, String> getMetadata(final TokenPair tokenPair) {
+        Debug.Assert(tokenPair != null, "tokenPair cannot be null");
+
+        final Map<String, String> result = new LinkedHashMap<String, String>(METADATA_PARAMETERS.length);
+        for (final String name : METADATA_PARAMETERS) {
+            final String value = tokenPair.Parameters.get(name);
+            if (value != null) {
+                result.put(name, value);
+            }
+        }
+        return result;
+    }
+
+    public static class TokenPairBuilder {
+        private String accessToken;
+        private String refreshToken;
+        private LinkedHashMap<String, String> parameters;
+
+        public TokenPairBuilder withAccessToken(final String accessToken) {
+            this.accessToken = accessToken;
+            return this;
+        }
+
+        public TokenPairBuilder withRefreshToken(final String refreshToken) {
+            this.refreshToken = refreshToken;
+            return this;
+        }
+
+        public TokenPairBuilder withParameter(final String name, final String value) {
+            Debug.Assert(name != null, "name cannot be null");
+            if (this.parameters == null) {
+                this.parameters = new LinkedHashMap<String, String>();
+            }
+            this.parameters.put(name, value);
+            return this;
+        }
+
+        public TokenPairBuilder withParameters(final Map<String, String> parameters) {
+            Debug.Assert(parameters != null, "parameters cannot be null");
+            for (final Map.Entry<String, String> entry : parameters.entrySet()) {
+                withParameter(entry.getKey(), entry.getValue());
+            }
+            return this;
+        }
+
+        public TokenPair build() {
+            return new TokenPair(this);
+        }
+    }
+
     /**
      * Compares an object to this.
      *
@@ -0,0 +1,257 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+/**
+ * Reads an OAuth 2.0 token endpoint response straight into a {@link TokenPair.TokenPairBuilder}.
+ *
+ * This accepts the same flat JSON objects as {@link com.microsoft.alm.helpers.SimpleJson}, but works on
+ * offsets into the input instead of copying every token into a {@link StringBuilder} and every value into a
+ * map.  The well-known keys are compared in place, and escape-free strings are cut out with a single
+ * {@link String#substring(int, int)}.  Other members become parameters of the {@link TokenPair}, formatted
+ * the same way {@link TokenPair#TokenPair(com.microsoft.alm.helpers.PropertyBag)} formats them.
+ */
+final class TokenResponseParser {
+
+    static final String ACCESS_TOKEN = "access_token";
+    static final String REFRESH_TOKEN = "refresh_token";
+
+    private final String input;
+    private final int length;
+    private int position;
+    // bounds of the last string read by scanString(), when it didn't need decoding
+    private int stringStart;
+    private int stringEnd;
+
+    private TokenResponseParser(final String input) {
+        this.input = input;
+        this.length = input.length();
+    }
+
+    static TokenPair.TokenPairBuilder parse(final String input, final TokenPair.TokenPairBuilder builder) {
+        if (input == null) {
+            throw new IllegalArgumentException("The input is null.");
+        }
+        final TokenResponseParser parser = new TokenResponseParser(input);
+        parser.parseObject(builder);
+        return builder;
+    }
+
+    private void parseObject(final TokenPair.TokenPairBuilder builder) {
+        expect('{');
+        if (peekSignificant() == '}') {
+            position++;
+        }
+        else {
+            while (true) {
+                expect('"');
+                final String decodedKey = scanString();
+                final int keyStart = stringStart;
+                final int keyEnd = stringEnd;
+                expect(':');
+
+                if (decodedKey == null && regionEquals(keyStart, keyEnd, ACCESS_TOKEN)) {
+                    builder.withAccessToken(readStringValue());
+                }
+                else if (decodedKey == null && regionEquals(keyStart, keyEnd, REFRESH_TOKEN)) {
+                    builder.withRefreshToken(readStringValue());
+                }
+                else {
+                    final String key = decodedKey != null ? decodedKey : input.substring(keyStart, keyEnd);
+                    final String value = readValueAsParameter();
+                    if (value != null) {
+                        builder.withParameter(key, value);
+                    }
+                }
+
+                final char c = nextSignificant();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    error(c);
+                }
+            }
+        }
+
+        while (position < length) {
+            final char c = input.charAt(position);
+            if (!isInsignificantWhitespace(c)) {
+                error(c);
+            }
+            position++;
+        }
+    }
+
+    private String readStringValue() {
+        final char c = nextSignificant();
+        if (c != '"') {
+            error(c);
+        }
+        final String decoded = scanString();
+        return decoded != null ? decoded : input.substring(stringStart, stringEnd);
+    }
+
+    /**
+     * Reads any value and formats it the way {@code value.toString()} would have after a round trip
+     * through {@link com.microsoft.alm.helpers.PropertyBag}.
+     *
+     * @return the formatted value, or {@code null} for the {@code null} literal.
+     */
+    private String readValueAsParameter() {
+        final char c = peekSignificant();
+        if (c == '"') {
+            return readStringValue();
+        }
+        if (c == '[') {
+            // kept verbatim, minus the brackets
+            final int start = position + 1;
+            final int end = input.indexOf(']', start);
+            if (end == -1) {
+                error(c);
+            }
+            position = end + 1;
+            return input.substring(start, end);
+        }
+        final int start = position;
+        while (position < length) {
+            final char v = input.charAt(position);
+            if (v == ',' || v == '}' || isInsignificantWhitespace(v)) {
+                break;
+            }
+            position++;
+        }
+        if (start == position) {
+            error(c);
+        }
+        if (c == '-' || Character.isDigit(c)) {
+            return Double.toString(Double.parseDouble(input.substring(start, position)));
+        }
+        if (regionEquals(start, position, "true") || regionEquals(start, position, "false")) {
+            return input.substring(start, position);
+        }
+        if (regionEquals(start, position, "null")) {
+            return null;
+        }
+        throw new IllegalArgumentException("Invalid literal '" + input.substring(start, position)
+                + "'. Expected one of 'true', 'false' or 'null'.");
+    }
+
+    /**
+     * Scans the rest of a string whose opening quote has been consumed.
+     *
+     * @return {@code null} if the string had no escapes, in which case its content is between
+     *         {@link #stringStart} and {@link #stringEnd}; otherwise the decoded string.
+     */
+    private String scanString() {
+        stringStart = position;
+        while (position < length) {
+            final char c = input.charAt(position);
+            if (c == '"') {
+                stringEnd = position;
+                position++;
+                return null;
+            }
+            if (c == '\\') {
+                return decodeString();
+            }
+            position++;
+        }
+        throw new IllegalArgumentException("Unterminated string starting at position " + stringStart + ".");
+    }
+
+    private String decodeString() {
+        final StringBuilder sb = new StringBuilder(position - stringStart + 16);
+        sb.append(input, stringStart, position);
+        while (position < length) {
+            final char c = input.charAt(position++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (position >= length) {
+                break;
+            }
+            final char e = input.charAt(position++);
+            switch (e) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(e);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > length) {
+                        error(e);
+                    }
+                    int codePoint = 0;
+                    for (int i = 0; i < 4; i++) {
+                        final int digit = Character.digit(input.charAt(position++), 16);
+                        if (digit == -1) {
+                            error(input.charAt(position - 1));
+                        }
+                        codePoint = (codePoint << 4) | digit;
+                    }
+                    sb.append((char) codePoint);
+                    break;
+                default:
+                    error(e);
+            }
+        }
+        throw new IllegalArgumentException("Unterminated string starting at position " + stringStart + ".");
+    }
+
+    private boolean regionEquals(final int start, final int end, final String expected) {
+        return end - start == expected.length() && input.regionMatches(start, expected, 0, expected.length());
+    }
+
+    private void expect(final char expected) {
+        final char c = nextSignificant();
+        if (c != expected) {
+            error(c);
+        }
+    }
+
+    private char nextSignificant() {
+        final char c = peekSignificant();
+        position++;
+        return c;
+    }
+
+    private char peekSignificant() {
+        while (position < length) {
+            final char c = input.charAt(position);
+            if (!isInsignificantWhitespace(c)) {
+                return c;
+            }
+            position++;
+        }
+        throw new IllegalArgumentException("Unexpected end of input.");
+    }
+
+    private static boolean isInsignificantWhitespace(final char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r';
+    }
+
+    private void error(final char c) {
+        throw new IllegalArgumentException("Unexpected character '" + c + "' at position " + (position - 1) + ".");
+    }
+}
@@ -3,6 +3,7 @@
 
 package com.microsoft.alm.secret;
 
+import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.ScopeSet;
 import com.microsoft.alm.helpers.StringHelper;
 
@@ -146,6 +147,11 @@ public class VsoTokenScope extends TokenScope {
 
     public static final VsoTokenScope CodeAll = or(CodeManage, CodeRead, CodeWrite);
 
+    /**
+     * The bit {@link #toBits()} sets for {@link #AllScopes}, which has no scope of its own.
+     */
+    private static final long ALL_SCOPES_BIT = 1L << 63;
+
     public static Iterator<VsoTokenScope> enumerateValues() {
         return values.iterator();
     }
@@ -160,6 +166,83 @@ public class VsoTokenScope extends TokenScope {
         return new VsoTokenScope(set);
     }
 
+    /**
+     * Encodes this scope as a bit set, bit {@code i} standing for the {@code i}th value of {@link #enumerateValues()},
+     * so that it can be stored alongside a token in a single {@code long}.
+     *
+     * @return the bit set, or {@code 0} if this scope contains a value that isn't one of the known scopes
+     */
+    public long toBits() {
+        if (_scopes.length == 0) {
+            return ALL_SCOPES_BIT;
+        }
+        long result = 0;
+        for (final String scope : _scopes) {
+            final int index = indexOf(scope);
+            if (index == -1) {
+                return 0;
+            }
+            result |= 1L << index;
+        }
+        return result;
+    }
+
+    /**
+     * @param bits what {@link #toBits()} returned
+     * @return the scope, or {@code null} if {@code bits} is {@code 0}
+     */
+    public static VsoTokenScope fromBits(final long bits) {
+        if (bits == 0) {
+            return null;
+        }
+        if ((bits & ALL_SCOPES_BIT) != 0) {
+            return AllScopes;
+        }
+        final ScopeSet set = new ScopeSet();
+        for (int i = 0; i < scopeArray.length; i++) {
+            if ((bits & (1L << i)) != 0) {
+                set.unionWith(scopeArray[i]._scopes);
+            }
+        }
+        return new VsoTokenScope(set);
+    }
+
+    /**
+     * Checks whether a token granted this scope can be used where {@code scope} is required.
+     *
+     * {@link #AllScopes} includes every scope, but only includes itself: it is the only scope SOAP calls accept.
+     *
+     * @param scope the required scope
+     * @return {@code true} if every value of {@code scope} is granted by this scope
+     */
+    public boolean includes(final VsoTokenScope scope) {
+        Debug.Assert(scope != null, "scope cannot be null");
+
+        if (_scopes.length == 0) {
+            return true;
+        }
+        if (scope._scopes.length == 0) {
+            return false;
+        }
+        final long granted = toBits();
+        final long required = scope.toBits();
+        if (granted != 0 && required != 0) {
+            return (required & ~granted) == 0;
+        }
+        final ScopeSet set = new ScopeSet();
+        set.unionWith(_scopes);
+        return set.containsAll(Arrays.asList(scope._scopes));
+    }
+
+    private static int indexOf(final String scope) {
+        for (int i = 0; i < scopeArray.length; i++) {
+            if (scopeArray[i]._scopes[0].equals(scope)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     public static VsoTokenScope and(final VsoTokenScope... scopes) {
         final ScopeSet set = new ScopeSet();
         set.unionWith(scopes[0]._scopes);
@@ -0,0 +1,85 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.secret.Secret;
+import com.microsoft.alm.secret.SecretCodec;
+import com.microsoft.alm.secret.TokenPair;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A non-persistent store like {@link InsecureInMemoryStore}, for processes that cache many secrets.
+ *
+ * Each secret is kept as a single {@code byte[]}, encoded by {@link SecretCodec} with UTF-8 strings, instead of as
+ * a graph of {@link String}s, {@link java.util.UUID}s and maps; a {@link TokenPair} with its parameters takes about
+ * half the memory, or much less if the parameters aren't retained.  The price is that {@link #get(String)} decodes
+ * a new instance every time, so callers shouldn't expect the instance they added.
+ *
+ * Only {@link com.microsoft.alm.secret.Token}, {@link TokenPair} and {@link com.microsoft.alm.secret.Credential}
+ * are supported.
+ *
+ * @param <E> a secret
+ */
+public class CompactInMemoryStore<E extends Secret> implements SecretStore<E> {
+
+    private final ConcurrentMap<String, byte[]> store = new ConcurrentHashMap<String, byte[]>();
+    private final boolean retainParameters;
+
+    /**
+     * Creates a store that keeps every parameter of the token pairs added to it.
+     */
+    public CompactInMemoryStore() {
+        this(true);
+    }
+
+    /**
+     * @param retainParameters {@code false} to only keep the parameters of token pairs that
+     *                         {@link TokenPair#getMetadata(TokenPair)} returns, dropping the likes of
+     *                         {@code id_token}, which can be larger than the tokens themselves
+     */
+    public CompactInMemoryStore(final boolean retainParameters) {
+        this.retainParameters = retainParameters;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(final String key) {
+        final byte[] bytes = store.get(key);
+        return bytes == null ? null : (E) SecretCodec.decode(bytes);
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        store.remove(key);
+        return true;
+    }
+
+    @Override
+    public boolean add(final String key, final E secret) {
+        Debug.Assert(secret != null, "secret cannot be null");
+
+        store.put(key, SecretCodec.toBytes(retainParameters ? secret : withoutExtraParameters(secret)));
+        return true;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return false;
+    }
+
+    private static Secret withoutExtraParameters(final Secret secret) {
+        if (!(secret instanceof TokenPair)) {
+            return secret;
+        }
+        final TokenPair tokenPair = (TokenPair) secret;
+        return new TokenPair.TokenPairBuilder()
+                .withAccessToken(tokenPair.AccessToken.Value)
+                .withRefreshToken(tokenPair.RefreshToken.Value)
+                .withParameters(TokenPair.getMetadata(tokenPair))
+                .build();
+    }
+}
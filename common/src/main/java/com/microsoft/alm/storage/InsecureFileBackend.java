@@ -282,6 +282,17 @@ class InsecureFileBackend {
     }
 
     private static File getBackingFile() {
+        final File programFolder = getProgramFolder();
+
+        final File insecureFile = new File(programFolder, "insecureStore.xml");
+
+        return insecureFile;
+    }
+
+    /**
+     * @return the folder, created if need be, where the library keeps its files
+     */
+    public static File getProgramFolder() {
         final File parentFolder = determineParentFolder();
 
         // .hidden this folder on *nix system
@@ -292,9 +303,7 @@ class InsecureFileBackend {
             programFolder.mkdirs();
         }
 
-        final File insecureFile = new File(programFolder, "insecureStore.xml");
-
-        return insecureFile;
+        return programFolder;
     }
 
     private static File determineParentFolder() {
@@ -0,0 +1,80 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.MetricsHelper;
+import com.microsoft.alm.secret.Secret;
+
+/**
+ * Times the operations of another {@link SecretStore} with {@link MetricsHelper}, tagged with the simple name of
+ * that store's class.
+ *
+ * {@code StorageProvider} creates its stores metered if metrics are installed by then; wrap a store built by hand
+ * to measure it as well.  Use {@link #unwrap(SecretStore)} to tell what kind of store a metered one is.
+ *
+ * @param <E> a secret
+ */
+public class MeteredSecretStore<E extends Secret> implements SecretStore<E> {
+
+    private final SecretStore<E> delegate;
+    private final String metricsTag;
+
+    public MeteredSecretStore(final SecretStore<E> delegate) {
+        Debug.Assert(delegate != null, "delegate cannot be null");
+
+        this.delegate = delegate;
+        this.metricsTag = delegate.getClass().getSimpleName();
+    }
+
+    /**
+     * @return the store whose operations are timed
+     */
+    public SecretStore<E> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @param store a store, metered or not
+     * @return the store that {@code store} meters, or {@code store} itself if it isn't metered
+     */
+    public static <E extends Secret> SecretStore<E> unwrap(final SecretStore<E> store) {
+        return store instanceof MeteredSecretStore ? ((MeteredSecretStore<E>) store).getDelegate() : store;
+    }
+
+    @Override
+    public E get(final String key) {
+        final long start = MetricsHelper.start();
+        try {
+            return delegate.get(key);
+        } finally {
+            MetricsHelper.stop(MetricsHelper.STORE_GET, metricsTag, start);
+        }
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        final long start = MetricsHelper.start();
+        try {
+            return delegate.delete(key);
+        } finally {
+            MetricsHelper.stop(MetricsHelper.STORE_DELETE, metricsTag, start);
+        }
+    }
+
+    @Override
+    public boolean add(final String key, final E secret) {
+        final long start = MetricsHelper.start();
+        try {
+            return delegate.add(key, secret);
+        } finally {
+            MetricsHelper.stop(MetricsHelper.STORE_ADD, metricsTag, start);
+        }
+    }
+
+    @Override
+    public boolean isSecure() {
+        return delegate.isSecure();
+    }
+}
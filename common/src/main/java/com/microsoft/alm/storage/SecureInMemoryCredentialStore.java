@@ -0,0 +1,20 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.SecretCodec;
+
+public class SecureInMemoryCredentialStore extends SecureInMemoryStore<Credential> {
+
+    @Override
+    protected byte[] encode(final Credential secret) {
+        return SecretCodec.toBytes(secret);
+    }
+
+    @Override
+    protected Credential decode(final byte[] bytes) {
+        return SecretCodec.decodeCredential(bytes);
+    }
+}
@@ -0,0 +1,202 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.secret.Secret;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.microsoft.alm.helpers.LoggingHelper.logError;
+
+/**
+ * A non-persistent store that keeps its secrets encrypted, outside of the garbage-collected heap.
+ *
+ * Each secret is encoded, encrypted with AES under a key generated for this process, and copied into a direct
+ * {@link ByteBuffer}; the plaintext bytes are overwritten as soon as they have been encrypted or decoded.
+ * Replacing or deleting a secret overwrites its buffer with zeros, so it doesn't linger until the buffer is freed.
+ * The secrets handed to {@link #add(String, Secret)} and returned by {@link #get(String)} are still ordinary
+ * objects: the point is that the store itself keeps no plaintext copy.
+ *
+ * @param <E> a secret
+ */
+public abstract class SecureInMemoryStore<E extends Secret> implements SecretStore<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecureInMemoryStore.class);
+
+    private static final String TRANSFORMATION = "AES/CTR/NoPadding";
+    private static final int KEY_BITS = 128;
+    private static final int IV_LENGTH = 16;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final ConcurrentMap<String, Entry> store = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Converts a secret to the bytes that get encrypted.
+     *
+     * @param secret the secret to store
+     * @return its encoded form, which will be overwritten once encrypted
+     */
+    protected abstract byte[] encode(final E secret);
+
+    /**
+     * Converts the decrypted bytes back to a secret.
+     *
+     * @param bytes what {@link #encode(Secret)} returned, which will be overwritten once decoded
+     * @return the secret
+     */
+    protected abstract E decode(final byte[] bytes);
+
+    @Override
+    public E get(final String key) {
+        Debug.Assert(key != null, "key cannot be null");
+
+        final Entry entry = store.get(key);
+        if (entry == null) {
+            return null;
+        }
+        final byte[] plaintext = entry.decrypt();
+        if (plaintext == null) {
+            // deleted while we were looking
+            return null;
+        }
+        try {
+            return decode(plaintext);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        Debug.Assert(key != null, "key cannot be null");
+
+        final Entry entry = store.remove(key);
+        if (entry != null) {
+            entry.wipe();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean add(final String key, final E secret) {
+        Debug.Assert(key != null, "key cannot be null");
+        Debug.Assert(secret != null, "secret cannot be null");
+
+        final Entry entry;
+        final byte[] plaintext = encode(secret);
+        try {
+            entry = Entry.encrypt(plaintext);
+        } catch (final Error e) {
+            logError(logger, "Failed to encrypt secret.", e);
+            return false;
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+        final Entry previous = store.put(key, entry);
+        if (previous != null) {
+            previous.wipe();
+        }
+        return true;
+    }
+
+    /**
+     * Deletes every secret, overwriting them with zeros.
+     */
+    public void clear() {
+        for (final String key : store.keySet()) {
+            delete(key);
+        }
+    }
+
+    /**
+     * The secrets are encrypted and kept out of the heap, but only for the life of the process.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean isSecure() {
+        return true;
+    }
+
+    private static final class KeyHolder {
+        // generated the first time any secure in-memory store is written to, and never leaves the process
+        static final SecretKey KEY;
+
+        static {
+            try {
+                final KeyGenerator generator = KeyGenerator.getInstance("AES");
+                generator.init(KEY_BITS, RANDOM);
+                KEY = generator.generateKey();
+            } catch (final GeneralSecurityException e) {
+                throw new Error(e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        // the IV, then the ciphertext
+        private final ByteBuffer buffer;
+        private boolean wiped;
+
+        private Entry(final ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        static Entry encrypt(final byte[] plaintext) {
+            final byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(IV_LENGTH + plaintext.length);
+            buffer.put(iv);
+            try {
+                final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.ENCRYPT_MODE, KeyHolder.KEY, new IvParameterSpec(iv));
+                cipher.doFinal(ByteBuffer.wrap(plaintext), buffer);
+            } catch (final GeneralSecurityException e) {
+                throw new Error(e);
+            }
+            return new Entry(buffer);
+        }
+
+        synchronized byte[] decrypt() {
+            if (wiped) {
+                return null;
+            }
+            final ByteBuffer source = buffer.duplicate();
+            source.clear();
+            final byte[] iv = new byte[IV_LENGTH];
+            source.get(iv);
+            final byte[] result = new byte[source.remaining()];
+            try {
+                final Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, KeyHolder.KEY, new IvParameterSpec(iv));
+                cipher.doFinal(source, ByteBuffer.wrap(result));
+            } catch (final GeneralSecurityException e) {
+                throw new Error(e);
+            }
+            return result;
+        }
+
+        synchronized void wipe() {
+            final ByteBuffer target = buffer.duplicate();
+            target.clear();
+            while (target.hasRemaining()) {
+                target.put((byte) 0);
+            }
+            wiped = true;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.SecretCodec;
+import com.microsoft.alm.secret.TokenPair;
+
+public class SecureInMemoryTokenPairStore extends SecureInMemoryStore<TokenPair> {
+
+    @Override
+    protected byte[] encode(final TokenPair secret) {
+        return SecretCodec.toBytes(secret);
+    }
+
+    @Override
+    protected TokenPair decode(final byte[] bytes) {
+        return SecretCodec.decodeTokenPair(bytes);
+    }
+}
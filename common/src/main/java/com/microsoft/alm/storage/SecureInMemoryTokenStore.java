@@ -0,0 +1,20 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.SecretCodec;
+import com.microsoft.alm.secret.Token;
+
+public class SecureInMemoryTokenStore extends SecureInMemoryStore<Token> {
+
+    @Override
+    protected byte[] encode(final Token secret) {
+        return SecretCodec.toBytes(secret);
+    }
+
+    @Override
+    protected Token decode(final byte[] bytes) {
+        return SecretCodec.decodeToken(bytes);
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers
+
+import groovy.transform.CompileStatic
+import org.junit.Test
+
+/**
+ * A class to test {@see JsonFieldExtractor}.
+ */
+@CompileStatic
+public class JsonFieldExtractorTest {
+
+    private static void assertExtract(final List<String> expected, final String input, final String... paths) {
+        final cut = new JsonFieldExtractor(paths)
+
+        final actual = cut.extract(input)
+
+        assert expected == Arrays.asList(actual)
+    }
+
+    @Test public void extract_topLevelString() {
+        assertExtract(["42"], '{"name":"value","id":"42"}', "id")
+    }
+
+    @Test public void extract_ignoresCase() {
+        assertExtract(["42"], '{"ID" : "42"}', "id")
+    }
+
+    @Test public void extract_missingField() {
+        assertExtract([null], '{"name":"value"}', "id")
+    }
+
+    @Test public void extract_nullInput() {
+        assertExtract([null], null, "id")
+    }
+
+    @Test public void extract_onlyTopLevel() {
+        assertExtract(["outer"], '{"child":{"id":"inner"},"id":"outer"}', "id")
+    }
+
+    @Test public void extract_nestedPath() {
+        final input = '''\
+{
+    "serviceType": "LocationService2",
+    "location": "https://top.example.com/",
+    "locationMappings": [
+        {"accessMappingMoniker":"HostGuidAccessMapping","location":"https://first.example.com/"},
+        {"accessMappingMoniker":"PublicAccessMapping","location":"https://second.example.com/"}
+    ]
+}'''
+        assertExtract(["https://first.example.com/", "https://top.example.com/"], input,
+            "locationMappings.location", "location")
+    }
+
+    @Test public void extract_escapes() {
+        assertExtract(['a "quoted" \\ value\n/é'], '{"token":"a \\"quoted\\" \\\\ value\\n\\/\\u00e9"}', "token")
+    }
+
+    @Test public void extract_escapedQuoteInSkippedValue() {
+        assertExtract(["42"], '{"name":"say \\"id\\":\\"wrong\\"","id":"42"}', "id")
+    }
+
+    @Test public void extract_scalars() {
+        assertExtract(["42", "-1.5e3", "true", "null"], '{"a":42,"b":-1.5e3, "c" : true ,"d":null}', "a", "b", "c", "d")
+    }
+
+    @Test public void extract_objectValueIsNotAScalar() {
+        assertExtract([null], '{"id":{"id":"inner"}}', "id")
+    }
+
+    @Test public void extract_skipsArraysOfScalars() {
+        assertExtract(["42"], '{"list":[1,"two",[],{}],"empty":[],"id":"42"}', "id")
+    }
+
+    @Test public void extract_stopsOnceAllFieldsFound() {
+        // everything after the value is never looked at, even if it is not valid JSON
+        assertExtract(["42"], '{"id":"42", this is not JSON', "id")
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_malformed() {
+        new JsonFieldExtractor("id").extract('{"name" "value"}')
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_trailingCommaInObject() {
+        new JsonFieldExtractor("id").extract('{"name":1,}')
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_trailingCommaInArray() {
+        new JsonFieldExtractor("id").extract('{"values":[1,]}')
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_commaAfterArrayStart() {
+        new JsonFieldExtractor("id").extract('[,1]')
+    }
+
+    @Test
+    public void extract_emptyContainers() {
+        assertExtract(["42"], '{"a":{},"b":[ ],"c":[[],{}],"id":42}', "id")
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ctor_pathIsPrefixOfAnother() {
+        new JsonFieldExtractor("location", "location.href")
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ctor_duplicatePath() {
+        new JsonFieldExtractor("id", "ID")
+    }
+}
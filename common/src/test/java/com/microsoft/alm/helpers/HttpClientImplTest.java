@@ -0,0 +1,24 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+
+public class HttpClientImplTest {
+
+    @Test
+    public void getCharset() {
+        final Charset utf8 = Charset.forName("UTF-8");
+
+        Assert.assertEquals(utf8, HttpClientImpl.getCharset(null));
+        Assert.assertEquals(utf8, HttpClientImpl.getCharset("application/json"));
+        Assert.assertEquals(utf8, HttpClientImpl.getCharset("application/json; charset=utf-8"));
+        Assert.assertEquals(Charset.forName("ISO-8859-1"),
+                HttpClientImpl.getCharset("text/html; CHARSET=\"iso-8859-1\""));
+        Assert.assertEquals(utf8, HttpClientImpl.getCharset("text/plain; charset=no-such-charset"));
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 import java.util.Random;
 
 /**
@@ -70,4 +72,44 @@ public class IOHelperTest {
     public void copyStream_twiceMoreThanBuffer() throws Exception {
         testCopyStream(IOHelper.BUFFER_SIZE * 2);
     }
+
+    private static String readToString(final byte[] input, final int expectedLength, final int maxLength,
+                                       final boolean truncate) throws IOException {
+        return IOHelper.readToString(new ByteArrayInputStream(input), Charset.forName("UTF-8"), expectedLength,
+                maxLength, truncate);
+    }
+
+    @Test
+    public void readToString_keepsLineBreaksAndDecodesUtf8() throws Exception {
+        final String expected = "{\"name\":\"J\u00f6rg \u2603\"}\r\n{}";
+        final byte[] input = expected.getBytes("UTF-8");
+
+        Assert.assertEquals(expected, readToString(input, input.length, 1024, false));
+        Assert.assertEquals(expected, readToString(input, -1, 1024, false));
+        Assert.assertEquals("the announced length was short", expected, readToString(input, 3, 1024, false));
+        Assert.assertEquals("", readToString(new byte[0], 0, 1024, false));
+    }
+
+    @Test
+    public void readToString_largerThanBuffer() throws Exception {
+        final byte[] input = new byte[IOHelper.BUFFER_SIZE * 3 + 1];
+        Arrays.fill(input, (byte) 'a');
+
+        Assert.assertEquals(input.length, readToString(input, -1, input.length, false).length());
+    }
+
+    @Test
+    public void readToString_truncates() throws Exception {
+        final byte[] input = "0123456789".getBytes("UTF-8");
+
+        Assert.assertEquals("01234", readToString(input, input.length, 5, true));
+        Assert.assertEquals("0123456789", readToString(input, input.length, 10, false));
+    }
+
+    @Test(expected = IOException.class)
+    public void readToString_tooLong() throws Exception {
+        final byte[] input = "0123456789".getBytes("UTF-8");
+
+        readToString(input, -1, 9, false);
+    }
 }
@@ -0,0 +1,132 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.MeteredSecretStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+public class InMemoryMetricsTest {
+
+    @After
+    public void tearDown() {
+        MetricsHelper.setMetrics(null);
+    }
+
+    @Test
+    public void histogram_bucketsRoundTrip() {
+        final long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (final long value : values) {
+            final int bucket = InMemoryMetrics.Histogram.bucketOf(value);
+            final long highest = InMemoryMetrics.Histogram.highestValueOf(bucket);
+
+            Assert.assertTrue(value + " fits in its bucket", value <= highest);
+            Assert.assertTrue(value + " is within 1/8th", highest - value <= value / 8);
+            if (bucket > 0) {
+                Assert.assertTrue(value > InMemoryMetrics.Histogram.highestValueOf(bucket - 1));
+            }
+        }
+    }
+
+    @Test
+    public void histogram_percentiles() {
+        final InMemoryMetrics underTest = new InMemoryMetrics();
+        for (int i = 1; i <= 100; i++) {
+            underTest.recordTime("op", "tag", i * 1000000L);
+        }
+
+        final InMemoryMetrics.Histogram actual = underTest.getHistogram("op", "tag");
+
+        Assert.assertEquals(100, actual.getCount());
+        Assert.assertEquals(50500000.0, actual.getMeanNanos(), 0.0);
+        Assert.assertEquals(100000000L, actual.getMaxNanos());
+        assertWithinAnEighth(50000000L, actual.getPercentileNanos(0.5));
+        assertWithinAnEighth(99000000L, actual.getPercentileNanos(0.99));
+        Assert.assertEquals(100000000L, actual.getPercentileNanos(1));
+    }
+
+    @Test
+    public void histogram_empty() {
+        final InMemoryMetrics.Histogram actual = new InMemoryMetrics.Histogram();
+
+        Assert.assertEquals(0, actual.getPercentileNanos(0.99));
+        Assert.assertTrue(Double.isNaN(actual.getMeanNanos()));
+    }
+
+    @Test
+    public void counters_perNameAndTag() {
+        final InMemoryMetrics underTest = new InMemoryMetrics();
+
+        underTest.increment(MetricsHelper.RETRIEVER_HIT, "OAuth2");
+        underTest.increment(MetricsHelper.RETRIEVER_HIT, "OAuth2");
+        underTest.increment(MetricsHelper.RETRIEVER_HIT, "PersonalAccessToken");
+        underTest.increment(MetricsHelper.RETRIEVER_MISS, "OAuth2");
+        underTest.increment(MetricsHelper.RETRIEVER_INVALID, "OAuth2");
+
+        Assert.assertEquals(2, underTest.getCount(MetricsHelper.RETRIEVER_HIT, "OAuth2"));
+        Assert.assertEquals(0, underTest.getCount(MetricsHelper.RETRIEVER_MISS, "PersonalAccessToken"));
+        final Map<String, Long> hits = underTest.getCounts(MetricsHelper.RETRIEVER_HIT);
+        Assert.assertEquals(2, hits.size());
+        Assert.assertEquals(0.5, underTest.getHitRatio("OAuth2"), 0.0);
+        Assert.assertEquals(1.0, underTest.getHitRatio("PersonalAccessToken"), 0.0);
+        Assert.assertTrue(Double.isNaN(underTest.getHitRatio("Basic")));
+    }
+
+    @Test
+    public void metricsHelper_disabledByDefault() {
+        Assert.assertFalse(MetricsHelper.isEnabled());
+        Assert.assertEquals(MetricsHelper.NOT_STARTED, MetricsHelper.start());
+    }
+
+    @Test
+    public void metricsHelper_recordsStoreOperations() {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        MetricsHelper.setMetrics(metrics);
+        final SecretStore<Token> store = new MeteredSecretStore<Token>(new InsecureInMemoryStore<Token>());
+
+        store.add("key", new Token("token", TokenType.Personal));
+        store.get("key");
+        store.get("key");
+        store.delete("key");
+
+        Assert.assertEquals(1, metrics.getHistogram(MetricsHelper.STORE_ADD, "InsecureInMemoryStore").getCount());
+        Assert.assertEquals(2, metrics.getHistogram(MetricsHelper.STORE_GET, "InsecureInMemoryStore").getCount());
+        Assert.assertEquals(1, metrics.getHistogram(MetricsHelper.STORE_DELETE, "InsecureInMemoryStore").getCount());
+    }
+
+    @Test
+    public void metricsHelper_unwrappedStoreNotRecorded() {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        MetricsHelper.setMetrics(metrics);
+        final SecretStore<Token> store = new InsecureInMemoryStore<Token>();
+
+        store.add("key", new Token("token", TokenType.Personal));
+        store.get("key");
+
+        Assert.assertNull(metrics.getHistogram(MetricsHelper.STORE_ADD, "InsecureInMemoryStore"));
+        Assert.assertNull(metrics.getHistogram(MetricsHelper.STORE_GET, "InsecureInMemoryStore"));
+    }
+
+    @Test
+    public void metricsHelper_endpointTag() {
+        final URI uri = URI.create("https://user@login.microsoftonline.com:8443/common/oauth2/token?api-version=1.0");
+
+        final String actual = MetricsHelper.endpointTag("POST", uri);
+
+        Assert.assertEquals("POST https://login.microsoftonline.com:8443/common/oauth2/token", actual);
+    }
+
+    private static void assertWithinAnEighth(final long expected, final long actual) {
+        Assert.assertTrue(actual + " should be at least " + expected, actual >= expected);
+        Assert.assertTrue(actual + " should be within 1/8th of " + expected, actual - expected <= expected / 8);
+    }
+}
@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.AttributeNotFoundException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+public class JmxMetricsTest {
+
+    @Test
+    public void attributes() throws Exception {
+        final InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.increment(MetricsHelper.RETRIEVER_HIT, "OAuth2");
+        metrics.increment(MetricsHelper.RETRIEVER_MISS, "OAuth2");
+        metrics.increment(MetricsHelper.RETRIEVER_MISS, "PersonalAccessToken");
+        metrics.recordTime(MetricsHelper.HTTP_REQUEST, "GET https://example.com/", 2000000L);
+        final MBeanServer server = MBeanServerFactory.newMBeanServer();
+        final ObjectName objectName = new ObjectName(JmxMetrics.DEFAULT_OBJECT_NAME);
+
+        new JmxMetrics(metrics).register(server, objectName);
+
+        Assert.assertEquals(1L, server.getAttribute(objectName, "retriever.hit[OAuth2]"));
+        Assert.assertEquals(0.5, server.getAttribute(objectName, "retriever.hitRatio[OAuth2]"));
+        Assert.assertEquals(0.0, server.getAttribute(objectName, "retriever.hitRatio[PersonalAccessToken]"));
+        Assert.assertEquals(1L, server.getAttribute(objectName, "http.request[GET https://example.com/].count"));
+        final double p99 = (Double) server.getAttribute(objectName, "http.request[GET https://example.com/].p99Millis");
+        Assert.assertEquals(2.0, p99, 0.25);
+        final MBeanAttributeInfo[] attributes = server.getMBeanInfo(objectName).getAttributes();
+        Assert.assertEquals(10, attributes.length);
+    }
+
+    @Test(expected = AttributeNotFoundException.class)
+    public void unknownAttribute() throws Exception {
+        final JmxMetrics underTest = new JmxMetrics(new InMemoryMetrics());
+
+        underTest.getAttribute("retriever.hit[OAuth2]");
+    }
+}
@@ -0,0 +1,124 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoggingHelperTest {
+
+    @After
+    public void tearDown() {
+        LoggingHelper.setLookupSampling(1);
+    }
+
+    /**
+     * A logger with every level enabled, that formats what it is asked to log.
+     */
+    private static Logger createLogger(final List<String> logged) {
+        return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[]{Logger.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        if (method.getName().startsWith("is")) {
+                            return true;
+                        }
+                        final StringBuilder sb = new StringBuilder(method.getName());
+                        for (final Object arg : args) {
+                            sb.append(' ').append(arg);
+                        }
+                        logged.add(sb.toString());
+                        return null;
+                    }
+                });
+    }
+
+    @Test
+    public void parseLookupSampling() {
+        Assert.assertEquals(1, LoggingHelper.parseLookupSampling(null));
+        Assert.assertEquals(1, LoggingHelper.parseLookupSampling("ALL"));
+        Assert.assertEquals(0, LoggingHelper.parseLookupSampling("none"));
+        Assert.assertEquals(16, LoggingHelper.parseLookupSampling(" 16 "));
+        Assert.assertEquals(0, LoggingHelper.parseLookupSampling("-3"));
+        Assert.assertEquals(1, LoggingHelper.parseLookupSampling("sometimes"));
+    }
+
+    @Test
+    public void lookupLogging_all() {
+        final List<String> logged = new ArrayList<String>();
+        final Logger logger = createLogger(logged);
+        LoggingHelper.setLookupSampling(1);
+
+        LoggingHelper.lookupDebug(logger, "key: {}", "a");
+        LoggingHelper.lookupInfo(logger, "key: {} {}", "b", "c");
+
+        Assert.assertEquals(2, logged.size());
+        Assert.assertEquals("debug key: {} a", logged.get(0));
+        Assert.assertEquals("info key: {} {} b c", logged.get(1));
+    }
+
+    @Test
+    public void lookupLogging_none() {
+        final List<String> logged = new ArrayList<String>();
+        final Logger logger = createLogger(logged);
+        LoggingHelper.setLookupSampling(0);
+
+        LoggingHelper.lookupDebug(logger, "key: {}", "a");
+        LoggingHelper.lookupInfo(logger, "key: {}", "b");
+
+        Assert.assertTrue(logged.isEmpty());
+        Assert.assertFalse(LoggingHelper.isLookupInfoEnabled(logger));
+    }
+
+    @Test
+    public void lookupLogging_sampled() {
+        final List<String> logged = new ArrayList<String>();
+        final Logger logger = createLogger(logged);
+        LoggingHelper.setLookupSampling(4);
+
+        for (int i = 0; i < 100; i++) {
+            LoggingHelper.lookupDebug(logger, "lookup {}", i);
+        }
+
+        Assert.assertEquals(25, logged.size());
+    }
+
+    @Test
+    public void lookupLogging_levelDisabled() {
+        final Logger logger = NOPLogger.NOP_LOGGER;
+        final int[] evaluated = new int[1];
+
+        LoggingHelper.lookupDebug(logger, "key: {}", new LoggingHelper.Lazy() {
+            @Override
+            protected Object evaluate() {
+                evaluated[0]++;
+                return "expensive";
+            }
+        });
+
+        Assert.assertFalse(LoggingHelper.isLookupDebugEnabled(logger));
+        Assert.assertEquals(0, evaluated[0]);
+    }
+
+    @Test
+    public void lazy_evaluatedWhenFormatted() {
+        final LoggingHelper.Lazy underTest = new LoggingHelper.Lazy() {
+            @Override
+            protected Object evaluate() {
+                return 42;
+            }
+        };
+
+        Assert.assertEquals("42", underTest.toString());
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.helpers;
+
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.MeteredSecretStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class TracingHelperTest {
+
+    private final List<Span> finished = new CopyOnWriteArrayList<Span>();
+
+    @Before
+    public void setUp() {
+        TracingHelper.setTracer(new Tracer() {
+            @Override
+            public void spanFinished(final Span span) {
+                finished.add(span);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        TracingHelper.setTracer(null);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        TracingHelper.setTracer(null);
+
+        Assert.assertNull(TracingHelper.startSpan("op", "tag"));
+        Assert.assertFalse(TracingHelper.isActive());
+        Assert.assertNull(TracingHelper.getCorrelationId());
+        Assert.assertEquals(MetricsHelper.NOT_STARTED, MetricsHelper.start());
+    }
+
+    @Test
+    public void nestedSpans_shareCorrelationId() {
+        final UUID correlationId = UUID.randomUUID();
+
+        final Span root = TracingHelper.startSpan("root", "tag", correlationId);
+        final Span child = TracingHelper.startSpan("child", "tag", UUID.randomUUID());
+        Assert.assertSame(child, TracingHelper.getCurrentSpan());
+        TracingHelper.finish(child);
+        Assert.assertSame(root, TracingHelper.getCurrentSpan());
+        TracingHelper.finish(root);
+
+        Assert.assertFalse(TracingHelper.isActive());
+        Assert.assertEquals(2, finished.size());
+        Assert.assertSame(child, finished.get(0));
+        Assert.assertSame(root, child.getParent());
+        Assert.assertEquals(correlationId, child.getCorrelationId());
+        Assert.assertEquals(correlationId, root.getCorrelationId());
+        Assert.assertTrue(root.getDurationNanos() >= child.getDurationNanos());
+    }
+
+    @Test
+    public void timedOperations_becomeChildren() {
+        final SecretStore<Token> store = new MeteredSecretStore<Token>(new InsecureInMemoryStore<Token>());
+        store.add("outside", new Token("token", TokenType.Personal));
+
+        final Span root = TracingHelper.startSpan("root", "tag");
+        store.get("outside");
+        TracingHelper.finish(root);
+        store.delete("outside");
+
+        Assert.assertEquals(2, finished.size());
+        final Span child = finished.get(0);
+        Assert.assertEquals(MetricsHelper.STORE_GET, child.getName());
+        Assert.assertEquals("InsecureInMemoryStore", child.getTag());
+        Assert.assertSame(root, child.getParent());
+        Assert.assertEquals(root.getCorrelationId(), child.getCorrelationId());
+        Assert.assertTrue(child.getDurationNanos() >= 0);
+    }
+
+    @Test
+    public void httpClient_sendsCorrelationId() {
+        final HttpClientImpl client = new HttpClientImpl("test");
+        final URI uri = URI.create("http://localhost/");
+
+        final HttpURLConnection untraced = client.createConnection(uri, "GET", null);
+        final Span root = TracingHelper.startSpan("root", "tag");
+        final HttpURLConnection traced;
+        try {
+            traced = client.createConnection(uri, "GET", null);
+        } finally {
+            TracingHelper.finish(root);
+        }
+
+        Assert.assertNull(untraced.getRequestProperty(TracingHelper.CORRELATION_ID_HEADER));
+        Assert.assertEquals(root.getCorrelationId().toString(),
+                traced.getRequestProperty(TracingHelper.CORRELATION_ID_HEADER));
+    }
+}
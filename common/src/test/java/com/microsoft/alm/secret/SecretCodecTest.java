@@ -0,0 +1,98 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.UUID;
+
+public class SecretCodecTest {
+
+    @Test
+    public void token_roundTrip() {
+        final Token token = new Token("52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra", TokenType.Personal);
+        final UUID targetIdentity = UUID.randomUUID();
+        token.setTargetIdentity(targetIdentity);
+
+        final String encoded = SecretCodec.encode(token);
+        final Token actual = SecretCodec.decodeToken(encoded);
+
+        Assert.assertTrue(SecretCodec.isEncoded(encoded));
+        Assert.assertEquals(token, actual);
+        Assert.assertEquals(TokenType.Personal, actual.Type);
+        Assert.assertEquals(targetIdentity, actual.getTargetIdentity());
+    }
+
+    @Test
+    public void token_roundTripWithScope() {
+        final Token token = new Token("52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra", TokenType.Personal);
+        final Token unscoped = SecretCodec.decodeToken(SecretCodec.toBytes(token));
+        token.setScope(VsoTokenScope.or(VsoTokenScope.CodeWrite, VsoTokenScope.PackagingRead));
+
+        final byte[] bytes = SecretCodec.toBytes(token);
+        final Token actual = SecretCodec.decodeToken(bytes);
+
+        Assert.assertEquals(token.getScope(), actual.getScope());
+        Assert.assertNull(unscoped.getScope());
+        Assert.assertEquals("the scope is only appended", SecretCodec.toBytes(unscoped).length + 8, bytes.length);
+    }
+
+    @Test
+    public void tokenPair_roundTripWithParameters() {
+        final TokenPair tokenPair = new TokenPair.TokenPairBuilder()
+                .withAccessToken("access")
+                .withRefreshToken("refresh")
+                .withParameter("expires_in", "3599")
+                .withParameter("resource", "499b84ac-1321-427f-aa17-267ca6975798")
+                .build();
+
+        final TokenPair actual = SecretCodec.decodeTokenPair(SecretCodec.encode(tokenPair));
+
+        Assert.assertEquals(tokenPair, actual);
+        Assert.assertEquals(tokenPair.Parameters, actual.Parameters);
+    }
+
+    @Test
+    public void credential_roundTripNonAscii() {
+        final Credential credential = new Credential("usér", "päss<w>ord:☃");
+
+        final Credential actual = SecretCodec.decodeCredential(SecretCodec.encode(credential));
+
+        Assert.assertEquals(credential.Username, actual.Username);
+        Assert.assertEquals(credential.Password, actual.Password);
+    }
+
+    @Test
+    public void isEncoded_olderFormats() {
+        Assert.assertFalse(SecretCodec.isEncoded("<?xml version=\"1.0\"?><value/>"));
+        Assert.assertFalse(SecretCodec.isEncoded("52l7kt2eqhw5vjxgoqzbdyr2h6k4ewfmeayqyqdutcm5qp4k6bra"));
+        Assert.assertFalse(SecretCodec.isEncoded(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_wrongKind() {
+        SecretCodec.decodeTokenPair(SecretCodec.encode(new Credential("user", "password")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_unsupportedVersion() {
+        final String encoded = SecretCodec.encode(new Credential("user", "password"));
+        final byte[] bytes = DatatypeConverter.parseBase64Binary(encoded.substring(SecretCodec.PREFIX.length()));
+        bytes[0] = SecretCodec.VERSION_1 + 1;
+
+        SecretCodec.decodeCredential(SecretCodec.PREFIX + DatatypeConverter.printBase64Binary(bytes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_truncated() {
+        final String encoded = SecretCodec.encode(new Token("value", TokenType.Personal));
+        final byte[] bytes = DatatypeConverter.parseBase64Binary(encoded.substring(SecretCodec.PREFIX.length()));
+        final byte[] truncated = new byte[bytes.length - 3];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+        SecretCodec.decodeToken(SecretCodec.PREFIX + DatatypeConverter.printBase64Binary(truncated));
+    }
+}
@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SecretTest {
+
+    @Test
+    public void uriToName_defaultPort() {
+        final URI uri = URI.create("https://example.visualstudio.com/DefaultCollection/");
+
+        final String actual = Secret.uriToName(uri, "git");
+
+        Assert.assertEquals("git:https://example.visualstudio.com", actual);
+    }
+
+    @Test
+    public void uriToName_explicitPort() {
+        final URI uri = URI.create("http://tfs.example.com:8080/tfs/");
+
+        final String actual = Secret.uriToName(uri, "git");
+
+        Assert.assertEquals("git:http://tfs.example.com:8080", actual);
+    }
+
+    @Test
+    public void uriToName_azureAccount() {
+        final URI uri = URI.create("https://dev.azure.com/account/project/_git/repo");
+
+        final String actual = Secret.uriToName(uri, "git");
+
+        Assert.assertEquals("git:https://dev.azure.com/account", actual);
+    }
+
+    @Test
+    public void uriToName_nullNamespace() {
+        final URI uri = URI.create("https://example.visualstudio.com");
+
+        final String actual = Secret.uriToName(uri, null);
+
+        Assert.assertEquals(String.format("%1$s:%2$s://%3$s", null, "https", "example.visualstudio.com"), actual);
+    }
+
+    @Test
+    public void memoizingUriNameConversion_convertsOncePerUriAndNamespace() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Secret.MemoizingUriNameConversion underTest = new Secret.MemoizingUriNameConversion(
+                new Secret.IUriNameConversion() {
+                    @Override
+                    public String convert(final URI targetUri, final String namespace) {
+                        calls.incrementAndGet();
+                        return Secret.uriToName(targetUri, namespace);
+                    }
+                });
+        final URI uri = URI.create("https://example.visualstudio.com");
+
+        Assert.assertEquals("git:https://example.visualstudio.com", underTest.convert(uri, "git"));
+        Assert.assertEquals("git:https://example.visualstudio.com",
+                underTest.convert(URI.create("https://example.visualstudio.com"), "git"));
+        Assert.assertEquals(1, calls.get());
+
+        Assert.assertEquals("alm:https://example.visualstudio.com", underTest.convert(uri, "alm"));
+        Assert.assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void memoizingUriNameConversion_staysBounded() {
+        final Secret.MemoizingUriNameConversion underTest =
+                new Secret.MemoizingUriNameConversion(Secret.DefaultUriNameConversion, 4);
+
+        for (int i = 0; i < 10; i++) {
+            final URI uri = URI.create("https://account" + i + ".visualstudio.com");
+            Assert.assertEquals("git:https://account" + i + ".visualstudio.com", underTest.convert(uri, "git"));
+            Assert.assertTrue(underTest.size() <= 4);
+        }
+    }
+
+    @Test
+    public void memoizingUriNameConversion_keepsTheCaseOfEachUri() {
+        final Secret.MemoizingUriNameConversion underTest =
+                new Secret.MemoizingUriNameConversion(Secret.DefaultUriNameConversion);
+
+        Assert.assertEquals("git:https://example.visualstudio.com",
+                underTest.convert(URI.create("https://example.visualstudio.com"), "git"));
+        Assert.assertEquals("git:HTTPS://Example.VisualStudio.com",
+                underTest.convert(URI.create("HTTPS://Example.VisualStudio.com"), "git"));
+    }
+
+    @Test
+    public void memoizingUriNameConversion_forgetsTheLeastRecentlyUsed() {
+        final AtomicInteger calls = new AtomicInteger();
+        final Secret.MemoizingUriNameConversion underTest = new Secret.MemoizingUriNameConversion(
+                new Secret.IUriNameConversion() {
+                    @Override
+                    public String convert(final URI targetUri, final String namespace) {
+                        calls.incrementAndGet();
+                        return Secret.uriToName(targetUri, namespace);
+                    }
+                }, 2);
+        final URI first = URI.create("https://first.visualstudio.com");
+        final URI second = URI.create("https://second.visualstudio.com");
+        final URI third = URI.create("https://third.visualstudio.com");
+
+        underTest.convert(first, "git");
+        underTest.convert(second, "git");
+        underTest.convert(first, "git");
+        underTest.convert(third, "git");
+        Assert.assertEquals(3, calls.get());
+
+        underTest.convert(first, "git");
+        Assert.assertEquals(3, calls.get());
+        underTest.convert(second, "git");
+        Assert.assertEquals(4, calls.get());
+        Assert.assertEquals(2, underTest.size());
+    }
+}
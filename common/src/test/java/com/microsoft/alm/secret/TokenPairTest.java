@@ -3,6 +3,7 @@
 
 package com.microsoft.alm.secret;
 
+import com.microsoft.alm.helpers.PropertyBag;
 import com.microsoft.alm.helpers.StringHelperTest;
 import com.microsoft.alm.helpers.XmlHelper;
 import org.junit.Assert;
@@ -48,6 +49,56 @@ public class TokenPairTest {
         assertEquals(tokenPair.RefreshToken.Value, actualTokenPair.RefreshToken.Value);
     }
 
+    @Test
+    public void xmlSerialization_metadata() throws Exception {
+        final TokenPair tokenPair = new TokenPair.TokenPairBuilder()
+                .withAccessToken("9297fb18-46d0-4846-97ca-ab8dd3b55729")
+                .withRefreshToken("d15281b1-03f1-4581-90d3-4527d9cf4147")
+                .withParameter("token_type", "Bearer")
+                .withParameter(TokenPair.EXPIRES_ON, "1.476287437E9")
+                .withParameter(TokenPair.NOT_BEFORE, "1476283537")
+                .withParameter(TokenPair.RESOURCE, "499b84ac-1321-427f-aa17-267ca6975798")
+                .withParameter(TokenPair.TENANT_ID, "contoso.com")
+                .build();
+
+        final String actualXmlString = TokenPair.toXmlString(tokenPair);
+
+        final String expectedXmlString =
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" +
+                        "<value>\n" +
+                        "    <accessToken>9297fb18-46d0-4846-97ca-ab8dd3b55729</accessToken>\n" +
+                        "    <refreshToken>d15281b1-03f1-4581-90d3-4527d9cf4147</refreshToken>\n" +
+                        "    <expiresOn>1.476287437E9</expiresOn>\n" +
+                        "    <notBefore>1476283537</notBefore>\n" +
+                        "    <resource>499b84ac-1321-427f-aa17-267ca6975798</resource>\n" +
+                        "    <tenantId>contoso.com</tenantId>\n" +
+                        "</value>";
+        StringHelperTest.assertLinesEqual(expectedXmlString, actualXmlString);
+
+        final TokenPair actual = TokenPair.fromXmlString(actualXmlString);
+
+        assertEquals(tokenPair, actual);
+        assertEquals(1476287437000L, actual.getExpiresOn());
+        assertEquals(1476283537000L, actual.getIssuedOn());
+        assertEquals("499b84ac-1321-427f-aa17-267ca6975798", actual.getResource());
+        assertEquals("contoso.com", actual.getTenantId());
+        assertEquals(null, actual.Parameters.get("token_type"));
+    }
+
+    @Test
+    public void isAccessTokenExpired() {
+        final TokenPair unknown = new TokenPair("access", "refresh");
+        final TokenPair expiring = new TokenPair.TokenPairBuilder()
+                .withAccessToken("access")
+                .withRefreshToken("refresh")
+                .withParameter(TokenPair.EXPIRES_ON, "1476287437")
+                .build();
+
+        Assert.assertFalse(unknown.isAccessTokenExpired(Long.MAX_VALUE));
+        Assert.assertFalse(expiring.isAccessTokenExpired(1476287436999L));
+        Assert.assertTrue(expiring.isAccessTokenExpired(1476287437000L));
+    }
+
     @Test
     public void accessTokenResponse_RFC6749() {
         final String input =
@@ -68,4 +119,49 @@ public class TokenPairTest {
         Assert.assertEquals("example", actual.Parameters.get("token_type"));
     }
 
+    @Test
+    public void accessTokenResponse_sameAsPropertyBag() {
+        final String input = "{\"token_type\":\"Bearer\",\"scope\":\"user_impersonation\","
+                + "\"expires_in\":\"3599\",\"ext_expires_in\":0,\"expires_on\":1476287437,\"not_before\":-1.5e2,"
+                + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\",\"access_token\":\"eyJ0eXAi.eyJhdWQi.c2lnbmF0dXJl\","
+                + "\"refresh_token\":\"AQABAAAAAA\\/x\\u0041\",\"foci\":[\"1\",\"2\"],\"pwd_exp\":true}";
+
+        final TokenPair actual = new TokenPair(input);
+        final TokenPair expected = new TokenPair(PropertyBag.fromJson(input));
+
+        assertEquals(expected.AccessToken.Value, actual.AccessToken.Value);
+        assertEquals("AQABAAAAAA/xA", actual.RefreshToken.Value);
+        assertEquals(expected.RefreshToken.Value, actual.RefreshToken.Value);
+        assertEquals(expected.Parameters, actual.Parameters);
+        assertEquals("-150.0", actual.Parameters.get("not_before"));
+    }
+
+    @Test
+    public void accessTokenResponse_nullParameterIsOmitted() {
+        final TokenPair actual = new TokenPair("{\"access_token\":\"a\",\"id_token\":null,\"refresh_token\":\"r\"}");
+
+        assertEquals("a", actual.AccessToken.Value);
+        assertEquals("r", actual.RefreshToken.Value);
+        assertEquals(0, actual.Parameters.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void accessTokenResponse_malformed() {
+        new TokenPair("{\"access_token\":\"a\" \"refresh_token\":\"r\"}");
+    }
+
+    @Test
+    public void builder() {
+        final TokenPair actual = new TokenPair.TokenPairBuilder()
+                .withAccessToken("access")
+                .withRefreshToken("refresh")
+                .withParameter("token_type", "Bearer")
+                .build();
+
+        assertEquals("access", actual.AccessToken.Value);
+        assertEquals(TokenType.Access, actual.AccessToken.Type);
+        assertEquals("refresh", actual.RefreshToken.Value);
+        assertEquals(TokenType.Refresh, actual.RefreshToken.Type);
+        assertEquals("Bearer", actual.Parameters.get("token_type"));
+    }
 }
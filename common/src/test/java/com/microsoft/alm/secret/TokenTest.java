@@ -15,6 +15,8 @@ import org.w3c.dom.Element;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -124,6 +126,33 @@ public class TokenTest {
         Assert.assertEquals(token.targetIdentity, actualToken.targetIdentity);
     }
 
+    @Test
+    public void xmlSerialization_scope() throws Exception {
+        final Token token = new Token("1", TokenType.Personal);
+        token.setScope(VsoTokenScope.CodeRead);
+        final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+        final Document serializationDoc = builder.newDocument();
+        serializationDoc.appendChild(token.toXml(serializationDoc));
+        final String xmlString = XmlHelper.toString(serializationDoc);
+
+        final Document deserializationDoc = builder.parse(new ByteArrayInputStream(xmlString.getBytes()));
+        final Token actualToken = Token.fromXml(deserializationDoc.getDocumentElement());
+
+        Assert.assertEquals(VsoTokenScope.CodeRead, actualToken.getScope());
+    }
+
+    @Test
+    public void metadata_roundTrip() {
+        final Token token = new Token("1", TokenType.Personal);
+        Assert.assertTrue(Token.getMetadata(token).isEmpty());
+        token.setScope(VsoTokenScope.AllScopes);
+
+        final Token actual = new Token("1", TokenType.Personal);
+        Token.setMetadata(actual, Token.getMetadata(token));
+
+        Assert.assertEquals(VsoTokenScope.AllScopes, actual.getScope());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void validate_tooLong() {
         final int numberOfCharacters = 2048;
@@ -135,4 +164,40 @@ public class TokenTest {
 
         Token.validate(token);
     }
+
+    @Test
+    public void contributeHeader_access() {
+        final Token token = new Token("access", TokenType.Access);
+        final Map<String, String> headers = new HashMap<String, String>();
+
+        token.contributeHeader(headers);
+
+        Assert.assertEquals("Bearer access", headers.get("Authorization"));
+    }
+
+    @Test
+    public void contributeHeader_personal() {
+        final Token token = new Token("pat", TokenType.Personal);
+        final Map<String, String> headers = new HashMap<String, String>();
+
+        token.contributeHeader(headers);
+
+        // base64("PersonalAccessToken:pat")
+        Assert.assertEquals("Basic UGVyc29uYWxBY2Nlc3NUb2tlbjpwYXQ=", headers.get("Authorization"));
+    }
+
+    @Test
+    public void getAuthorizationHeaderValue_isComputedOnce() {
+        final Token token = new Token("pat", TokenType.Personal);
+
+        final String first = token.getAuthorizationHeaderValue();
+        final String second = token.getAuthorizationHeaderValue();
+
+        Assert.assertSame(first, second);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getAuthorizationHeaderValue_refreshToken() {
+        new Token("refresh", TokenType.Refresh).getAuthorizationHeaderValue();
+    }
 }
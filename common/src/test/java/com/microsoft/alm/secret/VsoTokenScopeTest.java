@@ -0,0 +1,45 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.secret;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VsoTokenScopeTest {
+
+    @Test
+    public void bits_roundTrip() {
+        final Iterator<VsoTokenScope> values = VsoTokenScope.enumerateValues();
+        while (values.hasNext()) {
+            final VsoTokenScope scope = values.next();
+            assertEquals(scope, VsoTokenScope.fromBits(scope.toBits()));
+        }
+        assertEquals(VsoTokenScope.CodeAll, VsoTokenScope.fromBits(VsoTokenScope.CodeAll.toBits()));
+        assertEquals(VsoTokenScope.AllScopes, VsoTokenScope.fromBits(VsoTokenScope.AllScopes.toBits()));
+        assertNull(VsoTokenScope.fromBits(0));
+    }
+
+    @Test
+    public void includes_superset() {
+        final VsoTokenScope granted = VsoTokenScope.or(VsoTokenScope.CodeWrite, VsoTokenScope.WorkRead);
+
+        assertTrue(granted.includes(VsoTokenScope.CodeWrite));
+        assertTrue(granted.includes(granted));
+        assertFalse(granted.includes(VsoTokenScope.CodeRead));
+        assertFalse(granted.includes(VsoTokenScope.or(VsoTokenScope.CodeWrite, VsoTokenScope.BuildAccess)));
+    }
+
+    @Test
+    public void includes_allScopes() {
+        assertTrue(VsoTokenScope.AllScopes.includes(VsoTokenScope.CodeAll));
+        assertTrue(VsoTokenScope.AllScopes.includes(VsoTokenScope.AllScopes));
+        assertFalse(VsoTokenScope.CodeAll.includes(VsoTokenScope.AllScopes));
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.TokenType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactInMemoryStoreTest {
+
+    private static final String KEY = "git:https://example.visualstudio.com";
+    private static final int ENTRIES = 1000;
+
+    private static String repeat(final char c, final int count) {
+        final StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Sizes of an Azure Active Directory response: a JWT access token, an opaque refresh token and a JWT ID token.
+     */
+    private static TokenPair createTokenPair(final int index) {
+        return new TokenPair("{\"token_type\":\"Bearer\",\"scope\":\"user_impersonation\",\"expires_in\":\"3599\","
+                + "\"ext_expires_in\":\"0\",\"expires_on\":\"1476287437\",\"not_before\":\"1476283537\","
+                + "\"resource\":\"499b84ac-1321-427f-aa17-267ca6975798\","
+                + "\"access_token\":\"" + index + repeat('a', 1200) + "\","
+                + "\"refresh_token\":\"" + index + repeat('r', 700) + "\","
+                + "\"id_token\":\"" + index + repeat('i', 1500) + "\",\"pwd_exp\":\"0\"}");
+    }
+
+    @Test
+    public void roundTrip() {
+        final CompactInMemoryStore<Token> tokens = new CompactInMemoryStore<Token>();
+        final CompactInMemoryStore<TokenPair> tokenPairs = new CompactInMemoryStore<TokenPair>();
+        final CompactInMemoryStore<Credential> credentials = new CompactInMemoryStore<Credential>();
+        final Token token = new Token("personal access token", TokenType.Personal);
+        final TokenPair tokenPair = createTokenPair(0);
+        final Credential credential = new Credential("user", "pässword");
+
+        assertTrue(tokens.add(KEY, token));
+        tokenPairs.add(KEY, tokenPair);
+        credentials.add(KEY, credential);
+
+        assertEquals(token, tokens.get(KEY));
+        assertEquals(TokenType.Personal, tokens.get(KEY).Type);
+        assertEquals(tokenPair, tokenPairs.get(KEY));
+        assertEquals(tokenPair.Parameters, tokenPairs.get(KEY).Parameters);
+        assertEquals(credential, credentials.get(KEY));
+        assertFalse(credentials.isSecure());
+
+        assertTrue(credentials.delete(KEY));
+        assertNull(credentials.get(KEY));
+    }
+
+    @Test
+    public void withoutRetainingParameters_keepsMetadata() {
+        final CompactInMemoryStore<TokenPair> underTest = new CompactInMemoryStore<TokenPair>(false);
+
+        underTest.add(KEY, createTokenPair(0));
+        final TokenPair actual = underTest.get(KEY);
+
+        assertEquals(1476287437000L, actual.getExpiresOn());
+        assertEquals("499b84ac-1321-427f-aa17-267ca6975798", actual.getResource());
+        assertNull(actual.Parameters.get("id_token"));
+    }
+
+    @Test
+    public void footprint_tokenPairs() {
+        final InsecureInMemoryStore<TokenPair> objects = new InsecureInMemoryStore<TokenPair>();
+        final CompactInMemoryStore<TokenPair> compact = new CompactInMemoryStore<TokenPair>();
+        final CompactInMemoryStore<TokenPair> compactWithoutParameters = new CompactInMemoryStore<TokenPair>(false);
+        for (int i = 0; i < ENTRIES; i++) {
+            final String key = KEY + i;
+            final TokenPair tokenPair = createTokenPair(i);
+            // as it would be after being used once
+            tokenPair.AccessToken.getAuthorizationHeaderValue();
+            objects.add(key, tokenPair);
+            compact.add(key, tokenPair);
+            compactWithoutParameters.add(key, tokenPair);
+        }
+
+        final long objectsPerEntry = ObjectFootprint.sizeOf(objects) / ENTRIES;
+        final long compactPerEntry = ObjectFootprint.sizeOf(compact) / ENTRIES;
+        final long withoutParametersPerEntry = ObjectFootprint.sizeOf(compactWithoutParameters) / ENTRIES;
+
+        final String message = "bytes per entry: objects " + objectsPerEntry + ", compact " + compactPerEntry
+                + ", compact without parameters " + withoutParametersPerEntry;
+        // about 11.3 KB, 3.8 KB and 2.2 KB on a 64-bit JVM with compressed references and UTF-16 strings
+        assertTrue(message, compactPerEntry * 2 < objectsPerEntry);
+        assertTrue(message, withoutParametersPerEntry * 4 < objectsPerEntry);
+    }
+
+    @Test
+    public void footprint_credentials() {
+        final InsecureInMemoryStore<Credential> objects = new InsecureInMemoryStore<Credential>();
+        final CompactInMemoryStore<Credential> compact = new CompactInMemoryStore<Credential>();
+        for (int i = 0; i < ENTRIES; i++) {
+            final String key = KEY + i;
+            final Credential credential = new Credential("user" + i, "password" + i);
+            objects.add(key, credential);
+            compact.add(key, credential);
+        }
+
+        final long objectsPerEntry = ObjectFootprint.sizeOf(objects) / ENTRIES;
+        final long compactPerEntry = ObjectFootprint.sizeOf(compact) / ENTRIES;
+
+        assertTrue("bytes per entry: objects " + objectsPerEntry + ", compact " + compactPerEntry,
+                compactPerEntry < objectsPerEntry);
+    }
+}
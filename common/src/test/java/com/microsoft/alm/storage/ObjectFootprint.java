@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates how much heap an object graph retains, the way JOL's {@code GraphLayout} does, assuming a 64-bit JVM
+ * with compressed references: 12-byte object headers, 16-byte array headers, 4-byte references and 8-byte
+ * alignment.  Field packing is approximated by summing field sizes, so the result is an estimate, but a stable one,
+ * which is what comparing two representations needs.
+ *
+ * Classes, enum constants and static fields are shared by every instance, so they aren't counted.
+ */
+final class ObjectFootprint {
+
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int ALIGNMENT = 8;
+
+    private static final Map<Class<?>, List<Field>> FIELDS = new IdentityHashMap<Class<?>, List<Field>>();
+
+    private ObjectFootprint() {
+    }
+
+    static long sizeOf(final Object root) {
+        final IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+        final Deque<Object> pending = new ArrayDeque<Object>();
+        pending.push(root);
+        long result = 0;
+        while (!pending.isEmpty()) {
+            final Object current = pending.pop();
+            if (visited.containsKey(current) || isShared(current)) {
+                continue;
+            }
+            visited.put(current, Boolean.TRUE);
+            final Class<?> type = current.getClass();
+            if (type.isArray()) {
+                final int length = Array.getLength(current);
+                final Class<?> componentType = type.getComponentType();
+                result += align(ARRAY_HEADER + (long) length * sizeOfType(componentType));
+                if (!componentType.isPrimitive()) {
+                    for (int i = 0; i < length; i++) {
+                        push(pending, Array.get(current, i));
+                    }
+                }
+            } else {
+                long size = OBJECT_HEADER;
+                for (final Field field : getFields(type)) {
+                    final Class<?> fieldType = field.getType();
+                    size += sizeOfType(fieldType);
+                    if (!fieldType.isPrimitive()) {
+                        try {
+                            push(pending, field.get(current));
+                        } catch (final IllegalAccessException e) {
+                            throw new Error(e);
+                        }
+                    }
+                }
+                result += align(size);
+            }
+        }
+        return result;
+    }
+
+    private static void push(final Deque<Object> pending, final Object object) {
+        if (object != null) {
+            pending.push(object);
+        }
+    }
+
+    private static boolean isShared(final Object object) {
+        return object instanceof Class || object instanceof Enum;
+    }
+
+    private static synchronized List<Field> getFields(final Class<?> type) {
+        List<Field> result = FIELDS.get(type);
+        if (result == null) {
+            result = new ArrayList<Field>();
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        field.setAccessible(true);
+                        result.add(field);
+                    }
+                }
+            }
+            FIELDS.put(type, result);
+        }
+        return result;
+    }
+
+    private static int sizeOfType(final Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        }
+        if (type == int.class || type == float.class) {
+            return 4;
+        }
+        if (type == short.class || type == char.class) {
+            return 2;
+        }
+        if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(final long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
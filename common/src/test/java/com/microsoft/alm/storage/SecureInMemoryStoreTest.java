@@ -0,0 +1,79 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.TokenType;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SecureInMemoryStoreTest {
+
+    private static final String KEY = "git:https://example.visualstudio.com";
+
+    @Test
+    public void token_roundTrip() {
+        final SecureInMemoryTokenStore underTest = new SecureInMemoryTokenStore();
+        final Token token = new Token("personal access token", TokenType.Personal);
+
+        assertTrue(underTest.add(KEY, token));
+        final Token actual = underTest.get(KEY);
+
+        assertEquals(token, actual);
+        assertNotSame(token, actual);
+        assertEquals(TokenType.Personal, actual.Type);
+    }
+
+    @Test
+    public void tokenPair_roundTrip() {
+        final SecureInMemoryTokenPairStore underTest = new SecureInMemoryTokenPairStore();
+        final TokenPair tokenPair = new TokenPair.TokenPairBuilder()
+                .withAccessToken("access")
+                .withRefreshToken("refresh")
+                .withParameter(TokenPair.EXPIRES_ON, "1476287437")
+                .build();
+
+        underTest.add(KEY, tokenPair);
+        final TokenPair actual = underTest.get(KEY);
+
+        assertEquals(tokenPair, actual);
+        assertEquals(1476287437000L, actual.getExpiresOn());
+    }
+
+    @Test
+    public void credential_addReplacesAndDeleteRemoves() {
+        final SecureInMemoryCredentialStore underTest = new SecureInMemoryCredentialStore();
+        underTest.add(KEY, new Credential("user", "first"));
+        underTest.add(KEY, new Credential("user", "sécond"));
+
+        assertEquals(new Credential("user", "sécond"), underTest.get(KEY));
+
+        assertTrue(underTest.delete(KEY));
+        assertNull(underTest.get(KEY));
+        assertTrue("deleting a missing secret is fine", underTest.delete(KEY));
+    }
+
+    @Test
+    public void clear() {
+        final SecureInMemoryCredentialStore underTest = new SecureInMemoryCredentialStore();
+        underTest.add(KEY, new Credential("user", "password"));
+        underTest.add("other", new Credential("user", "password"));
+
+        underTest.clear();
+
+        assertNull(underTest.get(KEY));
+        assertNull(underTest.get("other"));
+    }
+
+    @Test
+    public void isSecure() {
+        assertTrue(new SecureInMemoryTokenStore().isSecure());
+    }
+}
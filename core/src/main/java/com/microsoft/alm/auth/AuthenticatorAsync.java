@@ -0,0 +1,101 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.VsoTokenScope;
+
+import java.net.URI;
+import java.util.concurrent.Future;
+
+/**
+ * Non-blocking counterpart of {@link Authenticator}.
+ *
+ * Each method hands a call to its {@link Authenticator} equivalent to another thread and returns immediately,
+ * without waiting for the call to start.  The {@link Future} completes with what the synchronous method would
+ * have returned, or fails with what it would have thrown.  Cancelling the {@link Future} interrupts the call if
+ * it hasn't finished yet.
+ *
+ * This only moves the blocking call off the caller's thread: the call still reads the store, validates or
+ * refreshes what it found, and prompts or mints a new secret one step after the other, blocking the thread it
+ * runs on, including while a prompt waits for the user.  The steps aren't exposed as separate stages to compose.
+ */
+public interface AuthenticatorAsync {
+
+    /**
+     * Asynchronous version of {@link Authenticator#getCredential(URI, PromptBehavior)}.
+     *
+     * @param key
+     *      URI identifies the resource been requested
+     * @param promptBehavior
+     *      dictates whether we should prompt the user for input or not
+     *
+     * @return
+     *      a {@link Future} for the credential that can be used to access the resource
+     */
+    Future<Credential> getCredentialAsync(final URI key, final PromptBehavior promptBehavior);
+
+    /**
+     * Asynchronous version of {@link Authenticator#getOAuth2TokenPair(PromptBehavior)}.
+     *
+     * @param promptBehavior
+     *      dictates whether we should prompt the user for input or not
+     *
+     * @return a {@link Future} for an OAuth2 TokenPair from Azure AD
+     */
+    Future<TokenPair> getOAuth2TokenPairAsync(final PromptBehavior promptBehavior);
+
+    /**
+     * Asynchronous version of {@link Authenticator#getOAuth2TokenPair(URI, PromptBehavior)}.
+     *
+     * @param uri
+     *      a vsts account url, the retrieved OAuth2 token will be from the same tenant
+     * @param promptBehavior
+     *      dictates whether we should prompt the user for input or not
+     *
+     * @return a {@link Future} for an OAuth2 TokenPair from Azure AD
+     */
+    Future<TokenPair> getOAuth2TokenPairAsync(final URI uri, final PromptBehavior promptBehavior);
+
+    /**
+     * Asynchronous version of
+     * {@link Authenticator#getPersonalAccessToken(URI, VsoTokenScope, String, PromptBehavior)}.
+     *
+     * @param key
+     *      The account URI we will be retrieve PAT for
+     * @param tokenScope
+     *      If we are generating token, the scope of the newly generated token
+     * @param patDisplayName
+     *      If we are generating token, the display name of the token
+     * @param promptBehavior
+     *      dictates whether we should prompt the user for input or not
+     *
+     * @return a {@link Future} for a Personal Access Token scoped to the specified account URI
+     */
+    Future<Token> getPersonalAccessTokenAsync(final URI key, final VsoTokenScope tokenScope,
+                                              final String patDisplayName, final PromptBehavior promptBehavior);
+
+    /**
+     * Asynchronous version of
+     * {@link Authenticator#getPersonalAccessToken(URI, VsoTokenScope, String, PromptBehavior, TokenPair)}.
+     *
+     * @param key
+     *      The account URI we will be retrieve PAT for
+     * @param tokenScope
+     *      If we are generating token, the scope of the newly generated token
+     * @param patDisplayName
+     *      If we are generating token, the display name of the token
+     * @param promptBehavior
+     *      dictates whether we should prompt the user for input or not
+     * @param oauth2Token
+     *      if oauth2Token is not null, use it and do not prompt to login via browser
+     *
+     * @return a {@link Future} for a Personal Access Token scoped to the specified account URI
+     */
+    Future<Token> getPersonalAccessTokenAsync(final URI key, final VsoTokenScope tokenScope,
+                                              final String patDisplayName, final PromptBehavior promptBehavior,
+                                              final TokenPair oauth2Token);
+}
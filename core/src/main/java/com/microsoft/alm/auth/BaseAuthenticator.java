@@ -8,12 +8,23 @@ import com.microsoft.alm.secret.Secret;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.secret.VsoTokenScope;
+import com.microsoft.alm.helpers.DaemonThreadFactory;
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.LoggingHelper;
+import com.microsoft.alm.helpers.MetricsHelper;
+import com.microsoft.alm.helpers.Span;
+import com.microsoft.alm.helpers.TracingHelper;
 import com.microsoft.alm.storage.SecretStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -22,12 +33,36 @@ import java.util.concurrent.atomic.AtomicReference;
  * Real authenticator should extend this no op authenticator, and they do not have to implement
  * methods that don't make sense to them
  */
-public abstract class BaseAuthenticator implements Authenticator {
+public abstract class BaseAuthenticator implements Authenticator, AuthenticatorAsync {
 
     private static final Logger logger = LoggerFactory.getLogger(BaseAuthenticator.class);
 
+    static final int DEFAULT_EXECUTOR_THREADS = 4;
+    private static final long DEFAULT_EXECUTOR_KEEP_ALIVE_SECONDS = 60;
+
+    private static class DefaultExecutorHolder {
+        static final ExecutorService INSTANCE = createDefaultExecutor();
+    }
+
+    /**
+     * A few daemon threads that go away when idle, in front of an unbounded queue.  Requests beyond what the
+     * threads are working on wait in the queue, so submitting one never blocks nor runs it on the caller's
+     * thread, and a burst of callers doesn't start a blocked thread for each of them.
+     */
+    static ThreadPoolExecutor createDefaultExecutor() {
+        final ThreadPoolExecutor result = new ThreadPoolExecutor(
+                DEFAULT_EXECUTOR_THREADS, DEFAULT_EXECUTOR_THREADS,
+                DEFAULT_EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new DaemonThreadFactory("authenticator"));
+        result.allowCoreThreadTimeOut(true);
+        return result;
+    }
+
     protected Secret.IUriNameConversion uriToKeyConversion = Secret.DefaultUriNameConversion;
 
+    private volatile ExecutorService executor;
+
     @Override
     public Secret.IUriNameConversion getUriToKeyConversion() {
         return uriToKeyConversion;
@@ -97,6 +132,84 @@ public abstract class BaseAuthenticator implements Authenticator {
         return null;
     }
 
+    @Override
+    public Future<Credential> getCredentialAsync(final URI key, final PromptBehavior promptBehavior) {
+        return getExecutor().submit(new Callable<Credential>() {
+            @Override
+            public Credential call() throws Exception {
+                return getCredential(key, promptBehavior);
+            }
+        });
+    }
+
+    @Override
+    public Future<TokenPair> getOAuth2TokenPairAsync(final PromptBehavior promptBehavior) {
+        return getExecutor().submit(new Callable<TokenPair>() {
+            @Override
+            public TokenPair call() throws Exception {
+                return getOAuth2TokenPair(promptBehavior);
+            }
+        });
+    }
+
+    @Override
+    public Future<TokenPair> getOAuth2TokenPairAsync(final URI uri, final PromptBehavior promptBehavior) {
+        return getExecutor().submit(new Callable<TokenPair>() {
+            @Override
+            public TokenPair call() throws Exception {
+                return getOAuth2TokenPair(uri, promptBehavior);
+            }
+        });
+    }
+
+    @Override
+    public Future<Token> getPersonalAccessTokenAsync(final URI key, final VsoTokenScope tokenScope,
+                                                     final String patDisplayName,
+                                                     final PromptBehavior promptBehavior) {
+        return getExecutor().submit(new Callable<Token>() {
+            @Override
+            public Token call() throws Exception {
+                return getPersonalAccessToken(key, tokenScope, patDisplayName, promptBehavior);
+            }
+        });
+    }
+
+    @Override
+    public Future<Token> getPersonalAccessTokenAsync(final URI key, final VsoTokenScope tokenScope,
+                                                     final String patDisplayName,
+                                                     final PromptBehavior promptBehavior,
+                                                     final TokenPair oauth2Token) {
+        return getExecutor().submit(new Callable<Token>() {
+            @Override
+            public Token call() throws Exception {
+                return getPersonalAccessToken(key, tokenScope, patDisplayName, promptBehavior, oauth2Token);
+            }
+        });
+    }
+
+    /**
+     * The executor the asynchronous methods run the synchronous ones on.  Unless one was set with
+     * {@link #setExecutor(ExecutorService)}, this is a small, bounded pool of daemon threads shared by all
+     * authenticators; when all of them are busy, further requests wait their turn in a queue.
+     *
+     * @return the executor used to run asynchronous requests
+     */
+    public ExecutorService getExecutor() {
+        final ExecutorService result = this.executor;
+        return result != null ? result : DefaultExecutorHolder.INSTANCE;
+    }
+
+    /**
+     * Runs the asynchronous requests of this authenticator on the specified executor, for example to bound
+     * the number of concurrent requests.  If the executor rejects a request, the asynchronous method throws
+     * its {@link java.util.concurrent.RejectedExecutionException}.
+     *
+     * @param executor the executor to use, or {@code null} to go back to the shared default
+     */
+    public void setExecutor(final ExecutorService executor) {
+        this.executor = executor;
+    }
+
     @Override
     public boolean signOut() {
         return false;
@@ -107,12 +220,17 @@ public abstract class BaseAuthenticator implements Authenticator {
         Debug.Assert(uri != null, "uri cannot be null");
 
         logger.debug("Signing out from uri: {}", uri);
-        final String key = getKey(uri);
-        Debug.Assert(key != null, "key conversion failed");
-
-        synchronized (getStore()) {
-            logger.debug("Deleting secret for {}", key);
-            return getStore().delete(key);
+        final Span span = TracingHelper.startSpan(TracingHelper.AUTHENTICATOR_SIGN_OUT, getAuthType());
+        try {
+            final String key = getKey(uri);
+            Debug.Assert(key != null, "key conversion failed");
+
+            synchronized (getStore()) {
+                logger.debug("Deleting secret for {}", key);
+                return getStore().delete(key);
+            }
+        } finally {
+            TracingHelper.finish(span);
         }
     }
 
@@ -127,7 +245,7 @@ public abstract class BaseAuthenticator implements Authenticator {
      * @return key used to retrieve and store secrets in a secret store
      */
     public String getKey(final URI targetUri) {
-        logger.debug("Getting secret for uri: {}", targetUri);
+        LoggingHelper.lookupDebug(logger, "Getting secret for uri: {}", targetUri);
         return this.uriToKeyConversion.convert(targetUri, getAuthType());
     }
 
@@ -222,41 +340,67 @@ public abstract class BaseAuthenticator implements Authenticator {
          */
         public E retrieve(final String key, final SecretStore<E> store,
                                                 final PromptBehavior promptBehavior) {
-            logger.debug("Retrieving secret with key: {}, and prompt behavior: {}.", key, promptBehavior.name());
+            LoggingHelper.lookupDebug(logger, "Retrieving secret with key: {}, and prompt behavior: {}.", key, promptBehavior);
+
+            final Span span = TracingHelper.getTracer() == null
+                    ? null
+                    : TracingHelper.startSpan(TracingHelper.AUTHENTICATOR_RETRIEVE, getMetricsTag(key));
+            try {
+                return retrieve(key, store, promptBehavior, MetricsHelper.isRecording() ? getMetricsTag(key) : "");
+            } finally {
+                TracingHelper.finish(span);
+            }
+        }
+
+        private E retrieve(final String key, final SecretStore<E> store, final PromptBehavior promptBehavior,
+                           final String metricsTag) {
+            long start;
 
             E secret = null;
             if (promptBehavior != PromptBehavior.ALWAYS) {
                 // Not ALWAYS prompt, so let's read from the store for any cached secret
-                logger.debug("Reading secret from store for key: {}", key);
+                LoggingHelper.lookupDebug(logger, "Reading secret from store for key: {}", key);
+                start = MetricsHelper.start();
                 secret = readFromStore(key, store);
+                MetricsHelper.stop(MetricsHelper.RETRIEVER_STORE_READ, metricsTag, start);
 
                 if (secret != null) {
                     final AtomicReference<E> secretHolder = new AtomicReference<E>();
                     secretHolder.set(secret);
 
                     // Verify this secret is valid
-                    if (tryGetValidated(secret, secretHolder)) {
+                    start = MetricsHelper.start();
+                    final boolean valid = tryGetValidated(secret, secretHolder);
+                    MetricsHelper.stop(MetricsHelper.RETRIEVER_VALIDATE, metricsTag, start);
+
+                    if (valid) {
+                        MetricsHelper.increment(MetricsHelper.RETRIEVER_HIT, metricsTag);
                         final E validatedSecret = secretHolder.get();
 
                         // The secret maybe different now, e.g. we could use the refresh token to generate
                         // a new Access Token
                         if (!validatedSecret.equals(secret)) {
+                            start = MetricsHelper.start();
                             store.delete(key);
                             store.add(key, validatedSecret);
+                            MetricsHelper.stop(MetricsHelper.RETRIEVER_STORE_WRITE, metricsTag, start);
 
                             secret = validatedSecret;
                         }
                     } else {
+                        MetricsHelper.increment(MetricsHelper.RETRIEVER_INVALID, metricsTag);
                         secret = null;
                         // Remove the invalid secret from store
                         store.delete(key);
                     }
+                } else {
+                    MetricsHelper.increment(MetricsHelper.RETRIEVER_MISS, metricsTag);
                 }
             }
 
             if (promptBehavior == PromptBehavior.NEVER) {
                 // NEVER prompt, return what we got from the store and call it done
-                logger.debug("Returning whatever we retrieved from the store, do not prompt.");
+                LoggingHelper.lookupDebug(logger, "Returning whatever we retrieved from the store, do not prompt.");
                 return secret;
             }
 
@@ -265,13 +409,26 @@ public abstract class BaseAuthenticator implements Authenticator {
                 // Either ALWAYS prompt, or we don't have any secret cached for this key
                 // AUTO-retrieves when necessary
                 logger.debug("Retrieving secret.");
+                start = MetricsHelper.start();
                 secret = doRetrieve();
+                MetricsHelper.stop(MetricsHelper.RETRIEVER_RETRIEVE, metricsTag, start);
 
                 // Store it so we don't have to retrieve again
+                start = MetricsHelper.start();
                 store(key, store, secret);
+                MetricsHelper.stop(MetricsHelper.RETRIEVER_STORE_WRITE, metricsTag, start);
             }
 
             return secret;
         }
+
+        /**
+         * The namespace of the key, such as {@code "OAuth2"} for {@code "OAuth2:https://app.vssps.visualstudio.com"},
+         * distinguishes the measurements and spans of different authenticators.
+         */
+        private static String getMetricsTag(final String key) {
+            final int colon = key.indexOf(':');
+            return colon > 0 ? key.substring(0, colon) : "default";
+        }
     }
 }
@@ -7,6 +7,7 @@ import com.microsoft.alm.auth.BaseAuthenticator;
 import com.microsoft.alm.auth.PromptBehavior;
 import com.microsoft.alm.secret.Credential;
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.LoggingHelper;
 import com.microsoft.alm.storage.InsecureInMemoryStore;
 import com.microsoft.alm.storage.SecretStore;
 import org.slf4j.Logger;
@@ -68,7 +69,7 @@ public class BasicAuthAuthenticator extends BaseAuthenticator {
 
     @Override
     public Credential getCredential(final URI uri) {
-        logger.debug("Retrieving credential for uri: {}", uri);
+        LoggingHelper.lookupDebug(logger, "Retrieving credential for uri: {}", uri);
         return getCredential(uri, PromptBehavior.AUTO);
     }
 
@@ -77,7 +78,7 @@ public class BasicAuthAuthenticator extends BaseAuthenticator {
         Debug.Assert(uri != null, "getCrednetial uri key cannot be null");
         Debug.Assert(promptBehavior != null, "getCrednetial promptBehavior cannot be null");
 
-        logger.debug("Retrieving credential for uri: {} with prompt behavior: {}.", uri, promptBehavior.name());
+        LoggingHelper.lookupDebug(logger, "Retrieving credential for uri: {} with prompt behavior: {}.", uri, promptBehavior);
 
         final String key = getKey(uri);
 
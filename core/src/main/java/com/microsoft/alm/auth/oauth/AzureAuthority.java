@@ -199,13 +199,79 @@ public class AzureAuthority {
         return null;
     }
 
-    private TokenPair doAcquireToken(final URI tokenEndpoint, final StringContent requestContent) throws IOException {
+    private TokenPair doAcquireToken(final URI tokenEndpoint, final StringContent requestContent,
+                                     final String resource) throws IOException {
         final HttpClient client = Global.getHttpClientFactory().createHttpClient();
 
+        final long now = System.currentTimeMillis();
         final String responseContent = client.getPostResponseText(tokenEndpoint, requestContent);
         final TokenPair tokenPair = new TokenPair(responseContent);
 
-        return tokenPair;
+        return addMetadata(tokenPair, authorityHostUrl, resource, now);
+    }
+
+    /**
+     * @return the tenant this authority signs users into; {@code null} for the {@link #CommonTenant}.
+     */
+    public String getTenantId() {
+        return getTenantId(authorityHostUrl);
+    }
+
+    static String getTenantId(final String authorityHostUrl) {
+        final String tenantId = authorityHostUrl.substring(authorityHostUrl.lastIndexOf('/') + 1);
+        if (tenantId.length() == 0 || CommonTenant.equalsIgnoreCase(tenantId)) {
+            return null;
+        }
+        return tenantId;
+    }
+
+    /**
+     * Fills in the expiry, issue time, resource and tenant of a {@link TokenPair} that the token endpoint didn't
+     * include in its response, so that they are persisted with the tokens.
+     *
+     * @param tokenPair        the tokens from the token endpoint.
+     * @param authorityHostUrl the authority that issued them, whose last path segment is the tenant.
+     * @param resource         the resource they were requested for.
+     * @param requestedOn      when they were requested, in milliseconds since the epoch.
+     * @return {@code tokenPair} if nothing was missing; otherwise a copy with the missing parameters.
+     */
+    static TokenPair addMetadata(final TokenPair tokenPair, final String authorityHostUrl, final String resource,
+                                 final long requestedOn) {
+        final QueryString missing = new QueryString();
+        final long requestedOnSeconds = requestedOn / 1000;
+        if (!tokenPair.Parameters.containsKey(TokenPair.EXPIRES_ON)) {
+            final String expiresIn = tokenPair.Parameters.get(OAuthParameter.EXPIRES_IN);
+            if (expiresIn != null) {
+                try {
+                    final long expiresOn = requestedOnSeconds + (long) Double.parseDouble(expiresIn);
+                    missing.put(TokenPair.EXPIRES_ON, Long.toString(expiresOn));
+                } catch (final NumberFormatException ignored) {
+                    logger.debug("   ignoring malformed {}: {}", OAuthParameter.EXPIRES_IN, expiresIn);
+                }
+            }
+        }
+        if (!tokenPair.Parameters.containsKey(TokenPair.NOT_BEFORE)) {
+            missing.put(TokenPair.NOT_BEFORE, Long.toString(requestedOnSeconds));
+        }
+        if (!tokenPair.Parameters.containsKey(TokenPair.RESOURCE) && resource != null) {
+            missing.put(TokenPair.RESOURCE, resource);
+        }
+        if (!tokenPair.Parameters.containsKey(TokenPair.TENANT_ID)) {
+            final String tenantId = getTenantId(authorityHostUrl);
+            if (tenantId != null) {
+                missing.put(TokenPair.TENANT_ID, tenantId);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return tokenPair;
+        }
+        return new TokenPair.TokenPairBuilder()
+                .withAccessToken(tokenPair.AccessToken.Value)
+                .withRefreshToken(tokenPair.RefreshToken.Value)
+                .withParameters(tokenPair.Parameters)
+                .withParameters(missing)
+                .build();
     }
 
     /**
@@ -229,7 +295,7 @@ public class AzureAuthority {
 
         logger.debug("AzureAuthority::acquireToken");
 
-        final UUID correlationId = null;
+        final UUID correlationId = TracingHelper.getCorrelationId();
         TokenPair tokens = null;
         queryParameters = ObjectExtensions.coalesce(queryParameters, StringHelper.Empty);
 
@@ -243,7 +309,7 @@ public class AzureAuthority {
             final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
             final StringContent requestContent = createTokenRequest(resource, clientId, authorizationCode, redirectUri, correlationId);
 
-            tokens = doAcquireToken(tokenEndpoint, requestContent);
+            tokens = doAcquireToken(tokenEndpoint, requestContent, resource);
             logger.debug("   token acquisition succeeded.");
 
         } catch (final IOException e) {
@@ -274,7 +340,7 @@ public class AzureAuthority {
         final StringContent requestContent = createTokenRequestByRefreshToken(resource, clientId, refreshToken);
 
         try {
-            final TokenPair tokenPair = doAcquireToken(tokenEndpoint, requestContent);
+            final TokenPair tokenPair = doAcquireToken(tokenEndpoint, requestContent, resource);
             return tokenPair;
         } catch (IOException e) {
             // TODO: 449248: silently catching the exception here seems horribly wrong - again
@@ -304,9 +370,11 @@ public class AzureAuthority {
 
         final URI tokenEndpoint = createTokenEndpointUri(authorityHostUrl);
         final TokenPair tokens = azureDeviceFlow.requestToken(tokenEndpoint, clientId, response);
+        // polling may have taken minutes, but the last request was just answered
+        final long now = System.currentTimeMillis();
 
         logger.debug("   token acquisition succeeded.");
-        return tokens;
+        return tokens == null ? null : addMetadata(tokens, authorityHostUrl, resource, now);
     }
 
     private String acquireAuthorizationCode(final String resource, final String clientId, final URI redirectUri,
@@ -4,8 +4,6 @@
 package com.microsoft.alm.auth.oauth;
 
 import com.microsoft.alm.helpers.HttpClient;
-import com.microsoft.alm.helpers.HttpResponse;
-import com.microsoft.alm.helpers.PropertyBag;
 import com.microsoft.alm.helpers.QueryString;
 import com.microsoft.alm.helpers.StringContent;
 import com.microsoft.alm.helpers.StringHelper;
@@ -16,14 +14,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.util.Calendar;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
 public class DeviceFlowImpl implements DeviceFlow {
 
     private static final Logger logger = LoggerFactory.getLogger(DeviceFlowImpl.class);
 
+    private final DeviceFlowPoller poller;
+
+    public DeviceFlowImpl() {
+        this(DeviceFlowPoller.getSharedScheduler());
+    }
+
+    /*default*/ DeviceFlowImpl(final ScheduledExecutorService scheduler) {
+        this.poller = new DeviceFlowPoller(scheduler);
+    }
+
     @Override
     public DeviceFlowResponse requestAuthorization(final URI deviceEndpoint, final String clientId, final String scope) {
         final QueryString bodyParameters = new QueryString();
@@ -69,6 +78,43 @@ public class DeviceFlowImpl implements DeviceFlow {
 
     @Override
     public TokenPair requestToken(final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) throws AuthorizationException {
+        final Future<TokenPair> future = requestTokenAsync(tokenEndpoint, clientId, deviceFlowResponse);
+        try {
+            return future.get();
+        }
+        catch (final InterruptedException e) {
+            future.cancel(true);
+            throw new Error(e);
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AuthorizationException) {
+                throw (AuthorizationException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new Error(cause);
+        }
+    }
+
+    /**
+     * Starts polling the token endpoint in the background, without blocking the calling thread.
+     *
+     * Attempts run on a scheduler shared by all device flows, honouring the interval requested by the server
+     * (plus a little jitter), slowing down when asked to, and giving up when the verification code expires.
+     *
+     * @param tokenEndpoint      the authorization server's token endpoint.
+     * @param clientId           the client identifier.
+     * @param deviceFlowResponse the response obtained from {@link #requestAuthorization(URI, String, String)}.
+     * @return                   a {@link Future} that completes with the pair of tokens.  It fails with an
+     *                           {@link AuthorizationException} if the end-user denied the request, cancelled it
+     *                           or the verification code expired.  Cancelling it stops polling.
+     */
+    public Future<TokenPair> requestTokenAsync(final URI tokenEndpoint, final String clientId, final DeviceFlowResponse deviceFlowResponse) {
         final QueryString bodyParameters = new QueryString();
         bodyParameters.put(OAuthParameter.GRANT_TYPE, OAuthParameter.DEVICE_CODE);
         bodyParameters.put(OAuthParameter.CODE, deviceFlowResponse.getDeviceCode());
@@ -76,69 +122,9 @@ public class DeviceFlowImpl implements DeviceFlow {
         contributeTokenRequestParameters(bodyParameters);
         final StringContent requestBody = StringContent.createUrlEncoded(bodyParameters);
 
-        final int intervalSeconds = deviceFlowResponse.getInterval();
-        int intervalMilliseconds = intervalSeconds * 1000;
         final HttpClient client = Global.getHttpClientFactory().createHttpClient();
-        String responseText = null;
-        final Calendar expiresAt = deviceFlowResponse.getExpiresAt();
-
-        do {
-            if (deviceFlowResponse.cancelRequestedByUser()) {
-                throw new AuthorizationException("request_cancelled", "Stop polling for Token.", null, null);
-            }
-
-            try {
-                final HttpResponse response = client.getPostResponse(tokenEndpoint, requestBody);
-
-                if (response.status == HttpURLConnection.HTTP_OK) {
-                    responseText = response.responseText;
-                    break;
-                }
-                else {
-                    final String errorResponseText = response.errorText;
-                    if (response.status == HttpURLConnection.HTTP_BAD_REQUEST) {
-                        final PropertyBag bag = PropertyBag.fromJson(errorResponseText);
-                        final String errorCode = bag.readOptionalString(OAuthParameter.ERROR_CODE, "unknown_error");
-                        if (OAuthParameter.ERROR_AUTHORIZATION_PENDING.equals(errorCode)) {
-                            try {
-                                Thread.sleep(intervalMilliseconds);
-                            } catch (final InterruptedException e) {
-                                throw new Error(e);
-                            }
-                            continue;
-                        }
-                        else if (OAuthParameter.ERROR_SLOW_DOWN.equals(errorCode)) {
-                            intervalMilliseconds *= 2;
-                            try {
-                                Thread.sleep(intervalMilliseconds);
-                            } catch (final InterruptedException e) {
-                                throw new Error(e);
-                            }
-                            continue;
-                        }
-                        final String errorDescription = bag.readOptionalString(OAuthParameter.ERROR_DESCRIPTION, null);
-                        final String errorUriString = bag.readOptionalString(OAuthParameter.ERROR_URI, null);
-                        final URI errorUri = errorUriString == null ? null : URI.create(errorUriString);
-                        throw new AuthorizationException(errorCode, errorDescription, errorUri, null);
-                    }
-                    else {
-                        throw new Error("Token endpoint returned HTTP " + response.status + ":\n" + errorResponseText);
-                    }
-                }
-            }
-            catch (final IOException e) {
-                throw new Error(e);
-            }
-        }
-        while (Calendar.getInstance().compareTo(expiresAt) <= 0);
-
-        if (responseText == null) {
-            throw new AuthorizationException("code_expired", "The verification code expired.", null, null);
-        }
-        final TokenPair tokenPair = buildTokenPair(responseText);
-
-        deviceFlowResponse.setTokenAcquired();
-        return tokenPair;
+        logger.debug("Polling {} every {} seconds.", tokenEndpoint, deviceFlowResponse.getInterval());
+        return poller.start(this, client, tokenEndpoint, requestBody, deviceFlowResponse);
     }
 
     /**
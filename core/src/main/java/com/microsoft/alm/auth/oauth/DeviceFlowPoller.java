@@ -0,0 +1,282 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.oauth;
+
+import com.microsoft.alm.helpers.DaemonThreadFactory;
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.HttpResponse;
+import com.microsoft.alm.helpers.PropertyBag;
+import com.microsoft.alm.helpers.StringContent;
+import com.microsoft.alm.oauth2.useragent.AuthorizationException;
+import com.microsoft.alm.secret.TokenPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Polls a token endpoint on behalf of a {@link DeviceFlowImpl} without tying up a thread between attempts.
+ *
+ * Each attempt is a task on a {@link ScheduledExecutorService}, by default one small pool of daemon threads
+ * shared by every device flow in the process.  The outcome is delivered through a {@link java.util.concurrent.Future};
+ * cancelling it stops any further polling.
+ */
+class DeviceFlowPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceFlowPoller.class);
+
+    static final int SCHEDULER_THREADS = 2;
+    /**
+     * The most we will ever wait between two attempts, no matter how many times we are told to slow down.
+     */
+    static final long MAX_INTERVAL_MILLISECONDS = 60 * 1000;
+    /**
+     * Up to this fraction of the interval is added to each wait, so that flows started together don't
+     * keep hitting the server in lock-step.  We never wait less than the server asked.
+     */
+    static final double JITTER_FRACTION = 0.1;
+    /**
+     * How many times in a row the token endpoint may be unreachable before we give up.
+     */
+    static final int MAX_CONSECUTIVE_IO_FAILURES = 3;
+
+    private static final Random RANDOM = new Random();
+
+    private static class SharedSchedulerHolder {
+        static final ScheduledExecutorService INSTANCE = createScheduler();
+    }
+
+    static ScheduledExecutorService getSharedScheduler() {
+        return SharedSchedulerHolder.INSTANCE;
+    }
+
+    private static ScheduledExecutorService createScheduler() {
+        return new ScheduledThreadPoolExecutor(SCHEDULER_THREADS, new DaemonThreadFactory("device-flow-poller"));
+    }
+
+    static long addJitter(final long delayMilliseconds, final Random random) {
+        return delayMilliseconds + (long) (delayMilliseconds * JITTER_FRACTION * random.nextDouble());
+    }
+
+    static long backOff(final long intervalMilliseconds) {
+        return Math.min(intervalMilliseconds * 2, Math.max(intervalMilliseconds, MAX_INTERVAL_MILLISECONDS));
+    }
+
+    private final ScheduledExecutorService scheduler;
+
+    DeviceFlowPoller(final ScheduledExecutorService scheduler) {
+        Debug.Assert(scheduler != null, "scheduler cannot be null");
+        this.scheduler = scheduler;
+    }
+
+    TokenPoll start(final DeviceFlowImpl deviceFlow, final HttpClient client, final URI tokenEndpoint,
+                    final StringContent requestBody, final DeviceFlowResponse deviceFlowResponse) {
+        final TokenPoll poll = new TokenPoll(deviceFlow, client, tokenEndpoint, requestBody, deviceFlowResponse);
+        poll.schedule(0);
+        return poll;
+    }
+
+    /**
+     * The {@link Future} handed back to callers.  It is completed by whichever attempt gets the final answer,
+     * or by {@link #cancel(boolean)}; the first of those wins and unschedules the next attempt.
+     */
+    class TokenPoll implements Future<TokenPair> {
+
+        private final DeviceFlowImpl deviceFlow;
+        private final HttpClient client;
+        private final URI tokenEndpoint;
+        private final StringContent requestBody;
+        private final DeviceFlowResponse deviceFlowResponse;
+        private final long expiresAtMilliseconds;
+
+        private final Runnable attempt = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll();
+                }
+                catch (final Throwable t) {
+                    setException(t);
+                }
+            }
+        };
+
+        // only touched by the attempt that is currently running
+        private long intervalMilliseconds;
+        private int consecutiveIOFailures;
+
+        private volatile ScheduledFuture<?> nextAttempt;
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+        // guarded by this; only written once, before the latch is released
+        private boolean done;
+        private boolean cancelled;
+        private TokenPair result;
+        private Throwable failure;
+
+        TokenPoll(final DeviceFlowImpl deviceFlow, final HttpClient client, final URI tokenEndpoint,
+                  final StringContent requestBody, final DeviceFlowResponse deviceFlowResponse) {
+            this.deviceFlow = deviceFlow;
+            this.client = client;
+            this.tokenEndpoint = tokenEndpoint;
+            this.requestBody = requestBody;
+            this.deviceFlowResponse = deviceFlowResponse;
+            this.expiresAtMilliseconds = deviceFlowResponse.getExpiresAt().getTimeInMillis();
+            this.intervalMilliseconds = deviceFlowResponse.getInterval() * 1000L;
+        }
+
+        private boolean complete(final TokenPair result, final Throwable failure, final boolean cancelled) {
+            synchronized (this) {
+                if (done) {
+                    return false;
+                }
+                this.done = true;
+                this.cancelled = cancelled;
+                this.result = result;
+                this.failure = failure;
+            }
+            completed.countDown();
+            final ScheduledFuture<?> next = nextAttempt;
+            if (next != null) {
+                next.cancel(false);
+            }
+            return true;
+        }
+
+        private void set(final TokenPair tokenPair) {
+            complete(tokenPair, null, false);
+        }
+
+        private void setException(final Throwable t) {
+            complete(null, t, false);
+        }
+
+        /**
+         * Stops polling.  An attempt that is already talking to the token endpoint is left to finish,
+         * since the request can't be interrupted, but its answer is ignored and no further attempt is made.
+         */
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            return complete(null, null, true);
+        }
+
+        @Override
+        public synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public synchronized boolean isDone() {
+            return done;
+        }
+
+        @Override
+        public TokenPair get() throws InterruptedException, ExecutionException {
+            completed.await();
+            return report();
+        }
+
+        @Override
+        public TokenPair get(final long timeout, final TimeUnit unit)
+                throws InterruptedException, ExecutionException, TimeoutException {
+            if (!completed.await(timeout, unit)) {
+                throw new TimeoutException();
+            }
+            return report();
+        }
+
+        private synchronized TokenPair report() throws ExecutionException {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return result;
+        }
+
+        private void schedule(final long delayMilliseconds) {
+            final long delay = addJitter(delayMilliseconds, RANDOM);
+            if (delayMilliseconds > 0 && System.currentTimeMillis() + delay > expiresAtMilliseconds) {
+                setException(new AuthorizationException("code_expired", "The verification code expired.", null, null));
+                return;
+            }
+            nextAttempt = scheduler.schedule(attempt, delay, TimeUnit.MILLISECONDS);
+            // we may have been cancelled while scheduling
+            if (isDone()) {
+                nextAttempt.cancel(false);
+            }
+        }
+
+        private void poll() throws AuthorizationException {
+            if (isDone()) {
+                return;
+            }
+            if (deviceFlowResponse.cancelRequestedByUser()) {
+                throw new AuthorizationException("request_cancelled", "Stop polling for Token.", null, null);
+            }
+
+            final HttpResponse response;
+            try {
+                response = client.getPostResponse(tokenEndpoint, requestBody);
+            }
+            catch (final IOException e) {
+                consecutiveIOFailures++;
+                if (consecutiveIOFailures > MAX_CONSECUTIVE_IO_FAILURES) {
+                    setException(e);
+                    return;
+                }
+                logger.debug("Polling the token endpoint failed, will retry: {}", e.getMessage());
+                long delay = intervalMilliseconds;
+                for (int i = 0; i < consecutiveIOFailures; i++) {
+                    delay = backOff(delay);
+                }
+                schedule(delay);
+                return;
+            }
+            consecutiveIOFailures = 0;
+
+            if (response.status == HttpURLConnection.HTTP_OK) {
+                final TokenPair tokenPair = deviceFlow.buildTokenPair(response.responseText);
+                deviceFlowResponse.setTokenAcquired();
+                set(tokenPair);
+                return;
+            }
+
+            final String errorResponseText = response.errorText;
+            if (response.status != HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new Error("Token endpoint returned HTTP " + response.status + ":\n" + errorResponseText);
+            }
+
+            final PropertyBag bag = PropertyBag.fromJson(errorResponseText);
+            final String errorCode = bag.readOptionalString(OAuthParameter.ERROR_CODE, "unknown_error");
+            if (OAuthParameter.ERROR_AUTHORIZATION_PENDING.equals(errorCode)) {
+                schedule(intervalMilliseconds);
+            }
+            else if (OAuthParameter.ERROR_SLOW_DOWN.equals(errorCode)) {
+                intervalMilliseconds = backOff(intervalMilliseconds);
+                schedule(intervalMilliseconds);
+            }
+            else {
+                final String errorDescription = bag.readOptionalString(OAuthParameter.ERROR_DESCRIPTION, null);
+                final String errorUriString = bag.readOptionalString(OAuthParameter.ERROR_URI, null);
+                final URI errorUri = errorUriString == null ? null : URI.create(errorUriString);
+                throw new AuthorizationException(errorCode, errorDescription, errorUri, null);
+            }
+        }
+    }
+}
@@ -11,11 +11,14 @@ import com.microsoft.alm.helpers.Action;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.LoggingHelper;
+import com.microsoft.alm.helpers.MetricsHelper;
 import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.oauth2.useragent.AuthorizationException;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.secret.TokenType;
 import com.microsoft.alm.storage.InsecureInMemoryStore;
 import com.microsoft.alm.storage.SecretStore;
 import org.slf4j.Logger;
@@ -24,6 +27,15 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -49,18 +61,33 @@ public class OAuth2Authenticator extends BaseAuthenticator {
     // hence "private" modifier
     private static final String USER_AGENT_PROVIDER_PROPERTY_NAME = "userAgentProvider";
 
+    // how many tenants' token pairs are kept besides the one of the common tenant
+    private static final String MAX_TENANTS_PROPERTY_NAME = "oauth2MaxTenants";
+    private static final int DEFAULT_MAX_TENANTS = 8;
+
+    // the tenants with a token pair in the store are listed, separated by spaces, in a Token kept under the common
+    // tenant's key followed by this suffix, in the tenant index store
+    private static final String TENANT_INDEX_SUFFIX = "/tenants";
+
     private final String resource;
     private final String clientId;
     private final URI redirectUri;
 
     private final SecretStore<TokenPair> store;
 
+    private final SecretStore<Token> tenantIndexStore;
+
     private final OAuth2UseragentValidator oAuth2UseragentValidator;
 
     private final Action<DeviceFlowResponse> deviceFlowCallback;
 
     private AzureAuthorityProvider azureAuthorityProvider = new AzureAuthorityProvider();
 
+    private final int maxTenants;
+
+    // the keys of the per-tenant token pairs this authenticator used, least recently used first
+    private final LinkedHashMap<String, Boolean> tenantKeys = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+
     /**
      * Get an OAuth2 authenticator
      *
@@ -117,6 +144,13 @@ public class OAuth2Authenticator extends BaseAuthenticator {
     /*default*/ OAuth2Authenticator(final String resource, final String clientId, final URI redirectUri,
                         final SecretStore<TokenPair> store, final OAuth2UseragentValidator oAuth2UseragentValidator,
                         final Action<DeviceFlowResponse> deviceFlowCallback) {
+        this(resource, clientId, redirectUri, store, null, oAuth2UseragentValidator, deviceFlowCallback);
+    }
+
+    /*default*/ OAuth2Authenticator(final String resource, final String clientId, final URI redirectUri,
+                        final SecretStore<TokenPair> store, final SecretStore<Token> tenantIndexStore,
+                        final OAuth2UseragentValidator oAuth2UseragentValidator,
+                        final Action<DeviceFlowResponse> deviceFlowCallback) {
         Debug.Assert(resource != null, "resource cannot be null");
         Debug.Assert(clientId != null, "clientId cannot be null");
         Debug.Assert(redirectUri != null, "redirectUri cannot be null");
@@ -129,6 +163,25 @@ public class OAuth2Authenticator extends BaseAuthenticator {
 
         logger.debug("Using default SecretStore? {}", store == null);
         this.store = store == null ? new InsecureInMemoryStore<TokenPair>() : store;
+        logger.debug("Using default tenant index store? {}", tenantIndexStore == null);
+        this.tenantIndexStore = tenantIndexStore == null ? new InsecureInMemoryStore<Token>() : tenantIndexStore;
+
+        this.maxTenants = getMaxTenants();
+    }
+
+    private static int getMaxTenants() {
+        final String value = SettingsHelper.getInstance().getProperty(MAX_TENANTS_PROPERTY_NAME,
+                Integer.toString(DEFAULT_MAX_TENANTS));
+        try {
+            final int result = Integer.parseInt(value.trim());
+            if (result > 0) {
+                return result;
+            }
+        } catch (final NumberFormatException ignored) {
+            // warned about below
+        }
+        logger.warn("Ignoring {}: '{}' is not a positive number.", MAX_TENANTS_PROPERTY_NAME, value);
+        return DEFAULT_MAX_TENANTS;
     }
 
     @Override
@@ -161,12 +214,26 @@ public class OAuth2Authenticator extends BaseAuthenticator {
         Debug.Assert(promptBehavior != null, "getOAuth2TokenPair promptBehavior cannot be null");
         Debug.Assert(uri != null, "getOAuth2TokenPair uri cannot be null");
 
-        logger.debug("Retrieving OAuth2 TokenPair with prompt behavior: {}", promptBehavior.name());
+        LoggingHelper.lookupDebug(logger, "Retrieving OAuth2 TokenPair with prompt behavior: {}", promptBehavior);
 
-        final String key = getKey(APP_VSSPS_VISUALSTUDIO);
+        final AzureAuthority azureAuthority = getAzureAuthority(uri);
+        final String commonKey = getKey(APP_VSSPS_VISUALSTUDIO);
+        final String key = getTenantKey(azureAuthority);
 
         final SecretRetriever<TokenPair> secretRetriever = new SecretRetriever<TokenPair>() {
 
+            @Override
+            protected TokenPair readFromStore(final String key, final SecretStore<TokenPair> store) {
+                final TokenPair result = super.readFromStore(key, store);
+                if (result != null || key.equals(commonKey)) {
+                    return result;
+                }
+                // The first time a tenant is used, start from the common tenant's pair: its refresh token can
+                // be redeemed with any tenant the user belongs to, which saves prompting them.
+                LoggingHelper.lookupDebug(logger, "No OAuth2 TokenPair for {}, trying the common tenant's.", key);
+                return super.readFromStore(commonKey, store);
+            }
+
             private boolean validateAccessToken(final Token accessToken, final URI validationEndpoint) {
                 final HttpClient client = Global.getHttpClientFactory().createHttpClient();
                 accessToken.contributeHeader(client.getHeaders());
@@ -189,33 +256,88 @@ public class OAuth2Authenticator extends BaseAuthenticator {
                 final URI validationEndpoint = URI.create(VALIDATION_ENDPOINT);
                 boolean valid = false;
 
-                if (tokenPair.AccessToken != null && !StringHelper.isNullOrEmpty(tokenPair.AccessToken.Value)) {
-                    logger.debug("Validating stored OAuth2 Access Token...");
+                final String tokenResource = tokenPair.getResource();
+                if (tokenResource != null && !tokenResource.equals(resource)) {
+                    // the access token is of no use to us, but the refresh token can be redeemed for our resource
+                    LoggingHelper.lookupDebug(logger, "Stored OAuth2 TokenPair is for resource: {}", tokenResource);
+                } else if (tokenPair.isAccessTokenExpired(System.currentTimeMillis())) {
+                    // no need to ask the server about a token the store says has expired
+                    LoggingHelper.lookupDebug(logger, "Stored OAuth2 Access Token has expired.");
+                } else if (tokenPair.AccessToken != null && !StringHelper.isNullOrEmpty(tokenPair.AccessToken.Value)) {
+                    LoggingHelper.lookupDebug(logger, "Validating stored OAuth2 Access Token...");
                     valid = validateAccessToken(tokenPair.AccessToken, validationEndpoint);
                 }
 
-                if (!valid && tokenPair.RefreshToken != null
-                        && !StringHelper.isNullOrEmpty(tokenPair.RefreshToken.Value)) {
-                    logger.debug("OAuth2 Access Token is not valid, and we have a refresh token, try refreshing...");
-
-                    final TokenPair renewedTokenPair =
-                            getAzureAuthority(uri).acquireTokenByRefreshToken(clientId, resource, tokenPair.RefreshToken);
+                if (!valid) {
+                    logger.debug("OAuth2 Access Token is not valid, try refreshing...");
 
-                    if (renewedTokenPair != null
-                            && renewedTokenPair.AccessToken.Value != null
-                            && renewedTokenPair.RefreshToken.Value != null) {
-                        logger.debug("OAuth2 Access Token refreshed successfully.");
+                    final TokenPair renewedTokenPair = redeem(tokenPair);
+                    if (renewedTokenPair != null) {
                         valid = true;
                         holder.set(renewedTokenPair);
                     }
                 }
 
-                logger.debug("OAuth2 Access Token is {}.", valid ? "valid" : "invalid.");
+                LoggingHelper.lookupDebug(logger, "OAuth2 Access Token is {}.", valid ? "valid" : "invalid.");
                 return valid;
             }
 
+            // the refresh tokens already redeemed during this lookup, which needn't be tried twice
+            private final Set<String> redeemedRefreshTokens = new HashSet<String>();
+
+            /**
+             * Redeems the refresh token of a pair for tokens to our resource, which AAD allows whatever resource
+             * the pair was issued for, as long as it is in the same tenant.
+             *
+             * @return the new pair; {@code null} if there is no refresh token or it was refused
+             */
+            private TokenPair redeem(final TokenPair tokenPair) {
+                if (tokenPair.RefreshToken == null || StringHelper.isNullOrEmpty(tokenPair.RefreshToken.Value)
+                        || !redeemedRefreshTokens.add(tokenPair.RefreshToken.Value)) {
+                    return null;
+                }
+
+                final long start = MetricsHelper.start();
+                final TokenPair renewedTokenPair =
+                        azureAuthority.acquireTokenByRefreshToken(clientId, resource, tokenPair.RefreshToken);
+                MetricsHelper.stop(MetricsHelper.RETRIEVER_REFRESH, TYPE, start);
+
+                if (renewedTokenPair != null
+                        && renewedTokenPair.AccessToken.Value != null
+                        && renewedTokenPair.RefreshToken.Value != null) {
+                    logger.debug("OAuth2 Access Token refreshed successfully.");
+                    return renewedTokenPair;
+                }
+                return null;
+            }
+
+            /**
+             * Redeems a refresh token still in the store, such as the common tenant's when the tenant's own pair
+             * was refused, so that a new resource or tenant costs one request rather than an interactive flow.
+             */
+            private TokenPair redeemStoredRefreshToken() {
+                for (final String candidateKey : new LinkedHashSet<String>(Arrays.asList(key, commonKey))) {
+                    final TokenPair candidate = super.readFromStore(candidateKey, getStore());
+                    if (candidate != null) {
+                        LoggingHelper.lookupDebug(logger, "Redeeming the OAuth2 refresh token stored for {}", candidateKey);
+                        final TokenPair result = redeem(candidate);
+                        if (result != null) {
+                            return result;
+                        }
+                    }
+                }
+                return null;
+            }
+
             @Override
             protected TokenPair doRetrieve() {
+                if (promptBehavior != PromptBehavior.ALWAYS) {
+                    final TokenPair redeemed = redeemStoredRefreshToken();
+                    if (redeemed != null) {
+                        return redeemed;
+                    }
+                }
+
                 logger.info("Ready to launch browser flow to retrieve oauth2 token.");
 
                 final AtomicReference<File> swtRuntime = new AtomicReference<File>();
@@ -242,7 +364,7 @@ public class OAuth2Authenticator extends BaseAuthenticator {
                                 && SwtJarLoader.tryGetSwtJar(swtRuntime))) {
                             try {
                                 logger.info("Using oauth2-useragent providers to retrieve AAD token.");
-                                return getAzureAuthority(uri).acquireToken(clientId, resource, redirectUri, POPUP_QUERY_PARAM);
+                                return azureAuthority.acquireToken(clientId, resource, redirectUri, POPUP_QUERY_PARAM);
                             } catch (final AuthorizationException e) {
                                 logError(logger, "Failed to launch oauth2-useragent.", e);
                                 // unless we failed with unknown reasons (such as failed to load javafx) we probably should
@@ -271,7 +393,7 @@ public class OAuth2Authenticator extends BaseAuthenticator {
                 if (deviceFlowCallback != null) {
                     logger.info("Fallback to Device Flow.");
                     try {
-                        return getAzureAuthority(uri).acquireToken(clientId, resource, redirectUri, deviceFlowCallback);
+                        return azureAuthority.acquireToken(clientId, resource, redirectUri, deviceFlowCallback);
                     } catch (final AuthorizationException e) {
                         logError(logger, "Failed to use the Device Flow authenticator.", e);
                     }
@@ -281,11 +403,127 @@ public class OAuth2Authenticator extends BaseAuthenticator {
             }
         };
 
-        return secretRetriever.retrieve(key, getStore(), promptBehavior);
+        final TokenPair result = secretRetriever.retrieve(key, getStore(), promptBehavior);
+        if (result != null && !key.equals(commonKey)) {
+            rememberTenant(key);
+        }
+        return result;
     }
 
+    /**
+     * Records that a tenant's token pair was used.  The first time this authenticator uses a tenant, it adds it to
+     * the tenant index, so that {@link #signOut()} finds its pair after a restart, and deletes the pairs of the
+     * least recently used tenants beyond the {@code oauth2MaxTenants} setting, whichever process stored them.
+     * The stores are only written to when the tenants in the index change.
+     */
+    private void rememberTenant(final String key) {
+        synchronized (tenantKeys) {
+            if (tenantKeys.get(key) != null) {
+                return;
+            }
+            synchronized (tenantIndexStore) {
+                final List<String> storedKeys = readTenantIndex();
+                final LinkedHashMap<String, Boolean> merged = new LinkedHashMap<String, Boolean>();
+                for (final String storedKey : storedKeys) {
+                    merged.put(storedKey, Boolean.TRUE);
+                }
+                for (final String knownKey : tenantKeys.keySet()) {
+                    merged.remove(knownKey);
+                    merged.put(knownKey, Boolean.TRUE);
+                }
+                merged.remove(key);
+                merged.put(key, Boolean.TRUE);
+
+                final Iterator<String> iterator = merged.keySet().iterator();
+                while (merged.size() > maxTenants) {
+                    final String eldest = iterator.next();
+                    logger.debug("Forgetting the least recently used tenant: {}", eldest);
+                    synchronized (getStore()) {
+                        getStore().delete(eldest);
+                    }
+                    iterator.remove();
+                }
+
+                if (!merged.keySet().equals(new HashSet<String>(storedKeys))) {
+                    writeTenantIndex(merged.keySet());
+                }
+                tenantKeys.clear();
+                tenantKeys.putAll(merged);
+            }
+        }
+    }
+
+    private String getTenantIndexKey() {
+        return getKey(APP_VSSPS_VISUALSTUDIO) + TENANT_INDEX_SUFFIX;
+    }
+
+    private List<String> readTenantIndex() {
+        final List<String> result = new ArrayList<String>();
+        final Token index = tenantIndexStore.get(getTenantIndexKey());
+        if (index != null && index.Value != null) {
+            for (final String tenantId : index.Value.split(" ")) {
+                if (!StringHelper.isNullOrEmpty(tenantId)) {
+                    result.add(getTenantKey(tenantId));
+                }
+            }
+        }
+        return result;
+    }
+
+    private void writeTenantIndex(final Collection<String> keys) {
+        final String indexKey = getTenantIndexKey();
+        final int prefixLength = getKey(APP_VSSPS_VISUALSTUDIO).length() + 1;
+        final StringBuilder tenantIds = new StringBuilder();
+        for (final String key : keys) {
+            if (tenantIds.length() > 0) {
+                tenantIds.append(' ');
+            }
+            tenantIds.append(key.substring(prefixLength));
+        }
+        tenantIndexStore.delete(indexKey);
+        if (tenantIds.length() > 0) {
+            tenantIndexStore.add(indexKey, new Token(tenantIds.toString(), TokenType.Unknown));
+        }
+    }
+
+    /**
+     * Token pairs are stored per tenant, since a refresh token redeemed with one tenant's authority gets tokens
+     * for that tenant only.  The pair of the common tenant, which is used for accounts backed by Microsoft
+     * accounts, keeps the key older versions used.
+     *
+     * @return the key of the token pairs {@code azureAuthority} issues
+     */
+    /*default*/ String getTenantKey(final AzureAuthority azureAuthority) {
+        final String tenantId = azureAuthority.getTenantId();
+        return tenantId == null ? getKey(APP_VSSPS_VISUALSTUDIO) : getTenantKey(tenantId);
+    }
+
+    private String getTenantKey(final String tenantId) {
+        return getKey(APP_VSSPS_VISUALSTUDIO) + "/" + tenantId;
+    }
+
+    /**
+     * Forgets the token pairs of the common tenant and of every tenant in the tenant index, which includes those
+     * used by earlier runs when the index is kept in a persisted store.
+     *
+     * @return {@code true} if they were all deleted
+     */
     public boolean signOut() {
-        return super.signOut(APP_VSSPS_VISUALSTUDIO);
+        boolean result = super.signOut(APP_VSSPS_VISUALSTUDIO);
+        synchronized (tenantKeys) {
+            synchronized (tenantIndexStore) {
+                final Set<String> keys = new LinkedHashSet<String>(readTenantIndex());
+                keys.addAll(tenantKeys.keySet());
+                synchronized (getStore()) {
+                    for (final String key : keys) {
+                        result = getStore().delete(key) && result;
+                    }
+                }
+                result = tenantIndexStore.delete(getTenantIndexKey()) && result;
+            }
+            tenantKeys.clear();
+        }
+        return result;
     }
 
     // For unit test
@@ -306,6 +544,7 @@ public class OAuth2Authenticator extends BaseAuthenticator {
         private String clientId;
         private URI redirectUri;
         private SecretStore store;
+        private SecretStore<Token> tenantIndexStore;
         private String tenantId = AzureAuthority.CommonTenant;
         private Action<DeviceFlowResponse> deviceFlowCallback;
 
@@ -341,6 +580,20 @@ public class OAuth2Authenticator extends BaseAuthenticator {
             return this;
         }
 
+        /**
+         * Keeps the list of the tenants whose token pairs are in the store, which lets {@link #signOut()} and the
+         * {@code oauth2MaxTenants} setting cover the pairs stored by earlier runs.  Without it, the list only
+         * covers the tenants used since the authenticator was created.
+         *
+         * @param tenantIndexStore a store that keeps the value of a {@link Token} as is, such as the store of
+         *                         Personal Access Tokens; the list is kept under a key of its own
+         */
+        public OAuth2AuthenticatorBuilder indexTenantsIn(final SecretStore<Token> tenantIndexStore) {
+            Debug.Assert(tenantIndexStore != null, "tenantIndexStore cannot be null");
+            this.tenantIndexStore = tenantIndexStore;
+            return this;
+        }
+
         public OAuth2AuthenticatorBuilder withDeviceFlowCallback(final Action<DeviceFlowResponse> deviceFlowCallback) {
             this.deviceFlowCallback = deviceFlowCallback;
             return this;
@@ -362,7 +615,7 @@ public class OAuth2Authenticator extends BaseAuthenticator {
             final OAuth2UseragentValidator oAuth2UseragentValidator = new OAuth2UseragentValidator();
 
             return new OAuth2Authenticator(this.resource, this.clientId, this.redirectUri, this.store,
-                    oAuth2UseragentValidator, this.deviceFlowCallback);
+                    this.tenantIndexStore, oAuth2UseragentValidator, this.deviceFlowCallback);
         }
     }
 }
@@ -5,24 +5,55 @@ package com.microsoft.alm.auth.oauth.helper;
 
 import com.microsoft.alm.auth.oauth.AzureAuthority;
 import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.helpers.UriHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * Provide tenant appropriate AzureAuthority
+ *
+ * Finding the tenant of an account takes a request, so the authority of the most recently used accounts is
+ * remembered.
  */
 public class AzureAuthorityProvider {
     private static final Logger logger = LoggerFactory.getLogger(AzureAuthorityProvider.class);
 
+    private static final int MAX_ACCOUNTS = 64;
+
+    private final Map<String, AzureAuthority> authorities = new LinkedHashMap<String, AzureAuthority>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, AzureAuthority> eldest) {
+            return size() > MAX_ACCOUNTS;
+        }
+    };
+
     public AzureAuthority getAzureAuthority(final URI uri) throws IOException {
         if (uri == OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO) {
             return AzureAuthority.DefaultAzureAuthority;
         }
 
+        final String account = uri.getScheme() + "://" + UriHelper.getFullAccount(uri);
+        synchronized (authorities) {
+            final AzureAuthority cached = authorities.get(account);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        final AzureAuthority result = detectAzureAuthority(uri);
+        synchronized (authorities) {
+            authorities.put(account, result);
+        }
+        return result;
+    }
+
+    private static AzureAuthority detectAzureAuthority(final URI uri) throws IOException {
         logger.debug("Lookup tenant id for {}", uri);
         final UUID tenantId = AzureAuthority.detectTenantId(uri);
         logger.debug("tenant id for {} is {}", uri, tenantId);
@@ -0,0 +1,107 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.pat;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.Span;
+import com.microsoft.alm.helpers.TracingHelper;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A request that doesn't depend on the one its caller is about to make, so it is handed to an executor while the
+ * caller makes its own.
+ *
+ * {@link #join()} runs the request on the calling thread if no thread of the executor has started it yet, so a
+ * busy or single-threaded executor, even the one the caller is running on, only costs the concurrency.
+ *
+ * Wherever it runs, the request is part of the trace running on the thread that forked it, and so carries its
+ * correlation ID.
+ *
+ * @param <V> what the request returns
+ */
+final class ForkedRequest<V> {
+
+    private final FutureTask<V> task;
+
+    private ForkedRequest(final Callable<V> request) {
+        final Span span = TracingHelper.getCurrentSpan();
+        this.task = new FutureTask<V>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                final Span previous = TracingHelper.attach(span);
+                try {
+                    return request.call();
+                } finally {
+                    TracingHelper.attach(previous);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts a request.
+     *
+     * @param executor runs the request, unless {@link #join()} gets to it first
+     * @param request  the request
+     * @return the request, to {@link #join()} or {@link #cancel()}
+     */
+    static <V> ForkedRequest<V> fork(final Executor executor, final Callable<V> request) {
+        Debug.Assert(executor != null, "executor cannot be null");
+        Debug.Assert(request != null, "request cannot be null");
+
+        final ForkedRequest<V> result = new ForkedRequest<V>(request);
+        try {
+            executor.execute(result.task);
+        } catch (final RejectedExecutionException e) {
+            // join() will run it
+        }
+        return result;
+    }
+
+    /**
+     * Waits for the request, running it here if it hasn't started.
+     *
+     * @return what the request returned
+     * @throws IOException if the request failed with one, or the wait was interrupted
+     */
+    V join() throws IOException {
+        // a no-op if the task has started or finished
+        task.run();
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a request.");
+        } catch (final CancellationException e) {
+            throw new IllegalStateException("The request was cancelled.", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new Error(cause);
+        }
+    }
+
+    /**
+     * Gives up on the request: it won't be made if it hasn't started, and its outcome is ignored if it has.
+     */
+    void cancel() {
+        task.cancel(false);
+    }
+}
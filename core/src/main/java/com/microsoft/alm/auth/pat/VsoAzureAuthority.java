@@ -8,6 +8,7 @@ import com.microsoft.alm.auth.oauth.Global;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.Guid;
 import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.JsonFieldExtractor;
 import com.microsoft.alm.helpers.StringContent;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.UriHelper;
@@ -20,9 +21,10 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.URI;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 class VsoAzureAuthority extends AzureAuthority {
 
@@ -35,6 +37,14 @@ class VsoAzureAuthority extends AzureAuthority {
 
     private final static String ALL_ACCOUNTS = "all_accounts";
 
+    // rejects every request, so that ForkedRequest.join() runs it on the calling thread, if and when it is needed
+    private static final Executor RUN_WHEN_JOINED = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            throw new RejectedExecutionException();
+        }
+    };
+
     /**
      * Generates a personal access token for use with Visual Studio Online.
      *
@@ -47,10 +57,29 @@ class VsoAzureAuthority extends AzureAuthority {
     public Token generatePersonalAccessToken(final URI targetUri, final Token accessToken,
                                              final VsoTokenScope tokenScope, final boolean requireCompactToken,
                                              final boolean shouldCreateGlobalToken, final String displayName) {
+        return generatePersonalAccessToken(targetUri, accessToken, tokenScope, requireCompactToken,
+                shouldCreateGlobalToken, displayName, RUN_WHEN_JOINED);
+    }
+
+    /**
+     * Generates a personal access token for use with Visual Studio Online, looking up the identity service while
+     * the target identity is being found, since neither request needs the other.
+     *
+     * @param executor runs the identity service lookup; it is run on the calling thread if the executor hasn't
+     *                 started it by the time it is needed.  If the target identity can't be found, the lookup
+     *                 is given up on, but it may have been made already.  Global tokens don't need the target
+     *                 identity, so their lookup is always made on the calling thread.
+     * @see #generatePersonalAccessToken(URI, Token, VsoTokenScope, boolean, boolean, String)
+     */
+    public Token generatePersonalAccessToken(final URI targetUri, final Token accessToken,
+                                             final VsoTokenScope tokenScope, final boolean requireCompactToken,
+                                             final boolean shouldCreateGlobalToken, final String displayName,
+                                             final Executor executor) {
 
         Debug.Assert(targetUri != null, "The targetUri parameter is null");
         Debug.Assert(accessToken != null && !StringHelper.isNullOrWhiteSpace(accessToken.Value) && (accessToken.Type == TokenType.Access || accessToken.Type == TokenType.Federated), "The accessToken parameter is null or invalid");
         Debug.Assert(tokenScope != null, "The tokenScope parameter is invalid");
+        Debug.Assert(executor != null, "The executor parameter is null");
 
         logger.debug("VsoAzureAuthority::generatePersonalAccessToken");
 
@@ -60,20 +89,32 @@ class VsoAzureAuthority extends AzureAuthority {
             logger.debug("   using token to acquire personal access token");
             accessToken.contributeHeader(client.getHeaders());
 
-            if (shouldCreateGlobalToken || populateTokenTargetId(targetUri, accessToken)) {
-                final URI requestUrl = createPersonalAccessTokenRequestUri(client, targetUri, requireCompactToken);
+            final ForkedRequest<URI> requestUrl = ForkedRequest.fork(
+                    shouldCreateGlobalToken ? RUN_WHEN_JOINED : executor,
+                    new Callable<URI>() {
+                        @Override
+                        public URI call() throws IOException {
+                            return createPersonalAccessTokenRequestUri(client, targetUri, requireCompactToken);
+                        }
+                    });
 
-                final StringContent content = getAccessTokenRequestBody(accessToken, tokenScope,
-                        shouldCreateGlobalToken, displayName);
+            try {
+                if (shouldCreateGlobalToken || populateTokenTargetId(targetUri, accessToken)) {
+                    final StringContent content = getAccessTokenRequestBody(accessToken, tokenScope,
+                            shouldCreateGlobalToken, displayName);
 
-                final String responseText = client.getPostResponseText(requestUrl, content);
+                    final String responseText = client.getPostResponseText(requestUrl.join(), content);
 
-                final Token token = parsePersonalAccessTokenFromJson(responseText);
-                if (token != null) {
-                    logger.debug("   personal access token acquisition succeeded.");
-                }
+                    final Token token = parsePersonalAccessTokenFromJson(responseText);
+                    if (token != null) {
+                        logger.debug("   personal access token acquisition succeeded.");
+                    }
 
-                return token;
+                    return token;
+                }
+            } finally {
+                // a no-op once joined
+                requestUrl.cancel();
             }
         } catch (IOException e) {
             throw new Error(e);
@@ -154,58 +195,56 @@ class VsoAzureAuthority extends AzureAuthority {
         return false;
     }
 
-    private static final Pattern TOKEN_PATTERN = Pattern.compile(
-            "\"token\"\\s*:\\s*\"([^\"]+)\"",
-            Pattern.CASE_INSENSITIVE
-    );
+    private static final JsonFieldExtractor TOKEN_EXTRACTOR = new JsonFieldExtractor("token");
 
     static Token parsePersonalAccessTokenFromJson(final String json) {
         Token token = null;
-        if (!StringHelper.isNullOrWhiteSpace(json)) {
-            // find the 'token : <value>' portion of the result content, if any
-            final Matcher matcher = TOKEN_PATTERN.matcher(json);
-            if (matcher.find()) {
-                final String tokenValue = matcher.group(1);
-                token = new Token(tokenValue, TokenType.Personal);
-            }
+        // find the 'token : <value>' portion of the result content, if any
+        final String tokenValue = extractField(TOKEN_EXTRACTOR, json);
+        if (!StringHelper.isNullOrEmpty(tokenValue)) {
+            token = new Token(tokenValue, TokenType.Personal);
         }
         return token;
     }
 
-    private static final Pattern INSTANCE_ID_PATTERN = Pattern.compile(
-            "\"instanceId\"\\s*:\\s*\"([^\"]+)\"",
-            Pattern.CASE_INSENSITIVE
-    );
+    private static final JsonFieldExtractor INSTANCE_ID_EXTRACTOR = new JsonFieldExtractor("instanceId");
 
     static String parseInstanceIdFromJson(final String json) {
-        String result = null;
-
-        final Matcher matcher = INSTANCE_ID_PATTERN.matcher(json);
-        if (matcher.find()) {
-            result = matcher.group(1);
-        }
-
-        return result;
+        return extractField(INSTANCE_ID_EXTRACTOR, json);
     }
 
-    private static final Pattern LOCATION_PATTERN = Pattern.compile(
-            "\"location\"\\s*:\\s*\"([^\"]+)\"",
-            Pattern.CASE_INSENSITIVE
-    );
+    // the access mappings carry the location; fall back to a top-level one
+    private static final JsonFieldExtractor LOCATION_EXTRACTOR =
+            new JsonFieldExtractor("locationMappings.location", "location");
 
     static URI parseLocationFromJson(final String json) {
         URI locationServiceUri = null;
         if (!StringHelper.isNullOrWhiteSpace(json)) {
-            // find the 'location : <value>' portion of the result content, if any
-            final Matcher matcher = LOCATION_PATTERN.matcher(json);
-            if (matcher.find()) {
-                final String location = matcher.group(1);
-                locationServiceUri = URI.create(location);
+            try {
+                final String[] values = LOCATION_EXTRACTOR.extract(json);
+                final String location = values[0] != null ? values[0] : values[1];
+                if (!StringHelper.isNullOrEmpty(location)) {
+                    locationServiceUri = URI.create(location);
+                }
+            } catch (final IllegalArgumentException e) {
+                logger.debug("   unable to parse location from response: {}", e.getMessage());
             }
         }
         return locationServiceUri;
     }
 
+    private static String extractField(final JsonFieldExtractor extractor, final String json) {
+        String result = null;
+        if (!StringHelper.isNullOrWhiteSpace(json)) {
+            try {
+                result = extractor.extract(json)[0];
+            } catch (final IllegalArgumentException e) {
+                logger.debug("   unable to parse response: {}", e.getMessage());
+            }
+        }
+        return result;
+    }
+
     private StringContent getAccessTokenRequestBody(final Token accessToken, final VsoTokenScope tokenScope,
                                                     final boolean shouldCreateGlobalToken, final String displayName) {
         final String ContentJsonFormat = "{ \"scope\" : \"%1$s\", \"targetAccounts\" : [\"%2$s\"], \"displayName\" : \"%3$s\" }";
@@ -4,6 +4,8 @@
 package com.microsoft.alm.auth.pat;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.microsoft.alm.auth.BaseAuthenticator;
 import com.microsoft.alm.auth.PromptBehavior;
@@ -12,6 +14,12 @@ import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.helpers.HttpClientImpl;
+import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.helpers.JsonFieldExtractor;
+import com.microsoft.alm.helpers.LoggingHelper;
+import com.microsoft.alm.helpers.Span;
+import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.TracingHelper;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.secret.VsoTokenScope;
@@ -20,20 +28,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Authenticator based on Personal Access Token
  *
- * This authenticator will attempt to reuse PATs found in store without regard to the scopes of the PAT.
+ * PATs are stored with the scope they were granted, and a stored PAT is reused for any request whose scope it
+ * includes.  A stored PAT that lacks some of the requested scope is replaced by one granted both scopes, so that
+ * alternating requests don't keep replacing each other's PATs.  When there is no usable PAT for an account, the
+ * global PAT is reused if its scope includes the request, before a new PAT is minted.
  *
- * If the PAT does not have the correct scope, the only way is to reauth by either {@link #signOut(URI)} or {@link
+ * PATs stored by older versions don't have a scope; they are reused as before, without regard to the scope.  If
+ * such a PAT does not have the correct scope, the only way is to reauth by either {@link #signOut(URI)} or {@link
  * PromptBehavior} ALWAYS.
  */
 public class VstsPatAuthenticator extends BaseAuthenticator {
@@ -54,7 +65,8 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
      * Create a Personal Access Token Authenticator backed by the OAuth2 app with {@code oauthClientId} and
      * {@code oauthClientRedirectUri}.
      *
-     * The oauthTokenStore will be utilized to check if there is valid OAuth2 {@link TokenPair} available first
+     * The oauthTokenStore will be utilized to check if there is valid OAuth2 {@link TokenPair} available first;
+     * the store of Personal Access Tokens also keeps the list of tenants the OAuth2 token pairs were issued for.
      *
      * @param oauthClientId
      *      registered OAuth2 client id
@@ -72,8 +84,13 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         Debug.Assert(oauthClientRedirectUrl!= null, "oauthClientRedirectUrl cannot be null");
         Debug.Assert(store != null, "store cannot be null");
 
-        this.vstsOauthAuthenticator = OAuth2Authenticator.getAuthenticator(oauthClientId,
-                oauthClientRedirectUrl, oauthTokenStore);
+        this.vstsOauthAuthenticator = new OAuth2Authenticator.OAuth2AuthenticatorBuilder()
+                .manage(OAuth2Authenticator.MANAGEMENT_CORE_RESOURCE)
+                .withClientId(oauthClientId)
+                .redirectTo(oauthClientRedirectUrl)
+                .backedBy(oauthTokenStore)
+                .indexTenantsIn(store)
+                .build();
         this.vsoAzureAuthority = new VsoAzureAuthority();
         this.store = store;
         this.objectMapper = new ObjectMapper();
@@ -131,14 +148,14 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
     @Override
     public Token getPersonalAccessToken(final URI uri, final VsoTokenScope tokenScope, final String patDisplayName,
                                         final PromptBehavior promptBehavior) {
-        logger.debug("Retrieving Personal Access Token for uri: {}", uri);
+        LoggingHelper.lookupDebug(logger, "Retrieving Personal Access Token for uri: {}", uri);
         return getToken(uri, false, tokenScope, patDisplayName, promptBehavior, null);
     }
 
     @Override
     public Token getPersonalAccessToken(final URI uri, final VsoTokenScope tokenScope, final String patDisplayName,
                                         final PromptBehavior promptBehavior, final TokenPair oauth2Token) {
-        logger.debug("Retrieving Personal Access Token for uri: {}", uri);
+        LoggingHelper.lookupDebug(logger, "Retrieving Personal Access Token for uri: {}", uri);
         return getToken(uri, false, tokenScope, patDisplayName, promptBehavior, oauth2Token);
     }
 
@@ -148,38 +165,43 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         Debug.Assert(uri != null, "uri cannot be null");
         Debug.Assert(promptBehavior != null, "promptBehavior cannot be null");
 
-        logger.info("Retrieving PersonalAccessToken for uri:{} with name:{}, and with scope:{}, prompt behavior: {}",
-                uri, patDisplayName, tokenScope, promptBehavior.name());
+        if (LoggingHelper.isLookupInfoEnabled(logger)) {
+            logger.info("Retrieving PersonalAccessToken for uri:{} with name:{}, and with scope:{}, prompt behavior: {}",
+                    uri, patDisplayName, tokenScope, promptBehavior);
+        }
 
         final String key = getKey(uri);
         Debug.Assert(key != null, "Failed to convert uri to key");
 
+        // the scope of a stored PAT that didn't include tokenScope; its replacement should be granted both
+        final AtomicReference<VsoTokenScope> rejectedScope = new AtomicReference<VsoTokenScope>();
+
         final SecretRetriever<Token> secretRetriever = new SecretRetriever<Token>() {
             @Override
             protected boolean tryGetValidated(final Token token, final AtomicReference<Token> holder) {
                 Debug.Assert(token != null, "Token is null");
                 Debug.Assert(holder != null, "Holder is null");
 
-                final URI validationEndpoint = URI.create(uri + "/_apis/connectionData");
-                boolean valid = false;
-
-                if (token.Value != null) {
-                    final HttpClient client = Global.getHttpClientFactory().createHttpClient();
-                    token.contributeHeader(client.getHeaders());
-                    try {
-                        client.getGetResponseText(validationEndpoint);
-                        valid = true;
-                    } catch (IOException e) {
-                        logger.debug("Validation failed with IOException.", e);
-                    }
+                final VsoTokenScope grantedScope = token.getScope();
+                if (grantedScope != null && tokenScope != null && !grantedScope.includes(tokenScope)) {
+                    LoggingHelper.lookupDebug(logger, "Personal Access Token scope {} doesn't include {}.",
+                            grantedScope, tokenScope);
+                    rejectedScope.set(grantedScope);
+                    return false;
                 }
 
-                logger.debug("Personal Access Token is {}.", valid ? "valid" : "invalid.");
-                return valid;
+                return isValid(token, uri);
             }
 
             @Override
             protected Token doRetrieve() {
+                if (!isCreatingGlobalPat && promptBehavior != PromptBehavior.ALWAYS) {
+                    final Token globalPat = findGlobalPat(uri, tokenScope);
+                    if (globalPat != null) {
+                        return globalPat;
+                    }
+                }
+
                 final TokenPair tokenPair = (oauth2Token == null)
                         ? vstsOauthAuthenticator.getOAuth2TokenPair(uri, promptBehavior.AUTO)
                         : oauth2Token;
@@ -191,10 +213,14 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
                 }
                 logger.debug("Got OAuth2 token, retrieving Personal Access Token with it.");
 
+                final VsoTokenScope scope = widen(rejectedScope.get(), tokenScope);
                 final URI accountSpecificUri = createAccountSpecificUri(uri, tokenPair);
                 final Token pat = vsoAzureAuthority.generatePersonalAccessToken(accountSpecificUri, tokenPair.AccessToken,
-                        tokenScope, true, isCreatingGlobalPat, patDisplayName);
+                        scope, true, isCreatingGlobalPat, patDisplayName, getExecutor());
 
+                if (pat != null && pat.getScope() == null) {
+                    pat.setScope(scope);
+                }
                 return pat;
             }
         };
@@ -202,6 +228,62 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         return secretRetriever.retrieve(key, getStore(), promptBehavior);
     }
 
+    private static boolean isValid(final Token token, final URI uri) {
+        final URI validationEndpoint = URI.create(uri + "/_apis/connectionData");
+        boolean valid = false;
+
+        if (token.Value != null) {
+            final HttpClient client = Global.getHttpClientFactory().createHttpClient();
+            token.contributeHeader(client.getHeaders());
+            try {
+                client.getGetResponseText(validationEndpoint);
+                valid = true;
+            } catch (IOException e) {
+                logger.debug("Validation failed with IOException.", e);
+            }
+        }
+
+        LoggingHelper.lookupDebug(logger, "Personal Access Token is {}.", valid ? "valid" : "invalid.");
+        return valid;
+    }
+
+    /**
+     * Looks for a global PAT that can be used for {@code uri} instead of minting a PAT for it.
+     *
+     * @return the global PAT, if its scope is known to include {@code tokenScope} and it is accepted by {@code uri};
+     *         {@code null} otherwise
+     */
+    private Token findGlobalPat(final URI uri, final VsoTokenScope tokenScope) {
+        final Token globalPat = getStore().get(getKey(vstsOauthAuthenticator.APP_VSSPS_VISUALSTUDIO));
+        if (globalPat == null) {
+            return null;
+        }
+
+        final VsoTokenScope grantedScope = globalPat.getScope();
+        if (grantedScope == null || (tokenScope != null && !grantedScope.includes(tokenScope))) {
+            LoggingHelper.lookupDebug(logger, "Global Personal Access Token scope {} doesn't include {}.",
+                    grantedScope, tokenScope);
+            return null;
+        }
+
+        if (!isValid(globalPat, uri)) {
+            return null;
+        }
+        LoggingHelper.lookupDebug(logger, "Reusing the global Personal Access Token for uri: {}", uri);
+        return globalPat;
+    }
+
+    /**
+     * @return the scope to request for a PAT replacing one granted {@code grantedScope}
+     */
+    static VsoTokenScope widen(final VsoTokenScope grantedScope, final VsoTokenScope requestedScope) {
+        if (grantedScope == null || requestedScope == null
+                || VsoTokenScope.AllScopes.equals(requestedScope)) {
+            return requestedScope;
+        }
+        return VsoTokenScope.or(grantedScope, requestedScope);
+    }
+
     private URI createAccountSpecificUri(final URI uri, final TokenPair tokenPair) {
         if (vstsOauthAuthenticator.APP_VSSPS_VISUALSTUDIO.equals(uri)) {
             logger.debug("Find an account level target url to generate Personal Access Token.");
@@ -240,17 +322,17 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         throw new RuntimeException("Failed to get profile id.");
     }
 
-    private static final Pattern ID_PATTERN = Pattern.compile(
-            "\"id\"\\s*:\\s*\"([^\"]+)\"",
-            Pattern.CASE_INSENSITIVE
-    );
+    private static final JsonFieldExtractor ID_EXTRACTOR = new JsonFieldExtractor("id");
 
     static String parseIdFromJson(final String json) {
         String result = null;
 
-        final Matcher matcher = ID_PATTERN.matcher(json);
-        if (matcher.find()) {
-            result = matcher.group(1);
+        if (!StringHelper.isNullOrWhiteSpace(json)) {
+            try {
+                result = ID_EXTRACTOR.extract(json)[0];
+            } catch (final IllegalArgumentException e) {
+                logger.debug("Unable to parse profile: {}", e.getMessage());
+            }
         }
 
         return result;
@@ -267,20 +349,55 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
 
         logger.debug("Account API URL: {}", accountApiUrl);
 
-        final String content = authenticatedClient.getGetResponseText(accountApiUrl);
+        final InputStream content = authenticatedClient.getGetResponseStream(accountApiUrl);
+        try {
+            final Account account = findFirstActiveAccount(content);
+            if (account != null) {
+                return String.format(vstsAccountUrlFormat, account.accountName);
+            }
+        } finally {
+            IOHelper.closeQuietly(content);
+        }
 
-        if (content != null) {
-            final AccountList accountList = this.objectMapper.readValue(content, AccountList.class);
-            if (accountList != null && accountList.value != null) {
-                for (final Account account : accountList.value) {
-                    if (account.accountStatus != null && account.accountUri != null) {
-                        return String.format(vstsAccountUrlFormat, account.accountName);
+        throw new RuntimeException("Could not find any accounts.");
+    }
+
+    /**
+     * Walks the Accounts API response token by token and binds only the account entries it has to look at,
+     * stopping at the first account with a status and a uri.  Users can be members of thousands of accounts, so
+     * neither the full response text nor the full {@link AccountList} is materialized.
+     *
+     * @param content
+     *      the JSON response of the Accounts API
+     *
+     * @return the first active account, {@code null} if there is none
+     */
+    Account findFirstActiveAccount(final InputStream content) throws IOException {
+        final JsonParser parser = this.objectMapper.getFactory().createParser(content);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String fieldName = parser.getCurrentName();
+                final JsonToken valueToken = parser.nextToken();
+                if ("value".equals(fieldName) && valueToken == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        final Account account = this.objectMapper.readValue(parser, Account.class);
+                        if (account.accountStatus != null && account.accountUri != null) {
+                            return account;
+                        }
                     }
+                    return null;
                 }
+                parser.skipChildren();
             }
+        } finally {
+            parser.close();
         }
 
-        throw new RuntimeException("Could not find any accounts.");
+        return null;
     }
 
     /**
@@ -298,8 +415,14 @@ public class VstsPatAuthenticator extends BaseAuthenticator {
         logger.info("Signing out from uri: {}", uri);
         Debug.Assert(uri != null, "uri cannot be null");
 
-        return super.signOut(uri)
-                && vstsOauthAuthenticator.signOut();
+        // one span, so that both deletions share a correlation ID
+        final Span span = TracingHelper.startSpan(TracingHelper.AUTHENTICATOR_SIGN_OUT, getAuthType());
+        try {
+            return super.signOut(uri)
+                    && vstsOauthAuthenticator.signOut();
+        } finally {
+            TracingHelper.finish(span);
+        }
     }
 
     /**
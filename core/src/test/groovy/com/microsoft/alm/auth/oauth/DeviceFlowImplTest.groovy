@@ -11,6 +11,7 @@ import com.github.tomakehurst.wiremock.stubbing.Scenario
 import com.microsoft.alm.oauth2.useragent.AuthorizationException
 import com.microsoft.alm.secret.TokenType
 import groovy.transform.CompileStatic
+import java.util.concurrent.CancellationException
 import org.junit.After
 import org.junit.Assert
 import org.junit.Before
@@ -320,6 +321,47 @@ public class DeviceFlowImplTest {
         assert testEndTime.timeInMillis - testStartTime.timeInMillis >= (1 + 2 + 4) * 1000
     }
 
+    @Test public void requestToken_backOffIsCapped() {
+        assert 4000 == DeviceFlowPoller.backOff(2000);
+        assert 60000 == DeviceFlowPoller.backOff(40000);
+        // never poll faster than the server asked
+        assert 90000 == DeviceFlowPoller.backOff(90000);
+
+        final random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            final jittered = DeviceFlowPoller.addJitter(1000, random);
+            assert jittered >= 1000 && jittered <= 1100;
+        }
+    }
+
+    @Test public void requestTokenAsync_cancelStopsPolling() {
+        final def port = wireMockRule.port();
+        final def tokenEndpoint = new URI(PROTOCOL, null, host, port, TOKEN_ENDPOINT_PATH, null, null);
+        stubTokenEndpointError("grant_type=device_code&code=${DEVICE_CODE}&client_id=${CLIENT_ID}", "authorization_pending");
+        final def cut = new DeviceFlowImpl();
+        final def response = new DeviceFlowResponse(DEVICE_CODE, USER_CODE, VERIFICATION_URI, EXPIRY_SECONDS, ATTEMPT_INTERVAL);
+
+        final def future = cut.requestTokenAsync(tokenEndpoint, CLIENT_ID, response);
+        // the first attempt is made right away, the second one a second later
+        Thread.sleep(500);
+        assert future.cancel(true);
+        final def requestsWhenCancelled = findAll(postRequestedFor(urlEqualTo(TOKEN_ENDPOINT_PATH))).size();
+        Thread.sleep(2500);
+
+        assert 1 == requestsWhenCancelled;
+        assert requestsWhenCancelled == findAll(postRequestedFor(urlEqualTo(TOKEN_ENDPOINT_PATH))).size();
+        assert future.cancelled;
+        assert future.done;
+        assert !future.cancel(true);
+        assert !response.tokenAcquired;
+        try {
+            future.get();
+            Assert.fail("A CancellationException should have been thrown");
+        }
+        catch (final CancellationException ignored) {
+        }
+    }
+
     @Test public void endToEnd_authorizedRightAway() {
         final def port = wireMockRule.port();
         final def deviceEndpoint = new URI(PROTOCOL, null, host, port, DEVICE_ENDPOINT_PATH, null, null);
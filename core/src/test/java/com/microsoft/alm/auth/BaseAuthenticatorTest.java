@@ -0,0 +1,176 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth;
+
+import com.microsoft.alm.helpers.InMemoryMetrics;
+import com.microsoft.alm.helpers.MetricsHelper;
+import com.microsoft.alm.helpers.Span;
+import com.microsoft.alm.helpers.Tracer;
+import com.microsoft.alm.helpers.TracingHelper;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
+import com.microsoft.alm.storage.MeteredSecretStore;
+import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class BaseAuthenticatorTest {
+
+    private static final String KEY = "PersonalAccessToken:https://account.visualstudio.com";
+    private static final String NAMESPACE = "PersonalAccessToken";
+
+    private InMemoryMetrics metrics;
+    private SecretStore<Token> store;
+
+    @Before
+    public void setUp() {
+        metrics = new InMemoryMetrics();
+        MetricsHelper.setMetrics(metrics);
+        store = new MeteredSecretStore<Token>(new InsecureInMemoryStore<Token>());
+    }
+
+    @After
+    public void tearDown() {
+        MetricsHelper.setMetrics(null);
+        TracingHelper.setTracer(null);
+    }
+
+    private static BaseAuthenticator.SecretRetriever<Token> createRetriever(final Token validated,
+                                                                           final Token retrieved) {
+        return new BaseAuthenticator.SecretRetriever<Token>() {
+            @Override
+            protected boolean tryGetValidated(final Token secret, final AtomicReference<Token> secretHolder) {
+                if (validated == null) {
+                    return false;
+                }
+                secretHolder.set(validated);
+                return true;
+            }
+
+            @Override
+            protected Token doRetrieve() {
+                return retrieved;
+            }
+        };
+    }
+
+    @Test
+    public void retrieve_hit() {
+        final Token token = new Token("stored", TokenType.Personal);
+        store.add(KEY, token);
+
+        createRetriever(token, null).retrieve(KEY, store, PromptBehavior.AUTO);
+
+        assertEquals(1, metrics.getCount(MetricsHelper.RETRIEVER_HIT, NAMESPACE));
+        assertEquals(1, metrics.getHistogram(MetricsHelper.RETRIEVER_STORE_READ, NAMESPACE).getCount());
+        assertEquals(1, metrics.getHistogram(MetricsHelper.RETRIEVER_VALIDATE, NAMESPACE).getCount());
+        assertNull(metrics.getHistogram(MetricsHelper.RETRIEVER_RETRIEVE, NAMESPACE));
+        assertNull(metrics.getHistogram(MetricsHelper.RETRIEVER_STORE_WRITE, NAMESPACE));
+        assertEquals(1.0, metrics.getHitRatio(NAMESPACE), 0.0);
+    }
+
+    @Test
+    public void retrieve_missThenRetrieved() {
+        final Token token = new Token("retrieved", TokenType.Personal);
+
+        createRetriever(token, token).retrieve(KEY, store, PromptBehavior.AUTO);
+
+        assertEquals(1, metrics.getCount(MetricsHelper.RETRIEVER_MISS, NAMESPACE));
+        assertNull(metrics.getHistogram(MetricsHelper.RETRIEVER_VALIDATE, NAMESPACE));
+        assertEquals(1, metrics.getHistogram(MetricsHelper.RETRIEVER_RETRIEVE, NAMESPACE).getCount());
+        assertEquals(1, metrics.getHistogram(MetricsHelper.RETRIEVER_STORE_WRITE, NAMESPACE).getCount());
+        assertEquals(0.0, metrics.getHitRatio(NAMESPACE), 0.0);
+    }
+
+    @Test
+    public void retrieve_invalidThenRetrieved() {
+        store.add(KEY, new Token("expired", TokenType.Personal));
+
+        createRetriever(null, new Token("retrieved", TokenType.Personal)).retrieve(KEY, store, PromptBehavior.AUTO);
+
+        assertEquals(1, metrics.getCount(MetricsHelper.RETRIEVER_INVALID, NAMESPACE));
+        assertEquals(1, metrics.getHistogram(MetricsHelper.RETRIEVER_RETRIEVE, NAMESPACE).getCount());
+        // the store itself was read, written and cleaned up
+        assertEquals(1, metrics.getHistogram(MetricsHelper.STORE_GET, "InsecureInMemoryStore").getCount());
+        assertEquals(2, metrics.getHistogram(MetricsHelper.STORE_DELETE, "InsecureInMemoryStore").getCount());
+    }
+
+    @Test
+    public void retrieve_traced() {
+        final List<Span> finished = new ArrayList<Span>();
+        TracingHelper.setTracer(new Tracer() {
+            @Override
+            public void spanFinished(final Span span) {
+                finished.add(span);
+            }
+        });
+        final Token token = new Token("stored", TokenType.Personal);
+        store.add(KEY, token);
+
+        createRetriever(token, null).retrieve(KEY, store, PromptBehavior.AUTO);
+
+        final Span root = finished.get(finished.size() - 1);
+        assertEquals(TracingHelper.AUTHENTICATOR_RETRIEVE, root.getName());
+        assertEquals(NAMESPACE, root.getTag());
+        assertNull(root.getParent());
+        // the store's get, then the read and validate phases of the retriever
+        assertEquals(4, finished.size());
+        assertEquals(MetricsHelper.STORE_GET, finished.get(0).getName());
+        assertSame(root, finished.get(0).getParent());
+        assertEquals(MetricsHelper.RETRIEVER_STORE_READ, finished.get(1).getName());
+        assertEquals(MetricsHelper.RETRIEVER_VALIDATE, finished.get(2).getName());
+        assertEquals(root.getCorrelationId(), finished.get(2).getCorrelationId());
+    }
+
+    @Test
+    public void defaultExecutor_queuesWhenBusy() throws Exception {
+        final ThreadPoolExecutor executor = BaseAuthenticator.createDefaultExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<Thread> blocked = new Callable<Thread>() {
+            @Override
+            public Thread call() throws Exception {
+                release.await();
+                return Thread.currentThread();
+            }
+        };
+
+        try {
+            final List<Future<Thread>> futures = new ArrayList<Future<Thread>>();
+            for (int i = 0; i < BaseAuthenticator.DEFAULT_EXECUTOR_THREADS * 20; i++) {
+                futures.add(executor.submit(blocked));
+            }
+
+            assertEquals(BaseAuthenticator.DEFAULT_EXECUTOR_THREADS, executor.getPoolSize());
+            for (final Future<Thread> future : futures) {
+                assertFalse(future.isDone());
+            }
+
+            release.countDown();
+            for (final Future<Thread> future : futures) {
+                assertNotSame(Thread.currentThread(), future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
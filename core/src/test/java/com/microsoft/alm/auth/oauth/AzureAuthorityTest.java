@@ -207,6 +207,45 @@ public class AzureAuthorityTest {
         Assert.assertEquals("https://login.microsoftonline.com/common/oauth2/authorize?resource=a8860e8f-ca7d-4efe-b80d-4affab13d4ba&client_id=f7e11bcd-b50b-4869-ad88-8bdd6cbc8473&response_type=code&redirect_uri=https%3A%2F%2Fexample.com&state=519a4fa6-c18f-4230-8290-6c57407656c9&prompt=login&state=bliss", actual.toString());
     }
 
+    @Test
+    public void addMetadata_fillsInWhatTheResponseLacks() throws Exception {
+        final TokenPair tokenPair = new TokenPair("{\"access_token\":\"" + TEST_ACCESS_TOKEN + "\","
+                + "\"refresh_token\":\"" + TEST_REFRESH_TOKEN + "\",\"expires_in\":3600}");
+
+        final TokenPair actual = AzureAuthority.addMetadata(tokenPair, "https://login.example.com/contoso.com",
+                TEST_RESOURCE, 1476283537123L);
+
+        Assert.assertEquals(TEST_ACCESS_TOKEN, actual.AccessToken.Value);
+        Assert.assertEquals(TEST_REFRESH_TOKEN, actual.RefreshToken.Value);
+        Assert.assertEquals(1476287137000L, actual.getExpiresOn());
+        Assert.assertEquals(1476283537000L, actual.getIssuedOn());
+        Assert.assertEquals(TEST_RESOURCE, actual.getResource());
+        Assert.assertEquals("contoso.com", actual.getTenantId());
+    }
+
+    @Test
+    public void addMetadata_keepsWhatTheResponseHas() throws Exception {
+        final TokenPair tokenPair = new TokenPair("{\"access_token\":\"" + TEST_ACCESS_TOKEN + "\","
+                + "\"refresh_token\":\"" + TEST_REFRESH_TOKEN + "\",\"expires_in\":3600,"
+                + "\"expires_on\":1476287437,\"not_before\":1476283537,\"resource\":\"other\"}");
+
+        final TokenPair actual = AzureAuthority.addMetadata(tokenPair, AzureAuthority.DefaultAuthorityHostUrl,
+                TEST_RESOURCE, 0L);
+
+        Assert.assertSame(tokenPair, actual);
+        Assert.assertEquals(1476287437000L, actual.getExpiresOn());
+        Assert.assertEquals("other", actual.getResource());
+        Assert.assertNull(actual.getTenantId());
+    }
+
+    @Test
+    public void getTenantId() throws Exception {
+        Assert.assertNull(AzureAuthority.DefaultAzureAuthority.getTenantId());
+        Assert.assertEquals("72f988bf-86f1-41af-91ab-2d7cd011db47",
+                new AzureAuthority(AzureAuthority.AuthorityHostUrlBase + "/72f988bf-86f1-41af-91ab-2d7cd011db47")
+                        .getTenantId());
+    }
+
     @Test
     public void createTokenEndpointUri_typical() throws Exception {
         final URI actual = AzureAuthority.createTokenEndpointUri("https://login.example.com/common");
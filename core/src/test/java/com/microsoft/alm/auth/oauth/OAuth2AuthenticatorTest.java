@@ -3,25 +3,39 @@
 
 package com.microsoft.alm.auth.oauth;
 
+import com.microsoft.alm.auth.HttpClientFactory;
+import com.microsoft.alm.auth.PromptBehavior;
 import com.microsoft.alm.auth.oauth.helper.AzureAuthorityProvider;
 import com.microsoft.alm.helpers.Action;
+import com.microsoft.alm.helpers.HttpClient;
 import com.microsoft.alm.oauth2.useragent.AuthorizationException;
+import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
+import com.microsoft.alm.storage.InsecureInMemoryStore;
 import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class OAuth2AuthenticatorTest {
@@ -69,6 +83,28 @@ public class OAuth2AuthenticatorTest {
         underTest.setAzureAuthorityProvider(mockAzureAuthorityProvider);
     }
 
+    @After
+    public void tearDown() {
+        Global.setHttpClientFactory(new HttpClientFactory());
+    }
+
+    private static void acceptAnyAccessToken() {
+        final HttpClient mockHttpClient = mock(HttpClient.class);
+        when(mockHttpClient.getHeaders()).thenReturn(new HashMap<String, String>());
+        final HttpClientFactory mockHttpClientFactory = mock(HttpClientFactory.class);
+        when(mockHttpClientFactory.createHttpClient()).thenReturn(mockHttpClient);
+        Global.setHttpClientFactory(mockHttpClientFactory);
+    }
+
+    private AzureAuthority mockTenantAuthority(final URI uri, final String tenantId) throws Exception {
+        final AzureAuthority result = mock(AzureAuthority.class);
+        when(result.getTenantId()).thenReturn(tenantId);
+        when(result.acquireToken(clientId.toString(), TEST_RESOURCE, TEST_REDIRECT_URI, underTest.POPUP_QUERY_PARAM))
+                .thenReturn(new TokenPair("access-" + tenantId, "refresh-" + tenantId));
+        when(mockAzureAuthorityProvider.getAzureAuthority(uri)).thenReturn(result);
+        return result;
+    }
+
     @Test
     public void getTokenByAcquireToken_if_oauth2_useragent_available()
                 throws URISyntaxException, AuthorizationException {
@@ -126,6 +162,206 @@ public class OAuth2AuthenticatorTest {
         assertEquals(null, token);
     }
 
+    @Test
+    public void getOAuth2TokenPairAsync_runsOnExecutor() throws Exception {
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        when(mockAzureAuthority.acquireToken(clientId.toString(), TEST_RESOURCE,
+                TEST_REDIRECT_URI, underTest.POPUP_QUERY_PARAM))
+                .thenReturn(new TokenPair("access", "refresh"));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        underTest.setExecutor(executor);
+
+        try {
+            final Future<TokenPair> future = underTest.getOAuth2TokenPairAsync(PromptBehavior.AUTO);
+            final TokenPair token = future.get(10, TimeUnit.SECONDS);
+
+            assertEquals("access", token.AccessToken.Value);
+            assertEquals("refresh", token.RefreshToken.Value);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void tokenPairsAreKeyedByTenant() throws Exception {
+        acceptAnyAccessToken();
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        final URI first = URI.create("https://first.visualstudio.com");
+        final URI second = URI.create("https://second.visualstudio.com");
+        mockTenantAuthority(first, "tenant1");
+        mockTenantAuthority(second, "tenant2");
+        final SecretStore<TokenPair> store = new InsecureInMemoryStore<TokenPair>();
+        final OAuth2Authenticator underTest = new OAuth2Authenticator(TEST_RESOURCE, clientId.toString(),
+                TEST_REDIRECT_URI, store, mockOAuth2UseragentValidator, testCallback);
+        underTest.setAzureAuthorityProvider(mockAzureAuthorityProvider);
+
+        underTest.getOAuth2TokenPair(first, PromptBehavior.AUTO);
+        underTest.getOAuth2TokenPair(second, PromptBehavior.AUTO);
+
+        assertEquals("access-tenant1", underTest.getOAuth2TokenPair(first, PromptBehavior.NEVER).AccessToken.Value);
+        assertEquals("access-tenant2", underTest.getOAuth2TokenPair(second, PromptBehavior.NEVER).AccessToken.Value);
+        assertNull("the common tenant's slot is left alone",
+                store.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO)));
+    }
+
+    @Test
+    public void newTenant_startsFromCommonTenantTokenPair() throws Exception {
+        acceptAnyAccessToken();
+        final URI uri = URI.create("https://first.visualstudio.com");
+        mockTenantAuthority(uri, "tenant1");
+        final TokenPair common = new TokenPair("access", "refresh");
+        when(mockStore.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO))).thenReturn(common);
+
+        assertEquals(common, underTest.getOAuth2TokenPair(uri, PromptBehavior.NEVER));
+    }
+
+    @Test
+    public void leastRecentlyUsedTenant_isForgotten() throws Exception {
+        acceptAnyAccessToken();
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        final URI first = URI.create("https://first.visualstudio.com");
+        final URI second = URI.create("https://second.visualstudio.com");
+        final AzureAuthority firstAuthority = mockTenantAuthority(first, "tenant1");
+        mockTenantAuthority(second, "tenant2");
+        final SecretStore<TokenPair> store = new InsecureInMemoryStore<TokenPair>();
+        System.setProperty("oauth2MaxTenants", "1");
+        final OAuth2Authenticator underTest;
+        try {
+            underTest = new OAuth2Authenticator(TEST_RESOURCE, clientId.toString(),
+                    TEST_REDIRECT_URI, store, mockOAuth2UseragentValidator, testCallback);
+        } finally {
+            System.clearProperty("oauth2MaxTenants");
+        }
+        underTest.setAzureAuthorityProvider(mockAzureAuthorityProvider);
+
+        underTest.getOAuth2TokenPair(first, PromptBehavior.AUTO);
+        underTest.getOAuth2TokenPair(second, PromptBehavior.AUTO);
+
+        assertNull(store.get(underTest.getTenantKey(firstAuthority)));
+        assertEquals("access-tenant2", underTest.getOAuth2TokenPair(second, PromptBehavior.NEVER).AccessToken.Value);
+    }
+
+    private OAuth2Authenticator createAuthenticator(final SecretStore<TokenPair> store,
+                                                    final SecretStore<Token> tenantIndexStore) {
+        final OAuth2Authenticator result = new OAuth2Authenticator(TEST_RESOURCE, clientId.toString(),
+                TEST_REDIRECT_URI, store, tenantIndexStore, mockOAuth2UseragentValidator, testCallback);
+        result.setAzureAuthorityProvider(mockAzureAuthorityProvider);
+        return result;
+    }
+
+    @Test
+    public void signOut_afterRestart_forgetsTenantsOfEarlierRuns() throws Exception {
+        acceptAnyAccessToken();
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        final URI first = URI.create("https://first.visualstudio.com");
+        final URI second = URI.create("https://second.visualstudio.com");
+        final AzureAuthority firstAuthority = mockTenantAuthority(first, "tenant1");
+        final AzureAuthority secondAuthority = mockTenantAuthority(second, "tenant2");
+        final SecretStore<TokenPair> store = new InsecureInMemoryStore<TokenPair>();
+        final SecretStore<Token> tenantIndexStore = new InsecureInMemoryStore<Token>();
+        final OAuth2Authenticator earlierRun = createAuthenticator(store, tenantIndexStore);
+        earlierRun.getOAuth2TokenPair(first, PromptBehavior.AUTO);
+        earlierRun.getOAuth2TokenPair(second, PromptBehavior.AUTO);
+
+        final OAuth2Authenticator underTest = createAuthenticator(store, tenantIndexStore);
+        assertTrue(underTest.signOut());
+
+        assertNull(store.get(underTest.getTenantKey(firstAuthority)));
+        assertNull(store.get(underTest.getTenantKey(secondAuthority)));
+        assertNull("the index is gone too",
+                tenantIndexStore.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO) + "/tenants"));
+    }
+
+    @Test
+    public void maxTenants_coversTenantsOfEarlierRuns() throws Exception {
+        acceptAnyAccessToken();
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        final URI first = URI.create("https://first.visualstudio.com");
+        final URI second = URI.create("https://second.visualstudio.com");
+        final AzureAuthority firstAuthority = mockTenantAuthority(first, "tenant1");
+        final AzureAuthority secondAuthority = mockTenantAuthority(second, "tenant2");
+        final SecretStore<TokenPair> store = new InsecureInMemoryStore<TokenPair>();
+        final SecretStore<Token> tenantIndexStore = new InsecureInMemoryStore<Token>();
+        System.setProperty("oauth2MaxTenants", "1");
+        try {
+            createAuthenticator(store, tenantIndexStore).getOAuth2TokenPair(first, PromptBehavior.AUTO);
+
+            final OAuth2Authenticator underTest = createAuthenticator(store, tenantIndexStore);
+            underTest.getOAuth2TokenPair(second, PromptBehavior.AUTO);
+
+            assertNull(store.get(underTest.getTenantKey(firstAuthority)));
+            assertEquals("access-tenant2", store.get(underTest.getTenantKey(secondAuthority)).AccessToken.Value);
+        } finally {
+            System.clearProperty("oauth2MaxTenants");
+        }
+    }
+
+    @Test
+    public void knownTenant_lookupDoesNotWriteTheStores() throws Exception {
+        acceptAnyAccessToken();
+        final URI uri = URI.create("https://first.visualstudio.com");
+        final AzureAuthority tenantAuthority = mockTenantAuthority(uri, "tenant1");
+        final SecretStore<Token> mockTenantIndexStore = mock(SecretStore.class);
+        final OAuth2Authenticator underTest = createAuthenticator(mockStore, mockTenantIndexStore);
+        final String tenantKey = underTest.getTenantKey(tenantAuthority);
+        when(mockStore.get(tenantKey)).thenReturn(new TokenPair("access", "refresh"));
+
+        underTest.getOAuth2TokenPair(uri, PromptBehavior.NEVER);
+        underTest.getOAuth2TokenPair(uri, PromptBehavior.NEVER);
+
+        // the first lookup adds the tenant to the index; the second one leaves the stores alone
+        verify(mockTenantIndexStore).add(any(String.class), any(Token.class));
+        verify(mockStore, never()).add(any(String.class), any(TokenPair.class));
+        verify(mockStore, never()).delete(tenantKey);
+    }
+
+    @Test
+    public void storedTokenPairForOtherResource_isRedeemedForOurs() throws Exception {
+        final HttpClient mockHttpClient = mock(HttpClient.class);
+        final HttpClientFactory mockHttpClientFactory = mock(HttpClientFactory.class);
+        when(mockHttpClientFactory.createHttpClient()).thenReturn(mockHttpClient);
+        Global.setHttpClientFactory(mockHttpClientFactory);
+        final TokenPair otherResource = new TokenPair.TokenPairBuilder()
+                .withAccessToken("other-access")
+                .withRefreshToken("refresh")
+                .withParameter(TokenPair.RESOURCE, "other_resource")
+                .build();
+        when(mockStore.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO))).thenReturn(otherResource);
+        final TokenPair redeemed = new TokenPair("access", "refresh2");
+        when(mockAzureAuthority.acquireTokenByRefreshToken(clientId.toString(), TEST_RESOURCE,
+                otherResource.RefreshToken)).thenReturn(redeemed);
+
+        final TokenPair actual = underTest.getOAuth2TokenPair(PromptBehavior.NEVER);
+
+        assertEquals(redeemed, actual);
+        verify(mockHttpClient, never()).getGetResponseText(any(URI.class));
+    }
+
+    @Test
+    public void commonRefreshToken_isRedeemedBeforeInteractiveFlow() throws Exception {
+        when(mockOAuth2UseragentValidator.isOAuth2ProviderAvailable()).thenReturn(true);
+        final URI uri = URI.create("https://first.visualstudio.com");
+        final AzureAuthority tenantAuthority = mockTenantAuthority(uri, "tenant1");
+        final TokenPair expired = new TokenPair.TokenPairBuilder()
+                .withAccessToken("expired")
+                .withRefreshToken("revoked")
+                .withParameter(TokenPair.EXPIRES_ON, "1")
+                .build();
+        final TokenPair common = new TokenPair("common-access", "common-refresh");
+        when(mockStore.get(underTest.getTenantKey(tenantAuthority))).thenReturn(expired);
+        when(mockStore.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO))).thenReturn(common);
+        final TokenPair redeemed = new TokenPair("access", "refresh");
+        when(tenantAuthority.acquireTokenByRefreshToken(clientId.toString(), TEST_RESOURCE, common.RefreshToken))
+                .thenReturn(redeemed);
+
+        final TokenPair actual = underTest.getOAuth2TokenPair(uri, PromptBehavior.AUTO);
+
+        assertEquals(redeemed, actual);
+        verify(tenantAuthority).acquireTokenByRefreshToken(clientId.toString(), TEST_RESOURCE, expired.RefreshToken);
+        verify(tenantAuthority, never()).acquireToken(clientId.toString(), TEST_RESOURCE, TEST_REDIRECT_URI,
+                underTest.POPUP_QUERY_PARAM);
+    }
+
     @Test
     public void typeIsOAuth2() {
         assertEquals("OAuth2", underTest.getAuthType());
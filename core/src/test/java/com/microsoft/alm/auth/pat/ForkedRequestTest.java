@@ -0,0 +1,154 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.pat;
+
+import com.microsoft.alm.helpers.Span;
+import com.microsoft.alm.helpers.Tracer;
+import com.microsoft.alm.helpers.TracingHelper;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ForkedRequestTest {
+
+    @Test
+    public void join_runsConcurrentlyWithCaller() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch callerStarted = new CountDownLatch(1);
+        try {
+            final ForkedRequest<String> underTest = ForkedRequest.fork(executor, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    // only completes if the caller gets on with its own request meanwhile
+                    assertTrue(callerStarted.await(10, TimeUnit.SECONDS));
+                    return "forked";
+                }
+            });
+            callerStarted.countDown();
+
+            assertEquals("forked", underTest.join());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void join_runsOnCallerWhenExecutorIsBusy() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (final InterruptedException ignored) {
+                        // shutting down
+                    }
+                }
+            });
+            final ForkedRequest<Integer> underTest = ForkedRequest.fork(executor, new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    return runs.incrementAndGet();
+                }
+            });
+
+            assertEquals(Integer.valueOf(1), underTest.join());
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertEquals("the queued copy was a no-op", 1, runs.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void join_rethrowsIOException() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ForkedRequest<String> underTest = ForkedRequest.fork(executor, new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    throw new IOException("unreachable");
+                }
+            });
+
+            underTest.join();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void join_runsInTheForkingThreadsTrace() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        TracingHelper.setTracer(new Tracer() {
+            @Override
+            public void spanFinished(final Span span) {
+            }
+        });
+        final Span span = TracingHelper.startSpan(TracingHelper.AUTHENTICATOR_RETRIEVE, "test");
+        try {
+            final ForkedRequest<UUID> underTest = ForkedRequest.fork(executor, new Callable<UUID>() {
+                @Override
+                public UUID call() throws Exception {
+                    assertSame(span, TracingHelper.getCurrentSpan());
+                    return TracingHelper.getCorrelationId();
+                }
+            });
+
+            assertEquals(span.getCorrelationId(), underTest.join());
+            assertNull("the executor's thread went back to running nothing", executor.submit(new Callable<Span>() {
+                @Override
+                public Span call() throws Exception {
+                    return TracingHelper.getCurrentSpan();
+                }
+            }).get());
+        } finally {
+            TracingHelper.finish(span);
+            TracingHelper.setTracer(null);
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancel_beforeStart_requestNotMade() throws Exception {
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        final AtomicInteger runs = new AtomicInteger();
+        final ForkedRequest<Integer> underTest = ForkedRequest.fork(new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                queued.add(command);
+            }
+        }, new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return runs.incrementAndGet();
+            }
+        });
+
+        underTest.cancel();
+        queued.get(0).run();
+
+        assertEquals(0, runs.get());
+    }
+}
@@ -0,0 +1,118 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.auth.pat;
+
+import com.microsoft.alm.auth.HttpClientFactory;
+import com.microsoft.alm.auth.oauth.Global;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.secret.VsoTokenScope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VsoAzureAuthorityTest {
+
+    private final URI uri = URI.create("https://account.visualstudio.com");
+    private final Token accessToken = new Token("access", TokenType.Access);
+
+    private HttpClient mockHttpClient;
+
+    // holds the forked requests instead of running them
+    private final List<Runnable> queued = new ArrayList<Runnable>();
+    private final Executor queueingExecutor = new Executor() {
+        @Override
+        public void execute(final Runnable command) {
+            queued.add(command);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        mockHttpClient = mock(HttpClient.class);
+        when(mockHttpClient.getHeaders()).thenReturn(new HashMap<String, String>());
+        final HttpClientFactory mockHttpClientFactory = mock(HttpClientFactory.class);
+        when(mockHttpClientFactory.createHttpClient()).thenReturn(mockHttpClient);
+        Global.setHttpClientFactory(mockHttpClientFactory);
+    }
+
+    @After
+    public void tearDown() {
+        Global.setHttpClientFactory(new HttpClientFactory());
+    }
+
+    private void runQueued() {
+        for (final Runnable runnable : queued) {
+            runnable.run();
+        }
+    }
+
+    @Test
+    public void noTargetIdentity_identityServiceNotLookedUp() throws Exception {
+        final VsoAzureAuthority underTest = new VsoAzureAuthority() {
+            @Override
+            public boolean populateTokenTargetId(final URI targetUri, final Token accessToken) {
+                return false;
+            }
+        };
+
+        final Token actual = underTest.generatePersonalAccessToken(uri, accessToken, VsoTokenScope.CodeRead,
+                true, false, "test", queueingExecutor);
+
+        assertNull(actual);
+        assertEquals(1, queued.size());
+        runQueued();
+        verify(mockHttpClient, never()).getGetResponseText(any(URI.class));
+    }
+
+    @Test
+    public void targetIdentityLookupFails_identityServiceNotLookedUp() throws Exception {
+        final VsoAzureAuthority underTest = new VsoAzureAuthority() {
+            @Override
+            public boolean populateTokenTargetId(final URI targetUri, final Token accessToken) {
+                throw new IllegalStateException("unreachable");
+            }
+        };
+
+        try {
+            underTest.generatePersonalAccessToken(uri, accessToken, VsoTokenScope.CodeRead, true, false, "test",
+                    queueingExecutor);
+            fail("An IllegalStateException should have been thrown");
+        } catch (final IllegalStateException expected) {
+        }
+
+        runQueued();
+        verify(mockHttpClient, never()).getGetResponseText(any(URI.class));
+    }
+
+    @Test
+    public void noTargetIdentity_withoutExecutor_identityServiceNotLookedUp() throws Exception {
+        final VsoAzureAuthority underTest = new VsoAzureAuthority() {
+            @Override
+            public boolean populateTokenTargetId(final URI targetUri, final Token accessToken) {
+                return false;
+            }
+        };
+
+        assertNull(underTest.generatePersonalAccessToken(uri, accessToken, VsoTokenScope.CodeRead, true, false,
+                "test"));
+        verify(mockHttpClient, never()).getGetResponseText(any(URI.class));
+    }
+}
@@ -3,22 +3,37 @@
 
 package com.microsoft.alm.auth.pat;
 
+import com.microsoft.alm.auth.HttpClientFactory;
 import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.auth.oauth.Global;
 import com.microsoft.alm.auth.oauth.OAuth2Authenticator;
+import com.microsoft.alm.helpers.HttpClient;
+import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.secret.TokenType;
 import com.microsoft.alm.secret.VsoTokenScope;
 import com.microsoft.alm.storage.SecretStore;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class VstsPatAuthenticatorTest {
@@ -31,15 +46,27 @@ public class VstsPatAuthenticatorTest {
 
     private SecretStore<Token> tokenStore;
 
+    private HttpClient mockHttpClient;
+
     @Before
     public void setUp() throws Exception {
         tokenStore = mock(SecretStore.class);
         mockVsoAzureAuthority = mock(VsoAzureAuthority.class);
         mockVstsOauthAuthenticator = mock(OAuth2Authenticator.class);
+        mockHttpClient = mock(HttpClient.class);
+        when(mockHttpClient.getHeaders()).thenReturn(new HashMap<String, String>());
+        final HttpClientFactory mockHttpClientFactory = mock(HttpClientFactory.class);
+        when(mockHttpClientFactory.createHttpClient()).thenReturn(mockHttpClient);
+        Global.setHttpClientFactory(mockHttpClientFactory);
 
         underTest = new VstsPatAuthenticator(mockVsoAzureAuthority, mockVstsOauthAuthenticator, tokenStore);
     }
 
+    @After
+    public void tearDown() {
+        Global.setHttpClientFactory(new HttpClientFactory());
+    }
+
     @Test
     public void testGetPersonalAccessToken() throws Exception {
         URI uri = URI.create("https://testuri.visualstudio.com");
@@ -47,14 +74,118 @@ public class VstsPatAuthenticatorTest {
         when(mockVstsOauthAuthenticator.getOAuth2TokenPair(uri, PromptBehavior.NEVER)).thenReturn(null);
         when(mockVstsOauthAuthenticator.getOAuth2TokenPair(uri, PromptBehavior.AUTO)).thenReturn(tokenPair);
 
-        when(mockVsoAzureAuthority.generatePersonalAccessToken(uri, tokenPair.AccessToken, VsoTokenScope.AllScopes, true,
-                false, "PAT")).thenReturn(new Token("token", TokenType.Personal));
+        when(mockVsoAzureAuthority.generatePersonalAccessToken(eq(uri), eq(tokenPair.AccessToken),
+                eq(VsoTokenScope.AllScopes), eq(true), eq(false), eq("PAT"), any(Executor.class)))
+                .thenReturn(new Token("token", TokenType.Personal));
 
         Token token = underTest.getPersonalAccessToken(uri, VsoTokenScope.AllScopes, "PAT", PromptBehavior.AUTO);
 
         assertEquals("token", token.Value);
     }
 
+    @Test
+    public void storedPatIncludingScope_isReused() throws Exception {
+        final URI uri = URI.create("https://testuri.visualstudio.com");
+        final Token stored = new Token("stored", TokenType.Personal);
+        stored.setScope(VsoTokenScope.CodeAll);
+        when(tokenStore.get(underTest.getKey(uri))).thenReturn(stored);
+
+        final Token token = underTest.getPersonalAccessToken(uri, VsoTokenScope.CodeRead, "PAT", PromptBehavior.AUTO);
+
+        assertSame(stored, token);
+        verify(mockHttpClient).getGetResponseText(URI.create(uri + "/_apis/connectionData"));
+    }
+
+    @Test
+    public void storedPatWithNarrowerScope_isReplacedByOneGrantedBoth() throws Exception {
+        final URI uri = URI.create("https://testuri.visualstudio.com");
+        final TokenPair tokenPair = new TokenPair("access", "refresh");
+        final Token stored = new Token("stored", TokenType.Personal);
+        stored.setScope(VsoTokenScope.CodeRead);
+        when(tokenStore.get(underTest.getKey(uri))).thenReturn(stored);
+        when(mockVstsOauthAuthenticator.getOAuth2TokenPair(uri, PromptBehavior.AUTO)).thenReturn(tokenPair);
+        final VsoTokenScope bothScopes = VsoTokenScope.or(VsoTokenScope.CodeRead, VsoTokenScope.WorkWrite);
+        when(mockVsoAzureAuthority.generatePersonalAccessToken(eq(uri), eq(tokenPair.AccessToken), eq(bothScopes),
+                eq(true), eq(false), eq("PAT"), any(Executor.class))).thenReturn(new Token("token", TokenType.Personal));
+
+        final Token token = underTest.getPersonalAccessToken(uri, VsoTokenScope.WorkWrite, "PAT", PromptBehavior.AUTO);
+
+        assertEquals("token", token.Value);
+        assertEquals(bothScopes, token.getScope());
+        verify(mockHttpClient, never()).getGetResponseText(any(URI.class));
+        verify(tokenStore).add(underTest.getKey(uri), token);
+    }
+
+    @Test
+    public void globalPatIncludingScope_isReusedBeforeMinting() throws Exception {
+        final URI uri = URI.create("https://testuri.visualstudio.com");
+        final Token globalPat = new Token("global", TokenType.Personal);
+        globalPat.setScope(VsoTokenScope.AllScopes);
+        when(tokenStore.get(underTest.getKey(OAuth2Authenticator.APP_VSSPS_VISUALSTUDIO))).thenReturn(globalPat);
+
+        final Token token = underTest.getPersonalAccessToken(uri, VsoTokenScope.CodeRead, "PAT", PromptBehavior.AUTO);
+
+        assertSame(globalPat, token);
+        verify(mockVstsOauthAuthenticator, never()).getOAuth2TokenPair(uri, PromptBehavior.AUTO);
+        verify(tokenStore).add(underTest.getKey(uri), globalPat);
+    }
+
+    @Test
+    public void widen_allScopesIsNotNarrowed() {
+        assertEquals(VsoTokenScope.AllScopes,
+                VstsPatAuthenticator.widen(VsoTokenScope.CodeRead, VsoTokenScope.AllScopes));
+        assertEquals(VsoTokenScope.CodeRead, VstsPatAuthenticator.widen(null, VsoTokenScope.CodeRead));
+    }
+
+    @Test
+    public void findFirstActiveAccount_skipsInactiveAccounts() throws Exception {
+        final String json = "{\"count\":3,\"value\":[" +
+                "{\"accountId\":\"c9e1b3a6-1b7b-4c1c-8c2f-0a3e6b3c1f10\",\"accountName\":\"inactive\"," +
+                "\"properties\":{\"nested\":[1,2,3]}}," +
+                "{\"accountName\":\"active\",\"accountUri\":\"https://active.vssps.visualstudio.com/\"," +
+                "\"accountStatus\":\"enabled\"}," +
+                "{\"accountName\":\"second\",\"accountUri\":\"https://second.vssps.visualstudio.com/\"," +
+                "\"accountStatus\":\"enabled\"}" +
+                "]}";
+
+        final VstsPatAuthenticator.Account actual = underTest.findFirstActiveAccount(toStream(json));
+
+        assertEquals("active", actual.accountName);
+    }
+
+    @Test
+    public void findFirstActiveAccount_valueAfterOtherProperties() throws Exception {
+        final String json = "{\"meta\":{\"value\":[]},\"count\":1,\"value\":[" +
+                "{\"accountName\":\"active\",\"accountUri\":\"https://active.vssps.visualstudio.com/\"," +
+                "\"accountStatus\":\"enabled\"}" +
+                "]}";
+
+        final VstsPatAuthenticator.Account actual = underTest.findFirstActiveAccount(toStream(json));
+
+        assertEquals("active", actual.accountName);
+    }
+
+    @Test
+    public void findFirstActiveAccount_noActiveAccount() throws Exception {
+        final String json = "{\"count\":1,\"value\":[{\"accountName\":\"inactive\"}]}";
+
+        assertNull(underTest.findFirstActiveAccount(toStream(json)));
+        assertNull(underTest.findFirstActiveAccount(toStream("{\"count\":0}")));
+    }
+
+    private static InputStream toStream(final String json) {
+        return new ByteArrayInputStream(StringHelper.UTF8GetBytes(json));
+    }
+
+    @Test
+    public void parseIdFromJson_ignoresNestedIds() {
+        final String json = "{\"displayName\":\"say \\\"id\\\"\",\"coreAttributes\":{\"id\":\"nested\"},"
+                + "\"id\":\"a6bb7ff4-4aa9-4b5b-8e2f-5b8fdf6b3a25\"}";
+
+        assertEquals("a6bb7ff4-4aa9-4b5b-8e2f-5b8fdf6b3a25", VstsPatAuthenticator.parseIdFromJson(json));
+        assertNull(VstsPatAuthenticator.parseIdFromJson("not json"));
+    }
+
     @Test
     public void testGetAuthType() throws Exception {
         assertEquals("PersonalAccessToken", underTest.getAuthType());
@@ -5,18 +5,15 @@ package com.microsoft.alm.provider;
 
 import com.microsoft.alm.auth.Authenticator;
 import com.microsoft.alm.auth.PromptBehavior;
-import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.secret.Credential;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.helpers.Debug;
-import com.microsoft.alm.helpers.ObjectExtensions;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.glassfish.jersey.SslConfigurator;
 import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
@@ -28,9 +25,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.ClientRequestContext;
-import javax.ws.rs.client.ClientRequestFilter;
-import java.io.IOException;
 import java.net.URI;
 
 /**
@@ -39,7 +33,12 @@ import java.net.URI;
  * In case of Credential and Personal Access Token type of authentication data, basic auth is used.  For PAT, the user
  * name is hardcoded to identify Personal Access Token authentication type instead of the user.
  *
- * In case of OAuth2 token, we embedded the token as a "Bearer" token in the Authorization header.
+ * In case of OAuth2 token, we embedded the token as a "Bearer" token in the Authorization header.  The token is
+ * refreshed through the authenticator whenever the server rejects it, and the rejected request is retried once.
+ *
+ * Every call returns a new client that belongs to the caller, who may register filters on it or close it.  The
+ * clients borrow their connections from one pool shared by the whole process, so building one is cheap and
+ * connections to the server are reused across clients.
  */
 public class JaxrsClientProvider {
 
@@ -102,7 +101,7 @@ public class JaxrsClientProvider {
         if (authenticator.isOAuth2TokenSupported()) {
             logger.debug("Getting a jaxrs client backed by OAuth2 token.");
             final TokenPair tokenPair = authenticator.getOAuth2TokenPair(promptBehavior);
-            client = getClientWithOAuth2RequestFilter(tokenPair);
+            client = getClientWithOAuth2RequestFilter(null, tokenPair);
         }
         // Get a client backed by a global PAT
         else if (authenticator.isPersonalAccessTokenSupported()) {
@@ -175,7 +174,7 @@ public class JaxrsClientProvider {
             logger.debug("Getting a jaxrs client backed by OAuth2 token.");
 
             final TokenPair tokenPair = authenticator.getOAuth2TokenPair(uri, promptBehavior);
-            client = getClientWithOAuth2RequestFilter(tokenPair);
+            client = getClientWithOAuth2RequestFilter(uri, tokenPair);
 
         } else if (authenticator.isPersonalAccessTokenSupported()) {
             logger.debug("Getting a jaxrs client backed by PersonalAccessToken.");
@@ -195,100 +194,58 @@ public class JaxrsClientProvider {
         return client;
     }
 
-    private Client getClientWithOAuth2RequestFilter(final TokenPair tokenPair) {
-        // default Jersey client with HttpURLConnection as the connector
-        final Client client;
-
-        // add proxy information
-        final ClientConfig clientConfig = new ClientConfig();
-        addProxySettings(clientConfig);
-
-        if (tokenPair != null && tokenPair.AccessToken != null) {
-            client = ClientBuilder.newClient(clientConfig);
-
-            client.register(new ClientRequestFilter() {
-                @Override
-                public void filter(final ClientRequestContext requestContext) throws IOException {
-                    requestContext.getHeaders().putSingle("Authorization", "Bearer " + tokenPair.AccessToken.Value);
-                }
-            });
-        } else {
-            client = null;
+    /**
+     * OAuth2 clients follow the authenticator rather than sticking to one token: the token is refreshed whenever
+     * the server rejects it, so a long-lived client survives the token expiring.
+     */
+    private Client getClientWithOAuth2RequestFilter(final URI uri, final TokenPair tokenPair) {
+        if (tokenPair == null || tokenPair.AccessToken == null) {
+            return null;
         }
 
+        final Client client = ClientBuilder.newClient(createClientConfig());
+        client.register(new OAuth2TokenRefreshingFilter(authenticator, uri, tokenPair));
+
         return client;
     }
 
     private Client getClientWithUsernamePassword(final String username, final String password) {
-        final ClientConfig clientConfig = getClientConfig(username, password);
+        Debug.Assert(username != null, "username cannot be null");
+        Debug.Assert(password != null, "password cannot be null");
 
-        return ClientBuilder.newClient(clientConfig);
+        return ClientBuilder.newClient(getClientConfig(username, password));
     }
 
     private ClientConfig getClientConfig(final String username, final String password) {
-        Debug.Assert(username != null, "username cannot be null");
-        Debug.Assert(password != null, "password cannot be null");
-
         final Credentials credentials
                 = new UsernamePasswordCredentials(username, password);
 
         final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
         credentialsProvider.setCredentials(AuthScope.ANY, credentials);
 
-        final ConnectorProvider connectorProvider = new ApacheConnectorProvider();
-
-        final ClientConfig clientConfig = new ClientConfig().connectorProvider(connectorProvider);
+        final ClientConfig clientConfig = createClientConfig();
         clientConfig.property(ApacheClientProperties.CREDENTIALS_PROVIDER, credentialsProvider);
 
         clientConfig.property(ApacheClientProperties.PREEMPTIVE_BASIC_AUTHENTICATION, true);
         clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
 
-        addProxySettings(clientConfig);
-
         return clientConfig;
     }
 
-    private void addProxySettings(final ClientConfig clientConfig) {
-        // favor http proxyHost
-        final String proxyHost = SettingsHelper.getInstance().getProperty("http.proxyHost");
-        final String proxyPort = ObjectExtensions.<String>coalesce(
-                        SettingsHelper.getInstance().getProperty("http.proxyPort"), "8080");
-
-        if (proxyHost != null) {
-            final String proxyUrl = String.format("http://%s:%s", proxyHost, proxyPort);
-            logger.debug("Proxy is set, adding proxy: {}", proxyUrl);
-
-            clientConfig.property(ClientProperties.PROXY_URI, proxyUrl);
-
-            final SslConfigurator sslConfigurator = getSslConfigurator();
-            if (sslConfigurator != null) {
-                logger.debug("Setting up ssl configurator.");
-                clientConfig.property(ApacheClientProperties.SSL_CONFIG, sslConfigurator);
-            }
-        }
-    }
+    /**
+     * Apache connector backed configuration with the proxy settings, borrowing from the shared connection pool.
+     */
+    private ClientConfig createClientConfig() {
+        final ConnectorProvider connectorProvider = new ApacheConnectorProvider();
+        final ClientConfig clientConfig = new ClientConfig().connectorProvider(connectorProvider);
 
-    private SslConfigurator getSslConfigurator() {
-        final String trustStore = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStore");
-        final String trustStorePassword = SettingsHelper.getInstance().getProperty("javax.net.ssl.trustStorePassword");
-
-        final SslConfigurator sslConfigurator;
-        if (trustStore != null && trustStorePassword != null) {
-            logger.debug("Setting up ssl configurator with trustStore: {}", trustStore);
-            sslConfigurator = SslConfigurator.newInstance()
-                    .trustStoreFile(trustStore)
-                    .trustStorePassword(trustStorePassword)
-                    .trustStoreType("JKS")
-                    .trustManagerFactoryAlgorithm("PKIX")
-                    .securityProtocol("SSL");
-
-        } else {
-            logger.debug("trustStore exists? {}, trustStorePassword is specified? {}",
-                    trustStore != null,
-                    trustStorePassword != null);
-            sslConfigurator = null;
+        final ProxySettings proxySettings = ProxySettings.getCurrent();
+        if (proxySettings.getProxyUrl() != null) {
+            clientConfig.property(ClientProperties.PROXY_URI, proxySettings.getProxyUrl());
         }
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER,
+                SharedConnectionManager.forSettings(proxySettings));
 
-        return sslConfigurator;
+        return clientConfig;
     }
 }
@@ -0,0 +1,165 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.secret.Token;
+import com.microsoft.alm.secret.TokenPair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a long-lived JAXRS client authenticated with an OAuth2 access token.
+ *
+ * Every request is sent with the current access token.  When the server answers {@code 401 Unauthorized}, the
+ * authenticator is asked for a new token without prompting the user, which refreshes and stores it, and the request
+ * is sent once more with the new token.  The response to the retry replaces the {@code 401}, so callers never see it.
+ *
+ * Requests whose entity is an {@link InputStream} are not retried, as the stream has already been consumed.
+ *
+ * Refreshing is serialized: while one request waits for the authenticator to get a new token over the network,
+ * the other requests rejected with the same token wait for it too, and then retry with the token it got.
+ */
+class OAuth2TokenRefreshingFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(OAuth2TokenRefreshingFilter.class);
+
+    /**
+     * Marks a request as the retry of a request that was unauthorized, so that it isn't retried again.
+     */
+    static final String RETRY_PROPERTY = OAuth2TokenRefreshingFilter.class.getName() + ".retry";
+
+    private final Authenticator authenticator;
+    private final URI uri;
+
+    private volatile String authorizationHeaderValue;
+
+    /**
+     * @param authenticator
+     *      the authenticator the token came from, and that will refresh it
+     * @param uri
+     *      the account the token is for, {@code null} for a global token
+     * @param tokenPair
+     *      the token to start with
+     */
+    OAuth2TokenRefreshingFilter(final Authenticator authenticator, final URI uri, final TokenPair tokenPair) {
+        Debug.Assert(authenticator != null, "authenticator cannot be null");
+
+        Debug.Assert(tokenPair != null && tokenPair.AccessToken != null, "tokenPair must have an access token");
+
+        this.authenticator = authenticator;
+        this.uri = uri;
+        this.authorizationHeaderValue = tokenPair.AccessToken.getAuthorizationHeaderValue();
+    }
+
+    @Override
+    public void filter(final ClientRequestContext requestContext) throws IOException {
+        requestContext.getHeaders().putSingle(Token.AUTHORIZATION_HEADER, authorizationHeaderValue);
+    }
+
+    @Override
+    public void filter(final ClientRequestContext requestContext, final ClientResponseContext responseContext)
+            throws IOException {
+        if (responseContext.getStatus() != HttpURLConnection.HTTP_UNAUTHORIZED
+                || requestContext.getProperty(RETRY_PROPERTY) != null
+                || requestContext.getEntity() instanceof InputStream) {
+            return;
+        }
+
+        final String rejectedValue = requestContext.getHeaderString(Token.AUTHORIZATION_HEADER);
+        if (!refresh(rejectedValue)) {
+            logger.debug("Could not get a new OAuth2 access token, returning the unauthorized response.");
+            return;
+        }
+
+        logger.debug("Retrying {} {} with a new OAuth2 access token.", requestContext.getMethod(), requestContext.getUri());
+        // give the connection the 401 came on back to the pool before the retry asks it for one
+        IOHelper.closeQuietly(responseContext.getEntityStream());
+        final Response response = retry(requestContext);
+
+        responseContext.setStatus(response.getStatus());
+        responseContext.getHeaders().clear();
+        for (final Map.Entry<String, List<String>> header : response.getStringHeaders().entrySet()) {
+            responseContext.getHeaders().put(header.getKey(), new ArrayList<String>(header.getValue()));
+        }
+        if (response.hasEntity()) {
+            responseContext.setEntityStream(response.readEntity(InputStream.class));
+        } else {
+            response.close();
+            responseContext.setEntityStream(new ByteArrayInputStream(new byte[0]));
+        }
+    }
+
+    /**
+     * Asks the authenticator for a new token, without prompting.  This blocks on the authenticator, which may have
+     * to go to the network, and callers rejected at the same time queue up behind it.
+     *
+     * @return {@code true} if there is an access token other than the rejected one to retry with.
+     */
+    synchronized boolean refresh(final String rejectedValue) {
+        if (rejectedValue != null && !rejectedValue.equals(authorizationHeaderValue)) {
+            // another request already refreshed it
+            return true;
+        }
+
+        final TokenPair tokenPair = uri == null
+                ? authenticator.getOAuth2TokenPair(PromptBehavior.NEVER)
+                : authenticator.getOAuth2TokenPair(uri, PromptBehavior.NEVER);
+        if (tokenPair == null || tokenPair.AccessToken == null) {
+            return false;
+        }
+
+        final String refreshedValue = tokenPair.AccessToken.getAuthorizationHeaderValue();
+        if (refreshedValue.equals(rejectedValue)) {
+            // the authenticator still considers the token valid, the request must be unauthorized for another reason
+            return false;
+        }
+        authorizationHeaderValue = refreshedValue;
+        return true;
+    }
+
+    private static Response retry(final ClientRequestContext requestContext) {
+        final Invocation.Builder builder = requestContext.getClient()
+                .target(requestContext.getUri())
+                .request()
+                .property(RETRY_PROPERTY, Boolean.TRUE);
+
+        for (final Map.Entry<String, List<Object>> header : requestContext.getHeaders().entrySet()) {
+            final String name = header.getKey();
+            // the request filter sets the new token, and the connector computes the length again
+            if (Token.AUTHORIZATION_HEADER.equalsIgnoreCase(name) || HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (final Object value : header.getValue()) {
+                builder.header(name, value);
+            }
+        }
+
+        if (requestContext.hasEntity()) {
+            final Entity<?> entity = Entity.entity(requestContext.getEntity(), requestContext.getMediaType());
+            return builder.method(requestContext.getMethod(), entity);
+        }
+        return builder.method(requestContext.getMethod());
+    }
+}
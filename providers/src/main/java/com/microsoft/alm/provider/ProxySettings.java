@@ -0,0 +1,133 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.helpers.ObjectExtensions;
+import com.microsoft.alm.helpers.SettingsHelper;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.glassfish.jersey.SslConfigurator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+
+/**
+ * The proxy and SSL configuration shared by the JAXRS clients, built from the {@code http.proxyHost},
+ * {@code http.proxyPort}, {@code javax.net.ssl.trustStore} and {@code javax.net.ssl.trustStorePassword} settings.
+ *
+ * Loading the trust store and creating an {@link javax.net.ssl.SSLContext} is expensive, so the configuration is
+ * built once and reused until one of the settings changes.  Every client then shares one SSL context, which also
+ * lets TLS sessions be resumed across clients.
+ *
+ * Instances are immutable and equal when they were built from the same settings, so they can be part of a cache key.
+ */
+final class ProxySettings {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProxySettings.class);
+
+    static final String PROXY_HOST = "http.proxyHost";
+    static final String PROXY_PORT = "http.proxyPort";
+    static final String TRUST_STORE = "javax.net.ssl.trustStore";
+    static final String TRUST_STORE_PASSWORD = "javax.net.ssl.trustStorePassword";
+
+    static final String DEFAULT_PROXY_PORT = "8080";
+
+    private static volatile ProxySettings current;
+
+    private final String[] settings;
+    private final String proxyUrl;
+    private final SSLConnectionSocketFactory sslSocketFactory;
+
+    private ProxySettings(final String[] settings) {
+        this.settings = settings;
+
+        final String proxyHost = settings[0];
+        final String proxyPort = ObjectExtensions.<String>coalesce(settings[1], DEFAULT_PROXY_PORT);
+
+        // favor http proxyHost
+        SslConfigurator sslConfigurator = null;
+        if (proxyHost != null) {
+            this.proxyUrl = String.format("http://%s:%s", proxyHost, proxyPort);
+            logger.debug("Proxy is set, adding proxy: {}", proxyUrl);
+
+            sslConfigurator = createSslConfigurator(settings[2], settings[3]);
+        } else {
+            this.proxyUrl = null;
+        }
+
+        if (sslConfigurator != null) {
+            logger.debug("Setting up ssl socket factory.");
+            this.sslSocketFactory = new SSLConnectionSocketFactory(sslConfigurator.createSSLContext(),
+                    SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+        } else {
+            this.sslSocketFactory = SSLConnectionSocketFactory.getSocketFactory();
+        }
+    }
+
+    /**
+     * Returns the configuration for the current settings, building it only if they changed since the last call.
+     */
+    static ProxySettings getCurrent() {
+        final SettingsHelper settingsHelper = SettingsHelper.getInstance();
+        final String[] settings = {
+                settingsHelper.getProperty(PROXY_HOST),
+                settingsHelper.getProperty(PROXY_PORT),
+                settingsHelper.getProperty(TRUST_STORE),
+                settingsHelper.getProperty(TRUST_STORE_PASSWORD),
+        };
+
+        ProxySettings result = current;
+        if (result == null || !Arrays.equals(result.settings, settings)) {
+            // racing threads may each build one; they are equal, so it doesn't matter whose is kept
+            result = new ProxySettings(settings);
+            current = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the proxy URL, {@code null} if no proxy is set.
+     */
+    String getProxyUrl() {
+        return proxyUrl;
+    }
+
+    /**
+     * @return the socket factory for https connections; always the same instance for the same settings.
+     */
+    SSLConnectionSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return o instanceof ProxySettings && Arrays.equals(this.settings, ((ProxySettings) o).settings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(settings);
+    }
+
+    private static SslConfigurator createSslConfigurator(final String trustStore, final String trustStorePassword) {
+        final SslConfigurator sslConfigurator;
+        if (trustStore != null && trustStorePassword != null) {
+            logger.debug("Setting up ssl configurator with trustStore: {}", trustStore);
+            sslConfigurator = SslConfigurator.newInstance()
+                    .trustStoreFile(trustStore)
+                    .trustStorePassword(trustStorePassword)
+                    .trustStoreType("JKS")
+                    .trustManagerFactoryAlgorithm("PKIX")
+                    .securityProtocol("SSL");
+
+        } else {
+            logger.debug("trustStore exists? {}, trustStorePassword is specified? {}",
+                    trustStore != null,
+                    trustStorePassword != null);
+            sslConfigurator = null;
+        }
+
+        return sslConfigurator;
+    }
+}
@@ -0,0 +1,140 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.helpers.Debug;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets the JAXRS clients handed out by {@link JaxrsClientProvider} borrow connections from one shared pool.
+ *
+ * Every client gets its own instance, a view of the pool.  Closing a client shuts down only its view, so callers
+ * may close, or keep, the clients they are handed without affecting anybody else's requests.
+ *
+ * The pool is built for the current {@link ProxySettings}.  When they change, the next client gets a new pool;
+ * the idle connections of the old one are closed right away, and the rest are closed once the clients still
+ * using it are gone.
+ */
+final class SharedConnectionManager implements HttpClientConnectionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedConnectionManager.class);
+
+    static final int MAX_CONNECTIONS_TOTAL = 20;
+    static final int MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    // guarded by SharedConnectionManager.class
+    private static ProxySettings pooledSettings;
+    private static PoolingHttpClientConnectionManager pool;
+
+    /**
+     * @return a new view of the pool for the specified settings
+     */
+    static synchronized SharedConnectionManager forSettings(final ProxySettings proxySettings) {
+        Debug.Assert(proxySettings != null, "proxySettings cannot be null");
+
+        if (pool == null || !proxySettings.equals(pooledSettings)) {
+            if (pool != null) {
+                logger.debug("Proxy settings changed, starting a new connection pool.");
+                pool.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+            }
+            pool = createPool(proxySettings);
+            pooledSettings = proxySettings;
+        }
+        return new SharedConnectionManager(pool);
+    }
+
+    private static PoolingHttpClientConnectionManager createPool(final ProxySettings proxySettings) {
+        // the connector ignores SSL_CONFIG when handed a connection manager, so the SSL context is set up here
+        final Registry<ConnectionSocketFactory> registry = RegistryBuilder.<ConnectionSocketFactory>create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", proxySettings.getSslSocketFactory())
+                .build();
+
+        final PoolingHttpClientConnectionManager result = new PoolingHttpClientConnectionManager(registry);
+        result.setMaxTotal(MAX_CONNECTIONS_TOTAL);
+        result.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+        return result;
+    }
+
+    private final PoolingHttpClientConnectionManager delegate;
+    private volatile boolean isShutdown;
+
+    SharedConnectionManager(final PoolingHttpClientConnectionManager delegate) {
+        this.delegate = delegate;
+    }
+
+    PoolingHttpClientConnectionManager getPool() {
+        return delegate;
+    }
+
+    boolean isShutdown() {
+        return isShutdown;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(final HttpRoute route, final Object state) {
+        if (isShutdown) {
+            throw new IllegalStateException("Connection manager has been shut down");
+        }
+        return delegate.requestConnection(route, state);
+    }
+
+    @Override
+    public void releaseConnection(final HttpClientConnection conn, final Object newState, final long validDuration,
+                                  final TimeUnit timeUnit) {
+        delegate.releaseConnection(conn, newState, validDuration, timeUnit);
+    }
+
+    @Override
+    public void connect(final HttpClientConnection conn, final HttpRoute route, final int connectTimeout,
+                        final HttpContext context) throws IOException {
+        delegate.connect(conn, route, connectTimeout, context);
+    }
+
+    @Override
+    public void upgrade(final HttpClientConnection conn, final HttpRoute route, final HttpContext context)
+            throws IOException {
+        delegate.upgrade(conn, route, context);
+    }
+
+    @Override
+    public void routeComplete(final HttpClientConnection conn, final HttpRoute route, final HttpContext context)
+            throws IOException {
+        delegate.routeComplete(conn, route, context);
+    }
+
+    @Override
+    public void closeIdleConnections(final long idleTime, final TimeUnit timeUnit) {
+        delegate.closeIdleConnections(idleTime, timeUnit);
+    }
+
+    @Override
+    public void closeExpiredConnections() {
+        delegate.closeExpiredConnections();
+    }
+
+    /**
+     * Stops this view from handing out connections; the pool itself, and the connections other clients are
+     * using, are left alone.
+     */
+    @Override
+    public void shutdown() {
+        isShutdown = true;
+    }
+}
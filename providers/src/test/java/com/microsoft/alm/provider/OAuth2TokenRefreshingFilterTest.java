@@ -0,0 +1,129 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.microsoft.alm.auth.Authenticator;
+import com.microsoft.alm.auth.PromptBehavior;
+import com.microsoft.alm.secret.TokenPair;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
+import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
+import org.glassfish.jersey.client.ClientConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OAuth2TokenRefreshingFilterTest {
+
+    private static final String OLD_AUTHORIZATION = "Bearer old";
+    private static final String NEW_AUTHORIZATION = "Bearer new";
+
+    private StubHttpServer server;
+    private URI uri;
+    private Authenticator authenticator;
+    private Client client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new StubHttpServer(NEW_AUTHORIZATION);
+        uri = server.getUri();
+        authenticator = mock(Authenticator.class);
+
+        // a single connection, so a retry can only go out once the rejected request has let go of it
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setDefaultMaxPerRoute(1);
+        final ClientConfig clientConfig = new ClientConfig().connectorProvider(new ApacheConnectorProvider());
+        clientConfig.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+        client = ClientBuilder.newClient(clientConfig);
+        client.register(new OAuth2TokenRefreshingFilter(authenticator, uri, new TokenPair("old", "refresh")));
+    }
+
+    @After
+    public void tearDown() {
+        client.close();
+        server.stop();
+    }
+
+    private void refreshTo(final String accessToken) {
+        when(authenticator.getOAuth2TokenPair(uri, PromptBehavior.NEVER))
+                .thenReturn(new TokenPair(accessToken, "refresh"));
+    }
+
+    @Test(timeout = 30000)
+    public void unauthorized_refreshesAndRetries() {
+        refreshTo("new");
+
+        for (int i = 0; i < 3; i++) {
+            final Response response = client.target(uri).request().get();
+            assertEquals(200, response.getStatus());
+            assertEquals(StubHttpServer.OK, response.readEntity(String.class));
+        }
+
+        // only the first request was rejected; the others went out with the new token
+        assertEquals(Arrays.asList(OLD_AUTHORIZATION, NEW_AUTHORIZATION, NEW_AUTHORIZATION, NEW_AUTHORIZATION),
+                server.getAuthorizations());
+    }
+
+    @Test(timeout = 30000)
+    public void unauthorized_postIsRetriedWithItsEntity() {
+        refreshTo("new");
+
+        final Response response = client.target(uri).request()
+                .post(Entity.entity("payload", MediaType.TEXT_PLAIN_TYPE));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(StubHttpServer.OK, response.readEntity(String.class));
+        assertEquals(Arrays.asList(OLD_AUTHORIZATION, NEW_AUTHORIZATION), server.getAuthorizations());
+    }
+
+    @Test(timeout = 30000)
+    public void unauthorized_tokenUnchanged_notRetried() {
+        refreshTo("old");
+
+        final Response response = client.target(uri).request().get();
+
+        assertEquals(401, response.getStatus());
+        assertEquals(StubHttpServer.UNAUTHORIZED, response.readEntity(String.class));
+        assertEquals(Arrays.asList(OLD_AUTHORIZATION), server.getAuthorizations());
+    }
+
+    @Test(timeout = 30000)
+    public void unauthorized_noToken_notRetried() {
+        when(authenticator.getOAuth2TokenPair(uri, PromptBehavior.NEVER)).thenReturn(null);
+
+        final Response response = client.target(uri).request().get();
+
+        assertEquals(401, response.getStatus());
+        assertEquals(Arrays.asList(OLD_AUTHORIZATION), server.getAuthorizations());
+    }
+
+    @Test(timeout = 30000)
+    public void unauthorized_inputStreamEntity_notRetried() {
+        refreshTo("new");
+
+        final Response response = client.target(uri).request()
+                .post(Entity.entity(new ByteArrayInputStream(new byte[]{1, 2, 3}),
+                        MediaType.APPLICATION_OCTET_STREAM_TYPE));
+
+        assertEquals(401, response.getStatus());
+        response.close();
+        assertEquals(Arrays.asList(OLD_AUTHORIZATION), server.getAuthorizations());
+        verify(authenticator, never()).getOAuth2TokenPair(uri, PromptBehavior.NEVER);
+    }
+}
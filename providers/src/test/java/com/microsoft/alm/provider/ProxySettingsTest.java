@@ -0,0 +1,91 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ProxySettingsTest {
+
+    private static final String[] PROPERTIES = {
+            ProxySettings.PROXY_HOST,
+            ProxySettings.PROXY_PORT,
+            ProxySettings.TRUST_STORE,
+            ProxySettings.TRUST_STORE_PASSWORD,
+    };
+
+    private final Map<String, String> oldValues = new HashMap<String, String>();
+
+    @Before
+    public void setUp() {
+        for (final String name : PROPERTIES) {
+            oldValues.put(name, System.getProperty(name));
+            System.clearProperty(name);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (final String name : PROPERTIES) {
+            final String value = oldValues.get(name);
+            if (value == null) {
+                System.clearProperty(name);
+            } else {
+                System.setProperty(name, value);
+            }
+        }
+    }
+
+    @Test
+    public void getCurrent_noProxy() {
+        final ProxySettings actual = ProxySettings.getCurrent();
+
+        assertNull(actual.getProxyUrl());
+        assertNotNull(actual.getSslSocketFactory());
+    }
+
+    @Test
+    public void getCurrent_reusedWhileSettingsAreUnchanged() {
+        final ProxySettings first = ProxySettings.getCurrent();
+        final ProxySettings second = ProxySettings.getCurrent();
+
+        assertSame(first, second);
+        assertSame(first.getSslSocketFactory(), second.getSslSocketFactory());
+    }
+
+    @Test
+    public void getCurrent_rebuiltWhenASettingChanges() {
+        final ProxySettings direct = ProxySettings.getCurrent();
+
+        System.setProperty(ProxySettings.PROXY_HOST, "proxy.example.com");
+        final ProxySettings defaultPort = ProxySettings.getCurrent();
+
+        assertNotSame(direct, defaultPort);
+        assertEquals("http://proxy.example.com:8080", defaultPort.getProxyUrl());
+        assertSame(defaultPort, ProxySettings.getCurrent());
+
+        System.setProperty(ProxySettings.PROXY_PORT, "3128");
+        final ProxySettings customPort = ProxySettings.getCurrent();
+
+        assertEquals("http://proxy.example.com:3128", customPort.getProxyUrl());
+
+        System.clearProperty(ProxySettings.PROXY_HOST);
+        System.clearProperty(ProxySettings.PROXY_PORT);
+        final ProxySettings directAgain = ProxySettings.getCurrent();
+
+        assertNull(directAgain.getProxyUrl());
+        assertEquals(direct, directAgain);
+        assertEquals(direct.hashCode(), directAgain.hashCode());
+    }
+}
@@ -0,0 +1,74 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SharedConnectionManagerTest {
+
+    private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("localhost", 80));
+
+    private String oldProxyHost;
+
+    @Before
+    public void setUp() {
+        oldProxyHost = System.getProperty(ProxySettings.PROXY_HOST);
+        System.clearProperty(ProxySettings.PROXY_HOST);
+    }
+
+    @After
+    public void tearDown() {
+        if (oldProxyHost == null) {
+            System.clearProperty(ProxySettings.PROXY_HOST);
+        } else {
+            System.setProperty(ProxySettings.PROXY_HOST, oldProxyHost);
+        }
+    }
+
+    @Test
+    public void forSettings_sharesOnePoolPerSettings() {
+        final SharedConnectionManager first = SharedConnectionManager.forSettings(ProxySettings.getCurrent());
+        final SharedConnectionManager second = SharedConnectionManager.forSettings(ProxySettings.getCurrent());
+
+        assertNotSame(first, second);
+        assertSame(first.getPool(), second.getPool());
+        assertEquals(SharedConnectionManager.MAX_CONNECTIONS_TOTAL, first.getPool().getMaxTotal());
+        assertEquals(SharedConnectionManager.MAX_CONNECTIONS_PER_ROUTE, first.getPool().getDefaultMaxPerRoute());
+
+        System.setProperty(ProxySettings.PROXY_HOST, "proxy.example.com");
+        final SharedConnectionManager proxied = SharedConnectionManager.forSettings(ProxySettings.getCurrent());
+
+        assertNotSame(first.getPool(), proxied.getPool());
+    }
+
+    @Test
+    public void shutdown_onlyStopsThatView() {
+        final SharedConnectionManager closed = SharedConnectionManager.forSettings(ProxySettings.getCurrent());
+        final SharedConnectionManager open = SharedConnectionManager.forSettings(ProxySettings.getCurrent());
+
+        closed.shutdown();
+
+        assertTrue(closed.isShutdown());
+        assertFalse(open.isShutdown());
+        try {
+            closed.requestConnection(ROUTE, null);
+            fail("An IllegalStateException should have been thrown");
+        } catch (final IllegalStateException expected) {
+        }
+        final ConnectionRequest request = open.requestConnection(ROUTE, null);
+        request.cancel();
+    }
+}
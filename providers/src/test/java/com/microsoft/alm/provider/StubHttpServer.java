@@ -0,0 +1,76 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.provider;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A local HTTP server that answers {@code 200 ok} to requests carrying the accepted {@code Authorization} header
+ * and {@code 401 unauthorized} to all others, and remembers the header of every request it received.
+ */
+class StubHttpServer {
+
+    static final String OK = "ok";
+    static final String UNAUTHORIZED = "unauthorized";
+
+    private final HttpServer server;
+    private final List<String> authorizations = Collections.synchronizedList(new ArrayList<String>());
+    private volatile String acceptedAuthorization;
+
+    StubHttpServer(final String acceptedAuthorization) throws IOException {
+        this.acceptedAuthorization = acceptedAuthorization;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        this.server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                final InputStream requestBody = exchange.getRequestBody();
+                while (requestBody.read() != -1) {
+                    // drain the request so the connection can be reused
+                }
+                final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                authorizations.add(authorization);
+
+                final boolean accepted = authorization != null
+                        && authorization.equals(StubHttpServer.this.acceptedAuthorization);
+                final byte[] body = (accepted ? OK : UNAUTHORIZED).getBytes("UTF-8");
+                exchange.sendResponseHeaders(accepted ? 200 : 401, body.length);
+                final OutputStream responseBody = exchange.getResponseBody();
+                responseBody.write(body);
+                responseBody.close();
+            }
+        });
+        this.server.start();
+    }
+
+    URI getUri() {
+        final InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getAddress().getHostAddress() + ":" + address.getPort() + "/");
+    }
+
+    void setAcceptedAuthorization(final String acceptedAuthorization) {
+        this.acceptedAuthorization = acceptedAuthorization;
+    }
+
+    List<String> getAuthorizations() {
+        synchronized (authorizations) {
+            return new ArrayList<String>(authorizations);
+        }
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+}
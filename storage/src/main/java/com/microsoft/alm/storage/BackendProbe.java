@@ -0,0 +1,169 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.IOHelper;
+import com.microsoft.alm.helpers.MetricsHelper;
+import com.microsoft.alm.helpers.SettingsHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+/**
+ * Checks, once, whether a secret store backend is usable on this machine.
+ *
+ * Probing can be expensive (loading a native library, talking to a daemon), so the answer is kept for the life of
+ * the process and, if {@link #PROBE_CACHE_SECONDS_PROPERTY_NAME} is set, in a file shared by later processes.
+ */
+abstract class BackendProbe {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackendProbe.class);
+
+    /**
+     * For how many seconds a probe result saved on disk can be trusted; {@code 0}, the default, disables the file.
+     */
+    static final String PROBE_CACHE_SECONDS_PROPERTY_NAME = "storageProbeCacheSeconds";
+
+    private static final String CACHE_FILE_NAME = "storageProbe.properties";
+    private static final String AVAILABLE_SUFFIX = ".available";
+    private static final String PROBED_ON_SUFFIX = ".probedOn";
+
+    private final String name;
+    private final File cacheFile;
+    private final long cacheMillis;
+
+    private Boolean available;
+
+    BackendProbe(final String name) {
+        this(name, null, -1);
+    }
+
+    /**
+     * @param name        identifies the backend, in the cache file and in metrics
+     * @param cacheFile   where to share the result with other processes, or {@code null} to use the default
+     *                    file when {@link #PROBE_CACHE_SECONDS_PROPERTY_NAME} is set
+     * @param cacheMillis for how long the file can be trusted, or {@code -1} to read the setting
+     */
+    BackendProbe(final String name, final File cacheFile, final long cacheMillis) {
+        Debug.Assert(name != null, "name cannot be null");
+
+        this.name = name;
+        this.cacheFile = cacheFile;
+        this.cacheMillis = cacheMillis;
+    }
+
+    /**
+     * Does the actual check.
+     *
+     * @return {@code true} if the backend can be used
+     */
+    protected abstract boolean probe();
+
+    /**
+     * @return {@code true} if the backend can be used; only the first call of the process may probe
+     */
+    synchronized boolean isAvailable() {
+        if (available == null) {
+            final long cacheMillis = getCacheMillis();
+            final File file = cacheMillis > 0 ? getCacheFile() : null;
+            Boolean result = file == null ? null : readCache(file, cacheMillis);
+            if (result == null) {
+                final long start = MetricsHelper.start();
+                final long probeStart = System.nanoTime();
+                try {
+                    result = probe();
+                } finally {
+                    MetricsHelper.stop(MetricsHelper.STORE_PROBE, name, start);
+                }
+                logger.debug("Probed {} in {} ms: {}", name, (System.nanoTime() - probeStart) / 1000000,
+                        result ? "available" : "not available");
+                if (file != null) {
+                    writeCache(file, result);
+                }
+            }
+            available = result;
+        }
+        return available;
+    }
+
+    private long getCacheMillis() {
+        if (cacheMillis != -1) {
+            return cacheMillis;
+        }
+        final String value = SettingsHelper.getInstance().getProperty(PROBE_CACHE_SECONDS_PROPERTY_NAME, "0");
+        try {
+            return Long.parseLong(value.trim()) * 1000;
+        } catch (final NumberFormatException e) {
+            logger.warn("Ignoring {}: '{}' is not a number of seconds.", PROBE_CACHE_SECONDS_PROPERTY_NAME, value);
+            return 0;
+        }
+    }
+
+    private File getCacheFile() {
+        if (cacheFile != null) {
+            return cacheFile;
+        }
+        return new File(InsecureFileBackend.getProgramFolder(), CACHE_FILE_NAME);
+    }
+
+    private Boolean readCache(final File file, final long cacheMillis) {
+        if (!file.isFile()) {
+            return null;
+        }
+        final Properties properties = load(file);
+        final String availableValue = properties.getProperty(name + AVAILABLE_SUFFIX);
+        final String probedOnValue = properties.getProperty(name + PROBED_ON_SUFFIX);
+        if (availableValue == null || probedOnValue == null) {
+            return null;
+        }
+        final long probedOn;
+        try {
+            probedOn = Long.parseLong(probedOnValue);
+        } catch (final NumberFormatException ignored) {
+            return null;
+        }
+        final long age = System.currentTimeMillis() - probedOn;
+        if (age < 0 || age >= cacheMillis) {
+            return null;
+        }
+        logger.debug("Using the result of probing {} {} s ago.", name, age / 1000);
+        return Boolean.valueOf(availableValue);
+    }
+
+    private void writeCache(final File file, final boolean result) {
+        // other backends may share the file
+        final Properties properties = file.isFile() ? load(file) : new Properties();
+        properties.setProperty(name + AVAILABLE_SUFFIX, Boolean.toString(result));
+        properties.setProperty(name + PROBED_ON_SUFFIX, Long.toString(System.currentTimeMillis()));
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(file);
+            properties.store(fos, null);
+        } catch (final IOException e) {
+            logger.debug("Could not save the result of probing {} to {}.", name, file, e);
+        } finally {
+            IOHelper.closeQuietly(fos);
+        }
+    }
+
+    private Properties load(final File file) {
+        final Properties result = new Properties();
+        FileInputStream fis = null;
+        try {
+            fis = new FileInputStream(file);
+            result.load(fis);
+        } catch (final IOException e) {
+            logger.debug("Could not read the result of probing {} from {}.", name, file, e);
+        } finally {
+            IOHelper.closeQuietly(fis);
+        }
+        return result;
+    }
+}
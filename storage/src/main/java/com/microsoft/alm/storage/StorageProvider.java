@@ -4,6 +4,7 @@
 package com.microsoft.alm.storage;
 
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.MetricsHelper;
 import com.microsoft.alm.helpers.SystemHelper;
 import com.microsoft.alm.secret.Credential;
 import com.microsoft.alm.secret.Secret;
@@ -23,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class StorageProvider {
@@ -45,41 +47,91 @@ public class StorageProvider {
         PREFER
     }
 
-    private static final List<SecretStore<Token>> PERSISTED_TOKEN_STORE_CANDIDATES;
+    // Nothing is probed or instantiated until a persistent store of that type is first asked for: each holder
+    // class is only initialized by its first use.  On Linux, that's when libgnome-keyring gets loaded and checked.
+    // Each persisted store is created once, so that every authenticator synchronizes on the same instance.
 
-    private static final List<SecretStore<TokenPair>> PERSISTED_TOKENPAIR_STORE_CANDIDATES;
+    private static final BackendProbe GNOME_KEYRING = new BackendProbe("GnomeKeyring") {
+        @Override
+        protected boolean probe() {
+            return SystemHelper.isLinux() && GnomeKeyringBackedSecureStore.isGnomeKeyringSupported();
+        }
+    };
 
-    private static final List<SecretStore<Credential>> PERSISTED_CREDENTIAL_STORE_CANDIDATES;
+    private static final class PersistedTokenStoreCandidates {
+        static final List<SecretStore<Token>> LIST;
 
-    static {
-        List<SecretStore<Token>> tokenStoreCandidates = new ArrayList<SecretStore<Token>>();
-        List<SecretStore<TokenPair>> tokenPairStoreCandidates = new ArrayList<SecretStore<TokenPair>>();
-        List<SecretStore<Credential>> credentialStoreCandidates = new ArrayList<SecretStore<Credential>>();
+        static {
+            final long start = MetricsHelper.start();
+            final List<SecretStore<Token>> candidates = new ArrayList<SecretStore<Token>>();
 
-        if (SystemHelper.isWindows()) {
-            tokenStoreCandidates.add(new CredManagerBackedTokenStore());
-            credentialStoreCandidates.add(new CredManagerBackedCredentialStore());
-            tokenPairStoreCandidates.add(new CredManagerBackedTokenPairStore());
-        }
+            if (SystemHelper.isWindows()) {
+                candidates.add(metered(new CredManagerBackedTokenStore()));
+            }
+
+            if (SystemHelper.isMac()) {
+                candidates.add(metered(new KeychainSecurityBackedTokenStore()));
+            }
+
+            if (SystemHelper.isLinux() && GNOME_KEYRING.isAvailable()) {
+                candidates.add(metered(new GnomeKeyringBackedTokenStore()));
+            }
+
+            candidates.add(metered(new InsecureFileBackedTokenStore()));
 
-        if (SystemHelper.isMac()) {
-            tokenStoreCandidates.add(new KeychainSecurityBackedTokenStore());
-            credentialStoreCandidates.add(new KeychainSecurityBackedCredentialStore());
-            tokenPairStoreCandidates.add(new KeychainSecurityBackedTokenPairStore());
+            LIST = candidates;
+            MetricsHelper.stop(MetricsHelper.STORE_CANDIDATES, Token.class.getSimpleName(), start);
         }
+    }
+
+    private static final class PersistedTokenPairStoreCandidates {
+        static final List<SecretStore<TokenPair>> LIST;
+
+        static {
+            final long start = MetricsHelper.start();
+            final List<SecretStore<TokenPair>> candidates = new ArrayList<SecretStore<TokenPair>>();
+
+            if (SystemHelper.isWindows()) {
+                candidates.add(metered(new CredManagerBackedTokenPairStore()));
+            }
+
+            if (SystemHelper.isMac()) {
+                candidates.add(metered(new KeychainSecurityBackedTokenPairStore()));
+            }
 
-        if (SystemHelper.isLinux() && GnomeKeyringBackedSecureStore.isGnomeKeyringSupported()) {
-            tokenStoreCandidates.add(new GnomeKeyringBackedTokenStore());
-            credentialStoreCandidates.add(new GnomeKeyringBackedCredentialStore());
-            tokenPairStoreCandidates.add(new GnomeKeyringBackedTokenPairStore());
+            if (SystemHelper.isLinux() && GNOME_KEYRING.isAvailable()) {
+                candidates.add(metered(new GnomeKeyringBackedTokenPairStore()));
+            }
+
+            LIST = candidates;
+            MetricsHelper.stop(MetricsHelper.STORE_CANDIDATES, TokenPair.class.getSimpleName(), start);
         }
+    }
+
+    private static final class PersistedCredentialStoreCandidates {
+        static final List<SecretStore<Credential>> LIST;
+
+        static {
+            final long start = MetricsHelper.start();
+            final List<SecretStore<Credential>> candidates = new ArrayList<SecretStore<Credential>>();
+
+            if (SystemHelper.isWindows()) {
+                candidates.add(metered(new CredManagerBackedCredentialStore()));
+            }
 
-        tokenStoreCandidates.add(new InsecureFileBackedTokenStore());
-        credentialStoreCandidates.add(new InsecureFileBackedCredentialStore());
+            if (SystemHelper.isMac()) {
+                candidates.add(metered(new KeychainSecurityBackedCredentialStore()));
+            }
+
+            if (SystemHelper.isLinux() && GNOME_KEYRING.isAvailable()) {
+                candidates.add(metered(new GnomeKeyringBackedCredentialStore()));
+            }
+
+            candidates.add(metered(new InsecureFileBackedCredentialStore()));
 
-        PERSISTED_TOKEN_STORE_CANDIDATES = tokenStoreCandidates;
-        PERSISTED_TOKENPAIR_STORE_CANDIDATES = tokenPairStoreCandidates;
-        PERSISTED_CREDENTIAL_STORE_CANDIDATES = credentialStoreCandidates;
+            LIST = candidates;
+            MetricsHelper.stop(MetricsHelper.STORE_CANDIDATES, Credential.class.getSimpleName(), start);
+        }
     }
 
     public static SecretStore<Token> getTokenStorage(final boolean persist, final SecureOption secureOption) {
@@ -91,17 +143,19 @@ public class StorageProvider {
         final NonPersistentStoreGenerator<Token> inMemoryStoreGenerator = new NonPersistentStoreGenerator<Token>() {
             @Override
             public SecretStore<Token> getInsecureNonPersistentStore() {
-                return new InsecureInMemoryStore<Token>();
+                return metered(new InsecureInMemoryStore<Token>());
             }
 
             @Override
             public SecretStore<Token> getSecureNonPersistentStore() {
-                logger.warn("Do not have any secure non-persistent stores available.");
-                return null;
+                return metered(new SecureInMemoryTokenStore());
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_TOKEN_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<Token>> candidates = persist
+                ? PersistedTokenStoreCandidates.LIST
+                : Collections.<SecretStore<Token>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     public static SecretStore<TokenPair> getTokenPairStorage(final boolean persist, final SecureOption secureOption) {
@@ -113,17 +167,19 @@ public class StorageProvider {
         final NonPersistentStoreGenerator<TokenPair> inMemoryStoreGenerator = new NonPersistentStoreGenerator<TokenPair>() {
             @Override
             public SecretStore<TokenPair> getInsecureNonPersistentStore() {
-                return new InsecureInMemoryStore<TokenPair>();
+                return metered(new InsecureInMemoryStore<TokenPair>());
             }
 
             @Override
             public SecretStore<TokenPair> getSecureNonPersistentStore() {
-                logger.warn("Do not have any secure non-persistent stores available.");
-                return null;
+                return metered(new SecureInMemoryTokenPairStore());
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_TOKENPAIR_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<TokenPair>> candidates = persist
+                ? PersistedTokenPairStoreCandidates.LIST
+                : Collections.<SecretStore<TokenPair>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     public static SecretStore<Credential> getCredentialStorage(final boolean persist, final SecureOption secureOption) {
@@ -135,17 +191,19 @@ public class StorageProvider {
         final NonPersistentStoreGenerator<Credential> inMemoryStoreGenerator = new NonPersistentStoreGenerator<Credential>() {
             @Override
             public SecretStore<Credential> getInsecureNonPersistentStore() {
-                return new InsecureInMemoryStore<Credential>();
+                return metered(new InsecureInMemoryStore<Credential>());
             }
 
             @Override
             public SecretStore<Credential> getSecureNonPersistentStore() {
-                logger.warn("Do not have any secure non-persistent stores available.");
-                return null;
+                return metered(new SecureInMemoryCredentialStore());
             }
         };
 
-        return getStore(persist, secureOption, PERSISTED_CREDENTIAL_STORE_CANDIDATES, inMemoryStoreGenerator);
+        final List<SecretStore<Credential>> candidates = persist
+                ? PersistedCredentialStoreCandidates.LIST
+                : Collections.<SecretStore<Credential>>emptyList();
+        return getStore(persist, secureOption, candidates, inMemoryStoreGenerator);
     }
 
     private static <E extends Secret> SecretStore<E> findSecureStore(final List<SecretStore<E>> stores) {
@@ -173,6 +231,14 @@ public class StorageProvider {
         return candidate;
     }
 
+    /**
+     * Wraps a store in a {@link MeteredSecretStore} if metrics are installed, so that stores only change type when
+     * they are measured; stores created before {@link MetricsHelper#setMetrics} was called aren't measured.
+     */
+    private static <E extends Secret> SecretStore<E> metered(final SecretStore<E> store) {
+        return MetricsHelper.isEnabled() ? new MeteredSecretStore<E>(store) : store;
+    }
+
     static <E extends Secret> SecretStore<E> getStore(final boolean persist,
                                                       final SecureOption secureOption,
                                                       final List<SecretStore<E>> stores,
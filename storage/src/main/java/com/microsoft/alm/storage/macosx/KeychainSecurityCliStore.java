@@ -7,6 +7,7 @@ package com.microsoft.alm.storage.macosx;
 import com.microsoft.alm.helpers.Func;
 import com.microsoft.alm.helpers.IOHelper;
 import com.microsoft.alm.helpers.StringHelper;
+import com.microsoft.alm.helpers.UriHelper;
 import com.microsoft.alm.oauth2.useragent.subprocess.DefaultProcessFactory;
 import com.microsoft.alm.oauth2.useragent.subprocess.ProcessCoordinator;
 import com.microsoft.alm.oauth2.useragent.subprocess.TestableProcess;
@@ -34,9 +35,11 @@ class KeychainSecurityCliStore {
     static final String ACCOUNT_PARAMETER = "-a";
     static final String ACCOUNT_METADATA = "acct";
     static final String PASSWORD = "password";
+    static final String COMMENT_METADATA = "icmt";
     private static final String SERVICE_PARAMETER = "-s";
     private static final String KIND_PARAMETER = "-D";
     private static final String PASSWORD_PARAMETER = "-w";
+    private static final String COMMENT_PARAMETER = "-j";
     private static final String UPDATE_IF_ALREADY_EXISTS = "-U";
     private static final int ITEM_NOT_FOUND_EXIT_CODE = 44;
     private static final int USER_INTERACTION_NOT_ALLOWED_EXIT_CODE = 36;
@@ -385,6 +388,7 @@ class KeychainSecurityCliStore {
             final String password = (String) metaData.get(PASSWORD);
 
             result = new Token(password, typeName);
+            Token.setMetadata(result, UriHelper.deserializeParameters((String) metaData.get(COMMENT_METADATA)));
         } else {
             result = null;
         }
@@ -394,12 +398,15 @@ class KeychainSecurityCliStore {
 
     public TokenPair readTokenPair(final String targetName) {
         String accessToken, refreshToken;
+        String comment = null;
 
         final Map<String, Object> accessTokenMetaData = read(SecretKind.TokenPair_Access_Token, processFactory, targetName);
 
         if (accessTokenMetaData.size() > 0) {
             final String password = (String) accessTokenMetaData.get(PASSWORD);
             accessToken = password;
+            // the expiry, issue time, resource and tenant, if they were known when the tokens were stored
+            comment = (String) accessTokenMetaData.get(COMMENT_METADATA);
         } else {
             accessToken = null;
         }
@@ -414,27 +421,48 @@ class KeychainSecurityCliStore {
         }
 
         if (accessToken != null && refreshToken != null) {
-            return new TokenPair(accessToken, refreshToken);
+            return new TokenPair.TokenPairBuilder()
+                    .withAccessToken(accessToken)
+                    .withRefreshToken(refreshToken)
+                    .withParameters(UriHelper.deserializeParameters(comment))
+                    .build();
         }
 
         return null;
     }
 
     static void write(final SecretKind secretKind, final TestableProcessFactory processFactory, final String serviceName, final String accountName, final String password) {
+        write(secretKind, processFactory, serviceName, accountName, password, null);
+    }
+
+    static void write(final SecretKind secretKind, final TestableProcessFactory processFactory, final String serviceName, final String accountName, final String password, final String comment) {
         final String stdOut, stdErr;
         try {
             final TestableProcess addProcess = processFactory.create(
                 SECURITY,
                 INTERACTIVE_MODE
             );
-            final String[] commandParts = {
-                ADD_GENERIC_PASSWORD,
-                UPDATE_IF_ALREADY_EXISTS,
-                ACCOUNT_PARAMETER, accountName,
-                SERVICE_PARAMETER, serviceName,
-                PASSWORD_PARAMETER, password,
-                KIND_PARAMETER, secretKind.name()
-            };
+            final String[] commandParts;
+            if (comment == null) {
+                commandParts = new String[]{
+                    ADD_GENERIC_PASSWORD,
+                    UPDATE_IF_ALREADY_EXISTS,
+                    ACCOUNT_PARAMETER, accountName,
+                    SERVICE_PARAMETER, serviceName,
+                    PASSWORD_PARAMETER, password,
+                    KIND_PARAMETER, secretKind.name()
+                };
+            } else {
+                commandParts = new String[]{
+                    ADD_GENERIC_PASSWORD,
+                    UPDATE_IF_ALREADY_EXISTS,
+                    ACCOUNT_PARAMETER, accountName,
+                    SERVICE_PARAMETER, serviceName,
+                    PASSWORD_PARAMETER, password,
+                    KIND_PARAMETER, secretKind.name(),
+                    COMMENT_PARAMETER, comment
+                };
+            }
             final ProcessCoordinator coordinator = new ProcessCoordinator(addProcess);
             final String command = StringHelper.join(" ", commandParts, 0, commandParts.length, QUOTING_PROCESSOR);
             coordinator.println(command);
@@ -454,19 +482,29 @@ class KeychainSecurityCliStore {
     }
 
     public void writeToken(final String targetName, final Token token) {
-        writeTokenKind(targetName, SecretKind.Token, token);
+        // the scope goes in the comment, so lookups can tell whether the token will do without a request
+        final Map<String, String> metadata = Token.getMetadata(token);
+        final String comment = metadata.isEmpty() ? null : UriHelper.serializeParameters(metadata);
+        writeTokenKind(targetName, SecretKind.Token, token, comment);
     }
 
     private void writeTokenKind(final String targetName, final SecretKind secretKind, final Token token) {
+        writeTokenKind(targetName, secretKind, token, null);
+    }
+
+    private void writeTokenKind(final String targetName, final SecretKind secretKind, final Token token, final String comment) {
         final AtomicReference<String> accountNameReference = new AtomicReference<String>();
         Token.getFriendlyNameFromType(token.Type, accountNameReference);
         final String accountName = accountNameReference.get();
-        write(secretKind, processFactory, targetName, accountName, token.Value);
+        write(secretKind, processFactory, targetName, accountName, token.Value, comment);
     }
 
     public void writeTokenPair(final String targetName, final TokenPair tokenPair) {
         if (tokenPair.AccessToken.Value != null) {
-            writeTokenKind(targetName, SecretKind.TokenPair_Access_Token, tokenPair.AccessToken);
+            // the metadata goes in the access token's comment, so lookups can check its expiry without a request
+            final Map<String, String> metadata = TokenPair.getMetadata(tokenPair);
+            final String comment = metadata.isEmpty() ? null : UriHelper.serializeParameters(metadata);
+            writeTokenKind(targetName, SecretKind.TokenPair_Access_Token, tokenPair.AccessToken, comment);
         }
 
         if (tokenPair.RefreshToken.Value != null) {
@@ -7,6 +7,7 @@ import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.XmlHelper;
 import com.microsoft.alm.secret.Credential;
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,7 +30,10 @@ public class GnomeKeyringBackedCredentialStore extends GnomeKeyringBackedSecureS
         Debug.Assert(secret != null, "secret cannot be null");
 
         try {
-            return fromXmlString(secret);
+            // entries written before the codec are XML
+            return SecretCodec.isEncoded(secret)
+                    ? SecretCodec.decodeCredential(secret)
+                    : fromXmlString(secret);
         } catch (final Exception e) {
             logError(logger, "Failed to deserialize credential.", e);
             return null;
@@ -62,7 +66,7 @@ public class GnomeKeyringBackedCredentialStore extends GnomeKeyringBackedSecureS
     protected String serialize(final Credential credential) {
         Debug.Assert(credential != null, "Credential cannot be null");
 
-        return toXmlString(credential);
+        return SecretCodec.encode(credential);
     }
 
     static String toXmlString(final Credential credential) {
@@ -6,6 +6,7 @@ package com.microsoft.alm.storage.posix;
 import com.microsoft.alm.helpers.Debug;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.XmlHelper;
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 import org.slf4j.Logger;
@@ -28,7 +29,7 @@ public class GnomeKeyringBackedTokenPairStore extends GnomeKeyringBackedSecureSt
     protected String serialize(final TokenPair tokenPair) {
         Debug.Assert(tokenPair != null, "TokenPair cannot be null");
 
-        return TokenPair.toXmlString(tokenPair);
+        return SecretCodec.encode(tokenPair);
     }
 
     @Override
@@ -36,7 +37,10 @@ public class GnomeKeyringBackedTokenPairStore extends GnomeKeyringBackedSecureSt
         Debug.Assert(secret != null, "secret cannot be null");
 
         try {
-            return TokenPair.fromXmlString(secret);
+            // entries written before the codec are XML
+            return SecretCodec.isEncoded(secret)
+                    ? SecretCodec.decodeTokenPair(secret)
+                    : TokenPair.fromXmlString(secret);
         } catch (final Exception e) {
             logError(logger, "Failed to deserialize the stored secret. Return null.", e);
             return null;
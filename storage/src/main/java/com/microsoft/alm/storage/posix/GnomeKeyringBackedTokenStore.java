@@ -3,15 +3,61 @@
 
 package com.microsoft.alm.storage.posix;
 
+import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.UriHelper;
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenType;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 
+import java.util.Map;
+
+/**
+ * Stores the value of a token as its password, so older versions and other tools read it as is.  What the token
+ * carries besides its value, such as its scope, is kept in a companion entry under the same key, with the type
+ * {@link #METADATA_TYPE}.
+ */
 public class GnomeKeyringBackedTokenStore extends GnomeKeyringBackedSecureStore<Token> {
 
+    static final String METADATA_TYPE = "PersonalAccessTokenMetadata";
+
+    @Override
+    public Token get(final String key) {
+        final Token result = super.get(key);
+        // tokens written as a SecretCodec by an earlier version carry their scope already
+        if (result != null && Token.getMetadata(result).isEmpty()) {
+            readMetadata(result, findPassword(METADATA_TYPE, key));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        final boolean result = super.delete(key);
+        deletePassword(METADATA_TYPE, key);
+        return result;
+    }
+
+    @Override
+    public boolean add(final String key, final Token secret) {
+        if (!super.add(key, secret)) {
+            return false;
+        }
+
+        final String metadata = writeMetadata(secret);
+        if (metadata == null) {
+            // don't let the scope of the token this one replaced stick to it
+            deletePassword(METADATA_TYPE, key);
+            return true;
+        }
+        return storePassword(METADATA_TYPE, key, metadata);
+    }
+
     @Override
     protected Token deserialize(final String secret) {
-        return new Token(secret, TokenType.Personal);
+        return SecretCodec.isEncoded(secret)
+                ? SecretCodec.decodeToken(secret)
+                : new Token(secret, TokenType.Personal);
     }
 
     @Override
@@ -23,4 +69,23 @@ public class GnomeKeyringBackedTokenStore extends GnomeKeyringBackedSecureStore<
     protected String getType() {
         return "PersonalAccessToken";
     }
+
+    /**
+     * @return the password of the companion entry of {@code token}, {@code null} if it doesn't need one
+     */
+    static String writeMetadata(final Token token) {
+        Debug.Assert(token != null, "token cannot be null");
+
+        final Map<String, String> metadata = Token.getMetadata(token);
+        return metadata.isEmpty() ? null : UriHelper.serializeParameters(metadata);
+    }
+
+    /**
+     * Restores what {@link #writeMetadata(Token)} returned, if the token has a companion entry.
+     */
+    static void readMetadata(final Token token, final String metadata) {
+        if (metadata != null) {
+            Token.setMetadata(token, UriHelper.deserializeParameters(metadata));
+        }
+    }
 }
@@ -4,6 +4,7 @@
 package com.microsoft.alm.storage.posix.internal;
 
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.LoggingHelper;
 import com.microsoft.alm.helpers.SettingsHelper;
 import com.microsoft.alm.helpers.SystemHelper;
 import com.microsoft.alm.secret.Secret;
@@ -53,18 +54,51 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
     public E get(final String key) {
         Debug.Assert(key != null, "key cannot be null");
 
-        logger.info("Getting {} for {}", getType(), key);
+        LoggingHelper.lookupInfo(logger, "Getting {} for {}", getType(), key);
 
+        final String secret = findPassword(getType(), key);
+
+        return secret != null ? deserialize(secret) : null;
+    }
+
+    @Override
+    public boolean delete(final String key) {
+        Debug.Assert(key != null, "key cannot be null");
+        logger.info("Deleting {} for {}", getType(), key);
+
+        return deletePassword(getType(), key);
+    }
+
+    @Override
+    public boolean add(final String key, E secret) {
+        Debug.Assert(key != null, "key cannot be null");
+        Debug.Assert(secret != null, "Secret cannot be null");
+
+        logger.info("Adding a {} for {}", getType(), key);
+
+        return storePassword(getType(), key, serialize(secret));
+    }
+
+    /**
+     * Read the password stored with the specified attributes
+     *
+     * @param type the value of the "Type" attribute
+     * @param key  the value of the "Key" attribute
+     * @return the password, or {@code null} if there is none or it could not be read
+     */
+    protected static String findPassword(final String type, final String key) {
         GnomeKeyringLibrary.PointerToPointer pPassword = new GnomeKeyringLibrary.PointerToPointer();
         String secret = null;
         try {
             final int result = INSTANCE.gnome_keyring_find_password_sync(
                         SCHEMA,
                         pPassword,
-                        "Type", getType(),
+                        "Type", type,
                         "Key", key,
                         null);
-            if (checkResult(result, "Could not retrieve secret from storage.")) {
+            if (result == GnomeKeyringLibrary.GNOME_KEYRING_RESULT_NO_MATCH) {
+                logger.debug("No {} found for {}", type, key);
+            } else if (checkResult(result, "Could not retrieve secret from storage.")) {
                 secret = pPassword.pointer.getString(0);
             }
         } finally {
@@ -73,37 +107,46 @@ public abstract class GnomeKeyringBackedSecureStore<E extends Secret> implements
             }
         }
 
-        return secret != null ? deserialize(secret) : null;
+        return secret;
     }
 
-    @Override
-    public boolean delete(final String key) {
-        Debug.Assert(key != null, "key cannot be null");
-        logger.info("Deleting {} for {}", getType(), key);
-
+    /**
+     * Delete the password stored with the specified attributes
+     *
+     * @param type the value of the "Type" attribute
+     * @param key  the value of the "Key" attribute
+     * @return {@code true} if it was deleted; {@code false} otherwise
+     */
+    protected static boolean deletePassword(final String type, final String key) {
         final int result = INSTANCE.gnome_keyring_delete_password_sync(
                 SCHEMA,
-                "Type", getType(),
+                "Type", type,
                 "Key", key,
                 null);
+        if (result == GnomeKeyringLibrary.GNOME_KEYRING_RESULT_NO_MATCH) {
+            logger.debug("No {} to delete for {}", type, key);
+            return false;
+        }
 
         return checkResult(result, "Could not delete secret from storage");
     }
 
-    @Override
-    public boolean add(final String key, E secret) {
-        Debug.Assert(key != null, "key cannot be null");
-        Debug.Assert(secret != null, "Secret cannot be null");
-
-        logger.info("Adding a {} for {}", getType(), key);
-
+    /**
+     * Store a password with the specified attributes, replacing the one stored with them before
+     *
+     * @param type     the value of the "Type" attribute
+     * @param key      the value of the "Key" attribute, also used as the display name
+     * @param password the password
+     * @return {@code true} if it was stored; {@code false} otherwise
+     */
+    protected static boolean storePassword(final String type, final String key, final String password) {
         final int result = INSTANCE.gnome_keyring_store_password_sync(
                 SCHEMA,
                 GnomeKeyringLibrary.GNOME_KEYRING_DEFAULT, // save to disk
                 key, //display name
-                serialize(secret),
+                password,
                 //attributes list
-                "Type", getType(),
+                "Type", type,
                 "Key", key,
                 null
         );
@@ -3,20 +3,41 @@
 
 package com.microsoft.alm.storage.windows;
 
+import com.microsoft.alm.helpers.UriHelper;
 import com.microsoft.alm.secret.TokenPair;
 import com.microsoft.alm.storage.windows.internal.CredManagerBackedSecureStore;
 
+import java.util.Map;
+
 public class CredManagerBackedTokenPairStore extends CredManagerBackedSecureStore<TokenPair> {
 
     public static final String TOKEN_PAIR_USERNAME = "Azure Active Directory Access and Refresh Token";
+
+    // separates TOKEN_PAIR_USERNAME from the metadata of the token pair, encoded as a query string
+    private static final char METADATA_SEPARATOR = '?';
+
     @Override
     protected TokenPair create(final String username, final String secret) {
-        return new TokenPair("", secret);
+        final TokenPair.TokenPairBuilder builder = new TokenPair.TokenPairBuilder()
+                .withAccessToken("")
+                .withRefreshToken(secret);
+        // entries written by older versions only have TOKEN_PAIR_USERNAME
+        final int separatorIndex = username == null ? -1 : username.indexOf(METADATA_SEPARATOR);
+        if (separatorIndex != -1) {
+            builder.withParameters(UriHelper.deserializeParameters(username.substring(separatorIndex + 1)));
+        }
+        return builder.build();
     }
 
     @Override
     protected String getUsername(final TokenPair tokenPair) {
-        return TOKEN_PAIR_USERNAME;
+        // The blob only has room for the refresh token, so the expiry, issue time, resource and tenant
+        // go in the username, well under its 513 character limit
+        final Map<String, String> metadata = TokenPair.getMetadata(tokenPair);
+        if (metadata.isEmpty()) {
+            return TOKEN_PAIR_USERNAME;
+        }
+        return TOKEN_PAIR_USERNAME + METADATA_SEPARATOR + UriHelper.serializeParameters(metadata);
     }
 
     @Override
@@ -3,22 +3,39 @@
 
 package com.microsoft.alm.storage.windows;
 
+import com.microsoft.alm.helpers.UriHelper;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenType;
 import com.microsoft.alm.storage.windows.internal.CredManagerBackedSecureStore;
 
+import java.util.Map;
+
 public class CredManagerBackedTokenStore extends CredManagerBackedSecureStore<Token> {
 
     public static final String TOKEN_USERNAME = "PersonalAccessToken";
 
+    // separates TOKEN_USERNAME from the metadata of the token, encoded as a query string
+    private static final char METADATA_SEPARATOR = '?';
+
     @Override
     protected Token create(final String username, final String secret) {
-        return new Token(secret, TokenType.Personal);
+        final Token result = new Token(secret, TokenType.Personal);
+        // entries written by older versions only have TOKEN_USERNAME
+        final int separatorIndex = username == null ? -1 : username.indexOf(METADATA_SEPARATOR);
+        if (separatorIndex != -1) {
+            Token.setMetadata(result, UriHelper.deserializeParameters(username.substring(separatorIndex + 1)));
+        }
+        return result;
     }
 
     @Override
     protected String getUsername(final Token token) {
-        return TOKEN_USERNAME;
+        // the blob is the token itself, so its scope goes in the username
+        final Map<String, String> metadata = Token.getMetadata(token);
+        if (metadata.isEmpty()) {
+            return TOKEN_USERNAME;
+        }
+        return TOKEN_USERNAME + METADATA_SEPARATOR + UriHelper.serializeParameters(metadata);
     }
 
     @Override
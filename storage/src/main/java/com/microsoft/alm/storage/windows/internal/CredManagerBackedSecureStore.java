@@ -4,6 +4,7 @@
 package com.microsoft.alm.storage.windows.internal;
 
 import com.microsoft.alm.helpers.Debug;
+import com.microsoft.alm.helpers.LoggingHelper;
 import com.microsoft.alm.helpers.StringHelper;
 import com.microsoft.alm.helpers.SystemHelper;
 import com.microsoft.alm.secret.Secret;
@@ -71,7 +72,7 @@ public abstract class CredManagerBackedSecureStore<E extends Secret> implements
     public E get(String key) {
         Debug.Assert(key != null, "key cannot be null");
 
-        logger.info("Getting secret for {}", key);
+        LoggingHelper.lookupInfo(logger, "Getting secret for {}", key);
 
         final CredAdvapi32.PCREDENTIAL pcredential = new CredAdvapi32.PCREDENTIAL();
         boolean read = false;
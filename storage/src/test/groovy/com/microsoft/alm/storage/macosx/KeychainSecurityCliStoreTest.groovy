@@ -9,6 +9,7 @@ import com.microsoft.alm.oauth2.useragent.subprocess.DefaultProcessFactory
 import com.microsoft.alm.oauth2.useragent.subprocess.TestableProcessFactory
 import com.microsoft.alm.secret.Credential
 import com.microsoft.alm.secret.Token
+import com.microsoft.alm.secret.TokenPair
 import com.microsoft.alm.secret.TokenType
 import groovy.transform.CompileStatic
 import org.junit.Ignore
@@ -314,6 +315,72 @@ attributes:
         endToEndTest(processFactory)
     }
 
+    @Test public void simulatedTokenPairWithMetadata() {
+        def tokenPairMetadata = { String kind, String account, String comment -> """\
+keychain: "/Users/${USER_NAME}/Library/Keychains/login.keychain"
+class: "genp"
+attributes:
+    0x00000007 <blob>="${TARGET_NAME}"
+    "acct"<blob>="${account}"
+    "desc"<blob>="${kind}"
+    "icmt"<blob>=${comment == null ? "<NULL>" : '"' + comment + '"'}
+    "svce"<blob>="${TARGET_NAME}"
+""" }
+        def comment = "expires_on=1476287437&resource=499b84ac-1321-427f-aa17-267ca6975798&tenant_id=contoso.com"
+
+        def addAccessToken = new FifoProcess(StringHelper.Empty)
+        addAccessToken.with {
+            expectedCommand = ["/usr/bin/security", "-i"]
+            expectedStandardInput = """add-generic-password -U -a "Azure Directory Access Token" -s ${TARGET_NAME} -w access -D TokenPair_Access_Token -j ${comment}""" + Environment.NewLine
+            expectedExitCode = 0
+        }
+
+        def addRefreshToken = new FifoProcess(StringHelper.Empty)
+        addRefreshToken.with {
+            expectedCommand = ["/usr/bin/security", "-i"]
+            expectedStandardInput = """add-generic-password -U -a "Azure Directory Refresh Token" -s ${TARGET_NAME} -w refresh -D TokenPair_Refresh_Token""" + Environment.NewLine
+            expectedExitCode = 0
+        }
+
+        def findAccessToken = new FifoProcess(tokenPairMetadata("TokenPair_Access_Token", "Azure Directory Access Token", comment), """password: "access"
+""")
+        findAccessToken.with {
+            expectedCommand = ["/usr/bin/security", "find-generic-password", "-s", TARGET_NAME, "-D", "TokenPair_Access_Token", "-g"]
+            expectedExitCode = 0
+        }
+
+        def findRefreshToken = new FifoProcess(tokenPairMetadata("TokenPair_Refresh_Token", "Azure Directory Refresh Token", null), """password: "refresh"
+""")
+        findRefreshToken.with {
+            expectedCommand = ["/usr/bin/security", "find-generic-password", "-s", TARGET_NAME, "-D", "TokenPair_Refresh_Token", "-g"]
+            expectedExitCode = 0
+        }
+
+        def store = new KeychainSecurityCliStore(new FifoProcessFactory(
+            addAccessToken,
+            addRefreshToken,
+            findAccessToken,
+            findRefreshToken,
+        ))
+        def tokenPair = new TokenPair.TokenPairBuilder()
+            .withAccessToken("access")
+            .withRefreshToken("refresh")
+            .withParameter("token_type", "Bearer")
+            .withParameter(TokenPair.EXPIRES_ON, "1476287437")
+            .withParameter(TokenPair.RESOURCE, "499b84ac-1321-427f-aa17-267ca6975798")
+            .withParameter(TokenPair.TENANT_ID, "contoso.com")
+            .build()
+
+        store.writeTokenPair(TARGET_NAME, tokenPair)
+        def actual = store.readTokenPair(TARGET_NAME)
+
+        assert tokenPair == actual
+        assert 1476287437000L == actual.getExpiresOn()
+        assert "499b84ac-1321-427f-aa17-267ca6975798" == actual.getResource()
+        assert "contoso.com" == actual.getTenantId()
+        assert null == actual.Parameters.get("token_type")
+    }
+
     @Ignore("Needs to be run manually, in interactive mode, because the Keychain needs a desktop")
     @Test public void interactiveInteraction() {
         def processFactory = new DefaultProcessFactory()
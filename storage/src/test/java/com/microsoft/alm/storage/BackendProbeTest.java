@@ -0,0 +1,82 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BackendProbeTest {
+
+    private static final long ONE_HOUR = 3600 * 1000;
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheFile = File.createTempFile(getClass().getSimpleName(), null);
+        cacheFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        cacheFile.delete();
+    }
+
+    private static BackendProbe createProbe(final String name, final File cacheFile, final long cacheMillis,
+                                            final boolean result, final AtomicInteger probeCount) {
+        return new BackendProbe(name, cacheFile, cacheMillis) {
+            @Override
+            protected boolean probe() {
+                probeCount.incrementAndGet();
+                return result;
+            }
+        };
+    }
+
+    @Test
+    public void isAvailable_probesOnce() {
+        final AtomicInteger probeCount = new AtomicInteger();
+        final BackendProbe underTest = createProbe("Backend", cacheFile, 0, true, probeCount);
+
+        assertTrue(underTest.isAvailable());
+        assertTrue(underTest.isAvailable());
+
+        assertEquals(1, probeCount.get());
+        assertFalse("the cache file is disabled", cacheFile.exists());
+    }
+
+    @Test
+    public void isAvailable_sharesResultThroughFile() {
+        final AtomicInteger probeCount = new AtomicInteger();
+        createProbe("Backend", cacheFile, ONE_HOUR, false, probeCount).isAvailable();
+        createProbe("Other", cacheFile, ONE_HOUR, true, probeCount).isAvailable();
+
+        final BackendProbe underTest = createProbe("Backend", cacheFile, ONE_HOUR, true, probeCount);
+
+        assertFalse(underTest.isAvailable());
+        assertEquals(2, probeCount.get());
+        assertTrue(createProbe("Other", cacheFile, ONE_HOUR, false, probeCount).isAvailable());
+        assertEquals(2, probeCount.get());
+    }
+
+    @Test
+    public void isAvailable_expiredFileProbesAgain() throws Exception {
+        final AtomicInteger probeCount = new AtomicInteger();
+        createProbe("Backend", cacheFile, ONE_HOUR, false, probeCount).isAvailable();
+        Thread.sleep(10);
+
+        final BackendProbe underTest = createProbe("Backend", cacheFile, 5, true, probeCount);
+
+        assertTrue(underTest.isAvailable());
+        assertEquals(2, probeCount.get());
+    }
+}
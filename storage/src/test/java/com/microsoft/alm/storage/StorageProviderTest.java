@@ -3,6 +3,8 @@
 
 package com.microsoft.alm.storage;
 
+import com.microsoft.alm.helpers.InMemoryMetrics;
+import com.microsoft.alm.helpers.MetricsHelper;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.storage.StorageProvider.NonPersistentStoreGenerator;
 import org.junit.Test;
@@ -13,6 +15,7 @@ import java.util.List;
 import static com.microsoft.alm.storage.StorageProvider.SecureOption;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class StorageProviderTest {
@@ -37,6 +40,7 @@ public class StorageProviderTest {
 
         final SecretStore<Token> actual = StorageProvider.getStore(true, SecureOption.MUST, candidates, generator);
         assertTrue(actual.isSecure());
+        assertSame(candidates.get(0), actual);
     }
 
     @Test
@@ -67,6 +71,36 @@ public class StorageProviderTest {
         assertFalse(actual.isSecure());
     }
 
+    @Test
+    public void nonPersisted_MustBeSecure_shouldReturnSecureInMemoryStore() throws Exception {
+        final SecretStore<Token> actual = StorageProvider.getTokenStorage(false, SecureOption.MUST);
+
+        assertTrue(actual instanceof SecureInMemoryTokenStore);
+        assertTrue(actual.isSecure());
+    }
+
+    @Test
+    public void nonPersisted_withMetrics_shouldReturnMeteredStore() throws Exception {
+        MetricsHelper.setMetrics(new InMemoryMetrics());
+        try {
+            final SecretStore<Token> actual = StorageProvider.getTokenStorage(false, SecureOption.MUST);
+
+            assertTrue(actual instanceof MeteredSecretStore);
+            assertTrue(MeteredSecretStore.unwrap(actual) instanceof SecureInMemoryTokenStore);
+        } finally {
+            MetricsHelper.setMetrics(null);
+        }
+    }
+
+    @Test
+    public void persisted_shouldReturnTheSameInstanceEveryTime() throws Exception {
+        // authenticators synchronize on the store they are given, so they must all get the same one
+        assertSame(StorageProvider.getTokenStorage(true, SecureOption.PREFER),
+                StorageProvider.getTokenStorage(true, SecureOption.PREFER));
+        assertSame(StorageProvider.getCredentialStorage(true, SecureOption.PREFER),
+                StorageProvider.getCredentialStorage(true, SecureOption.PREFER));
+    }
+
     private SecretStore<Token> getStore(final boolean secure) {
         return new SecretStore<Token>() {
             @Override
@@ -29,4 +29,14 @@ public class GnomeKeyringBackedCredentialStoreTest {
         assertEquals(password, processedCred.Password);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deserialize_xmlWrittenByOlderVersions() {
+        final Credential cred = new Credential("user", "<password/>");
+        final String xml = GnomeKeyringBackedCredentialStore.toXmlString(cred);
+
+        final Credential processedCred = underTest.deserialize(xml);
+
+        assertEquals(cred.Username, processedCred.Username);
+        assertEquals(cred.Password, processedCred.Password);
+    }
+}
@@ -3,11 +3,13 @@
 
 package com.microsoft.alm.storage.posix;
 
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.secret.TokenPair;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 public class GnomeKeyringBackedTokenPairStoreTest {
@@ -53,4 +55,23 @@ public class GnomeKeyringBackedTokenPairStoreTest {
         assertEquals(tokenPair.AccessToken, processed.AccessToken);
         assertEquals(tokenPair.RefreshToken, processed.RefreshToken);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void serialize_usesCodec() {
+        final TokenPair tokenPair = new TokenPair(sampleAssessToken, sampleRefreshToken);
+
+        final String serialized = underTest.serialize(tokenPair);
+
+        assertTrue(SecretCodec.isEncoded(serialized));
+    }
+
+    @Test
+    public void deserialize_xmlWrittenByOlderVersions() {
+        final TokenPair tokenPair = new TokenPair(sampleAssessToken, sampleRefreshToken);
+        final String xml = TokenPair.toXmlString(tokenPair);
+
+        final TokenPair processed = underTest.deserialize(xml);
+
+        assertEquals(tokenPair, processed);
+    }
+}
@@ -5,6 +5,7 @@ package com.microsoft.alm.storage.posix;
 
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.secret.VsoTokenScope;
 import com.microsoft.alm.storage.posix.internal.GnomeKeyringBackedSecureStore;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,4 +46,24 @@ public class GnomeKeyringBackedTokenStoreIT {
         final Token nonExistent = underTest.get(testKey);
         assertNull(nonExistent);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void saveScopedToken() {
+        final String testKey = "http://thisisatestkey";
+
+        final Token token = new Token("bi4295xkwev6djxej7hpffuoo4rzcqcogakubpu2sd7kopuoquaq", TokenType.Personal);
+        token.setScope(VsoTokenScope.CodeWrite);
+        assertTrue(underTest.add(testKey, token));
+
+        final Token readValue = underTest.get(testKey);
+        assertEquals(token.Value, readValue.Value);
+        assertEquals(VsoTokenScope.CodeWrite, readValue.getScope());
+
+        // replacing it with a token without a scope forgets the scope
+        assertTrue(underTest.add(testKey, new Token(token.Value, TokenType.Personal)));
+        assertNull(underTest.get(testKey).getScope());
+
+        assertTrue(underTest.delete(testKey));
+        assertNull(underTest.get(testKey));
+    }
+}
@@ -3,14 +3,17 @@
 
 package com.microsoft.alm.storage.posix;
 
+import com.microsoft.alm.secret.SecretCodec;
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.secret.VsoTokenScope;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.util.UUID;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class GnomeKeyringBackedTokenStoreTest {
 
@@ -30,4 +33,42 @@ public class GnomeKeyringBackedTokenStoreTest {
         assertEquals(token.Value, processed.Value);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void deserialize_encoded() {
+        final Token token = new Token(UUID.randomUUID().toString(), TokenType.Personal);
+
+        final Token processed = underTest.deserialize(SecretCodec.encode(token));
+
+        assertEquals(token.Value, processed.Value);
+    }
+
+    @Test
+    public void serialize_scopedTokenKeepsTheRawValue() {
+        final Token token = new Token("pat", TokenType.Personal);
+        token.setScope(VsoTokenScope.CodeWrite);
+
+        assertEquals("pat", underTest.serialize(token));
+    }
+
+    @Test
+    public void metadataRoundTrip() {
+        final Token token = new Token("pat", TokenType.Personal);
+        token.setScope(VsoTokenScope.or(VsoTokenScope.CodeWrite, VsoTokenScope.BuildAccess));
+
+        final Token processed = underTest.deserialize(underTest.serialize(token));
+        GnomeKeyringBackedTokenStore.readMetadata(processed, GnomeKeyringBackedTokenStore.writeMetadata(token));
+
+        assertEquals("pat", processed.Value);
+        assertEquals(token.getScope(), processed.getScope());
+    }
+
+    @Test
+    public void metadata_noneWithoutScope() {
+        final Token token = new Token("pat", TokenType.Personal);
+
+        assertNull(GnomeKeyringBackedTokenStore.writeMetadata(token));
+
+        GnomeKeyringBackedTokenStore.readMetadata(token, null);
+        assertNull(token.getScope());
+    }
+}
@@ -0,0 +1,62 @@
+// Copyright (c) Microsoft. All rights reserved.
+// Licensed under the MIT license. See License.txt in the project root.
+
+package com.microsoft.alm.storage.windows;
+
+import com.microsoft.alm.secret.TokenPair;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CredManagerBackedTokenPairStoreTest {
+
+    private CredManagerBackedTokenPairStore underTest;
+
+    @Before
+    public void setup() {
+        underTest = new CredManagerBackedTokenPairStore();
+    }
+
+    @Test
+    public void testGetUsername_noMetadata() throws Exception {
+        final TokenPair tokenPair = new TokenPair("access", "refresh");
+
+        assertEquals(CredManagerBackedTokenPairStore.TOKEN_PAIR_USERNAME, underTest.getUsername(tokenPair));
+    }
+
+    @Test
+    public void testCreate_legacyUsername() throws Exception {
+        final TokenPair tokenPair = underTest.create(CredManagerBackedTokenPairStore.TOKEN_PAIR_USERNAME, "refresh");
+
+        assertEquals("refresh", tokenPair.RefreshToken.Value);
+        assertTrue(tokenPair.Parameters.isEmpty());
+        assertEquals(-1, tokenPair.getExpiresOn());
+    }
+
+    @Test
+    public void testMetadataRoundTrip() throws Exception {
+        final TokenPair tokenPair = new TokenPair.TokenPairBuilder()
+                .withAccessToken("access")
+                .withRefreshToken("refresh")
+                .withParameter("token_type", "Bearer")
+                .withParameter(TokenPair.EXPIRES_ON, "1.476287437E9")
+                .withParameter(TokenPair.NOT_BEFORE, "1476283537")
+                .withParameter(TokenPair.RESOURCE, "499b84ac-1321-427f-aa17-267ca6975798")
+                .withParameter(TokenPair.TENANT_ID, "contoso.com")
+                .build();
+
+        final String username = underTest.getUsername(tokenPair);
+        final TokenPair actual = underTest.create(username, underTest.getCredentialBlob(tokenPair));
+
+        assertTrue(username.startsWith(CredManagerBackedTokenPairStore.TOKEN_PAIR_USERNAME));
+        assertEquals("refresh", actual.RefreshToken.Value);
+        assertEquals(1476287437000L, actual.getExpiresOn());
+        assertEquals(1476283537000L, actual.getIssuedOn());
+        assertEquals("499b84ac-1321-427f-aa17-267ca6975798", actual.getResource());
+        assertEquals("contoso.com", actual.getTenantId());
+        assertNull(actual.Parameters.get("token_type"));
+    }
+}
@@ -50,4 +50,17 @@ public class CredManagerBackedTokenStoreIT {
         assertNull("Token can still be read from store?  Did delete fail?", readToken);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void e2eTestTenantIndexRoundTrip() {
+        final String tenantIds = "72f988bf-86f1-41af-91ab-2d7cd011db47 0c8d2a5e-4f1b-4a36-9c1f-3d2e8b7a6f51";
+        final String key = "CredManagerTest:http://test.com/tenants";
+
+        underTest.add(key, new Token(tenantIds, TokenType.Unknown));
+        try {
+            assertEquals("Retrieved tenant index is different", tenantIds, underTest.get(key).Value);
+        } finally {
+            underTest.delete(key);
+        }
+    }
+
+}
@@ -5,10 +5,12 @@ package com.microsoft.alm.storage.windows;
 
 import com.microsoft.alm.secret.Token;
 import com.microsoft.alm.secret.TokenType;
+import com.microsoft.alm.secret.VsoTokenScope;
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class CredManagerBackedTokenStoreTest {
 
@@ -42,4 +44,34 @@ public class CredManagerBackedTokenStoreTest {
                 underTest.getCredentialBlob(token));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testCreate_legacyUsername() throws Exception {
+        final Token token = underTest.create(CredManagerBackedTokenStore.TOKEN_USERNAME, "pat");
+
+        assertEquals("pat", token.Value);
+        assertNull(token.getScope());
+    }
+
+    @Test
+    public void testScopeRoundTrip() throws Exception {
+        final Token token = new Token("pat", TokenType.Personal);
+        token.setScope(VsoTokenScope.or(VsoTokenScope.CodeWrite, VsoTokenScope.BuildAccess));
+
+        final Token actual = underTest.create(underTest.getUsername(token), underTest.getCredentialBlob(token));
+
+        assertEquals("pat", actual.Value);
+        assertEquals(token.getScope(), actual.getScope());
+    }
+
+    @Test
+    public void testTenantIndexRoundTrip() throws Exception {
+        // OAuth2Authenticator lists the tenants of its token pairs in a token, which must come back whole
+        final String tenantIds = "72f988bf-86f1-41af-91ab-2d7cd011db47 0c8d2a5e-4f1b-4a36-9c1f-3d2e8b7a6f51";
+        final Token token = new Token(tenantIds, TokenType.Unknown);
+
+        final Token actual = underTest.create(underTest.getUsername(token), underTest.getCredentialBlob(token));
+
+        assertEquals(tenantIds, actual.Value);
+    }
+
+}